@@ -2,8 +2,10 @@ package ma.xproce.pfehub;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class PfehubApplication {
 
 	public static void main(String[] args) {
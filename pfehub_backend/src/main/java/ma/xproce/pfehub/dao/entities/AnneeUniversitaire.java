@@ -2,12 +2,16 @@ package ma.xproce.pfehub.dao.entities;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "annees_universitaires")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "annees-universitaires")
 @Getter
 @Setter
 @NoArgsConstructor
@@ -16,7 +20,8 @@ import java.time.LocalDateTime;
 public class AnneeUniversitaire {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "annees_universitaires_seq")
+    @SequenceGenerator(name = "annees_universitaires_seq", sequenceName = "annees_universitaires_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "annee", nullable = false, unique = true)
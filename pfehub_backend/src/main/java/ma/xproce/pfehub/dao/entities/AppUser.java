@@ -1,5 +1,6 @@
 package ma.xproce.pfehub.dao.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -8,6 +9,10 @@ import java.time.LocalDateTime;
 @Entity
 @Inheritance(strategy = InheritanceType.JOINED)
 @Table(name = "app_users")
+@NamedEntityGraph(name = "AppUser.profile", attributeNodes = {
+        @NamedAttributeNode("departement"),
+        @NamedAttributeNode("specialite")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -15,9 +20,15 @@ import java.time.LocalDateTime;
 public abstract class AppUser {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "app_users_seq")
+    @SequenceGenerator(name = "app_users_seq", sequenceName = "app_users_seq", allocationSize = 50)
     private Long id;
     
+    // Of two transactions writing the same row, the second to commit fails instead of overwriting the first
+    @Version
+    @JsonIgnore
+    private Long version;
+    
     @Column(nullable = false)
     private String firstName;
     
@@ -34,11 +45,11 @@ public abstract class AppUser {
     @Column(nullable = false)
     private UserRole role;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "departement_id")
     private Departement departement;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "specialite_id")
     private Specialite specialite;
     
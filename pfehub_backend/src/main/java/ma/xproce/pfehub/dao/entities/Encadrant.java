@@ -9,6 +9,10 @@ import java.util.List;
 
 @Entity
 @Table(name = "encadrants")
+@NamedEntityGraph(name = "Encadrant.profile", attributeNodes = {
+        @NamedAttributeNode("departement"),
+        @NamedAttributeNode("specialite")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -32,14 +36,10 @@ public class Encadrant extends AppUser {
         setRole(UserRole.ENCADRANT);
     }
     
+    // Workload comes from PfeRepository.countByEncadrantId / countByEncadrantGrouped, never from pfes.size()
     @JsonIgnore
-    public int getCurrentProjectCount() {
-        return pfes != null ? pfes.size() : 0;
-    }
-    
-    @JsonIgnore
-    public boolean canAcceptMoreProjects() {
-        return getCurrentProjectCount() < maxProjectCapacity;
+    public boolean canAcceptMoreProjects(long currentProjectCount) {
+        return currentProjectCount < maxProjectCapacity;
     }
     
     public List<String> getExpertiseList() {
@@ -1,10 +1,19 @@
 package ma.xproce.pfehub.dao.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 
 @Entity
 @Table(name = "etudiants")
+@NamedEntityGraph(name = "Etudiant.profile", attributeNodes = {
+        @NamedAttributeNode("departement"),
+        @NamedAttributeNode("specialite"),
+        @NamedAttributeNode("anneeUniversitaire"),
+        @NamedAttributeNode(value = "pfe", subgraph = "project")
+}, subgraphs = {
+        @NamedSubgraph(name = "project", attributeNodes = @NamedAttributeNode("soutenance"))
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -17,10 +26,12 @@ public class Etudiant extends AppUser {
     @Column
     private String promotion;
     
+    // The project already renders its student: serializing this side too recursed without end
+    @JsonIgnore
     @OneToOne(mappedBy = "etudiant", cascade = CascadeType.ALL)
     private PFE pfe;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "annee_universitaire_id")
     private AnneeUniversitaire anneeUniversitaire;
     
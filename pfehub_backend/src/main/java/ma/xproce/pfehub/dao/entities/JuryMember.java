@@ -5,6 +5,14 @@ import lombok.*;
 
 @Entity
 @Table(name = "jury_members")
+@NamedEntityGraph(name = "JuryMember.detail", attributeNodes = {
+        @NamedAttributeNode(value = "professor", subgraph = "professor")
+}, subgraphs = {
+        @NamedSubgraph(name = "professor", attributeNodes = {
+                @NamedAttributeNode("departement"),
+                @NamedAttributeNode("specialite")
+        })
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -13,7 +21,8 @@ import lombok.*;
 public class JuryMember {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "jury_members_seq")
+    @SequenceGenerator(name = "jury_members_seq", sequenceName = "jury_members_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false)
@@ -26,11 +35,11 @@ public class JuryMember {
     @Column(nullable = false)
     private JuryRole role;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "professor_id")
     private Encadrant professor;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "soutenance_id", nullable = false)
     private Soutenance soutenance;
 }
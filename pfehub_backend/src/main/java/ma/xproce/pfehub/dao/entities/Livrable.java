@@ -15,10 +15,11 @@ import java.time.LocalDateTime;
 public class Livrable {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "livrables_seq")
+    @SequenceGenerator(name = "livrables_seq", sequenceName = "livrables_seq", allocationSize = 50)
     private Long id;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "pfe_id", nullable = false)
     private PFE pfe;
     
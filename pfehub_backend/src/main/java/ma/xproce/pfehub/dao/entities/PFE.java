@@ -10,6 +10,22 @@ import java.util.List;
 
 @Entity
 @Table(name = "pfes")
+@NamedEntityGraph(name = "PFE.detail", attributeNodes = {
+        @NamedAttributeNode(value = "etudiant", subgraph = "student"),
+        @NamedAttributeNode(value = "encadrant", subgraph = "professor"),
+        @NamedAttributeNode("anneeUniversitaire"),
+        @NamedAttributeNode("soutenance")
+}, subgraphs = {
+        @NamedSubgraph(name = "student", attributeNodes = {
+                @NamedAttributeNode("departement"),
+                @NamedAttributeNode("specialite"),
+                @NamedAttributeNode("anneeUniversitaire")
+        }),
+        @NamedSubgraph(name = "professor", attributeNodes = {
+                @NamedAttributeNode("departement"),
+                @NamedAttributeNode("specialite")
+        })
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -18,9 +34,15 @@ import java.util.List;
 public class PFE {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pfes_seq")
+    @SequenceGenerator(name = "pfes_seq", sequenceName = "pfes_seq", allocationSize = 50)
     private Long id;
     
+    // Of two transactions writing the same row, the second to commit fails instead of overwriting the first
+    @Version
+    @JsonIgnore
+    private Long version;
+    
     @Column(nullable = false)
     private String title;
     
@@ -46,11 +68,11 @@ public class PFE {
     @Column(nullable = false)
     private PFEStatus status = PFEStatus.EN_ATTENTE_ASSIGNATION;
     
-    @OneToOne
+    @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "etudiant_id", nullable = false)
     private Etudiant etudiant;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "encadrant_id")
     private Encadrant encadrant;
     
@@ -75,7 +97,7 @@ public class PFE {
     @Column(name = "rejection_reason", columnDefinition = "TEXT")
     private String rejectionReason;
     
-@JsonIgnore
+    @JsonIgnore
     @OneToMany(mappedBy = "pfe", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Livrable> livrables = new ArrayList<>();
 
@@ -83,7 +105,7 @@ public class PFE {
     @OneToOne(mappedBy = "pfe", cascade = CascadeType.ALL)
     private Soutenance soutenance;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "annee_universitaire_id")
     private AnneeUniversitaire anneeUniversitaire;
     
@@ -12,6 +12,26 @@ import java.util.List;
 
 @Entity
 @Table(name = "soutenances")
+@NamedEntityGraph(name = "Soutenance.detail", attributeNodes = {
+        @NamedAttributeNode(value = "pfe", subgraph = "project"),
+        @NamedAttributeNode(value = "validatedBy", subgraph = "user"),
+        @NamedAttributeNode(value = "evaluatedBy", subgraph = "user")
+}, subgraphs = {
+        @NamedSubgraph(name = "project", attributeNodes = {
+                @NamedAttributeNode(value = "etudiant", subgraph = "student"),
+                @NamedAttributeNode(value = "encadrant", subgraph = "user"),
+                @NamedAttributeNode("anneeUniversitaire")
+        }),
+        @NamedSubgraph(name = "student", attributeNodes = {
+                @NamedAttributeNode("departement"),
+                @NamedAttributeNode("specialite"),
+                @NamedAttributeNode("anneeUniversitaire")
+        }),
+        @NamedSubgraph(name = "user", attributeNodes = {
+                @NamedAttributeNode("departement"),
+                @NamedAttributeNode("specialite")
+        })
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -20,10 +40,16 @@ import java.util.List;
 public class Soutenance {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "soutenances_seq")
+    @SequenceGenerator(name = "soutenances_seq", sequenceName = "soutenances_seq", allocationSize = 50)
     private Long id;
     
-    @OneToOne
+    // Of two transactions writing the same row, the second to commit fails instead of overwriting the first
+    @Version
+    @JsonIgnore
+    private Long version;
+    
+    @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "pfe_id", nullable = false)
     private PFE pfe;
     
@@ -59,7 +85,7 @@ public class Soutenance {
     @Column(name = "validated_at")
     private LocalDateTime validatedAt;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "validated_by_id")
     private Admin validatedBy;
     
@@ -100,7 +126,7 @@ public class Soutenance {
     @Column(name = "evaluated_at")
     private LocalDateTime evaluatedAt;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "evaluated_by_id")
     private Encadrant evaluatedBy;
     
@@ -2,11 +2,15 @@ package ma.xproce.pfehub.dao.entities;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "specialites")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "specialites")
 @Getter
 @Setter
 @NoArgsConstructor
@@ -15,7 +19,8 @@ import java.time.LocalDateTime;
 public class Specialite {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "specialites_seq")
+    @SequenceGenerator(name = "specialites_seq", sequenceName = "specialites_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false)
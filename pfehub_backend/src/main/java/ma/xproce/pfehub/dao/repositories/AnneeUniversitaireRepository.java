@@ -1,8 +1,11 @@
 package ma.xproce.pfehub.dao.repositories;
 
 import ma.xproce.pfehub.dao.entities.AnneeUniversitaire;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -12,6 +15,7 @@ public interface AnneeUniversitaireRepository extends JpaRepository<AnneeUnivers
     
     Optional<AnneeUniversitaire> findByYear(String year);
     
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<AnneeUniversitaire> findByIsCurrentTrue();
     
     boolean existsByYear(String year);
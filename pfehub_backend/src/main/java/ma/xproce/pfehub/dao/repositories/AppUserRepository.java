@@ -4,10 +4,14 @@ import ma.xproce.pfehub.dao.entities.AppUser;
 import ma.xproce.pfehub.dao.entities.UserRole;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -15,13 +19,39 @@ import java.util.Optional;
 @Repository
 public interface AppUserRepository extends JpaRepository<AppUser, Long> {
     
-    Optional<AppUser> findByEmail(String email);
+    // Users with what they render: the department and specialty through AppUser.profile, and a student's
+    // project joined here, since the graph can't name a subclass attribute and Hibernate would otherwise
+    // load that inverse one-to-one with a statement per student
+    String WITH_PROFILE = "SELECT u FROM AppUser u LEFT JOIN FETCH TREAT(u AS Etudiant).pfe p LEFT JOIN FETCH p.soutenance";
+
+    // Login reads the department and specialty of the user after its transaction has ended
+    @EntityGraph("AppUser.profile")
+    @Query(WITH_PROFILE + " WHERE u.email = :email")
+    Optional<AppUser> findByEmail(@Param("email") String email);
+
+    @EntityGraph("AppUser.profile")
+    @Query(WITH_PROFILE + " WHERE u.id = :id")
+    Optional<AppUser> findProfileById(@Param("id") Long id);
+
+    @Override
+    @EntityGraph("AppUser.profile")
+    @Query(value = WITH_PROFILE, countQuery = "SELECT COUNT(u) FROM AppUser u")
+    Page<AppUser> findAll(Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE AppUser u SET u.password = :newHash WHERE u.id = :id AND u.password = :oldHash")
+    int replacePassword(@Param("id") Long id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
     
     boolean existsByEmail(String email);
     
     List<AppUser> findByRole(UserRole role);
     
     Page<AppUser> findByRole(UserRole role, Pageable pageable);
+
+    @EntityGraph("AppUser.profile")
+    @Query(WITH_PROFILE + " WHERE u.id > :id ORDER BY u.id")
+    Slice<AppUser> findByIdGreaterThanOrderByIdAsc(@Param("id") Long id, Pageable pageable);
     
     @Query("SELECT u FROM AppUser u WHERE u.departement.id = :departementId")
     List<AppUser> findByDepartementId(@Param("departementId") Long departementId);
@@ -35,9 +65,16 @@ public interface AppUserRepository extends JpaRepository<AppUser, Long> {
     @Query("SELECT COUNT(u) FROM AppUser u WHERE u.role = :role")
     long countByRole(@Param("role") UserRole role);
     
+    @Query("SELECT u.role, COUNT(u) FROM AppUser u GROUP BY u.role")
+    List<Object[]> countByRoleGrouped();
+    
     @Query("SELECT u FROM AppUser u WHERE " +
            "(LOWER(u.firstName) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
            "LOWER(u.lastName) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
            "LOWER(u.email) LIKE LOWER(CONCAT('%', :search, '%')))")
     Page<AppUser> searchUsers(@Param("search") String search, Pageable pageable);
+    
+    @Query("SELECT u.id, u.firstName, u.lastName, u.email, u.role, e.numeroEtudiant " +
+           "FROM AppUser u LEFT JOIN Etudiant e ON e.id = u.id")
+    List<Object[]> findSearchableFields();
 }
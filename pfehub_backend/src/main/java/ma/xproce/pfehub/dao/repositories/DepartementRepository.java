@@ -1,7 +1,10 @@
 package ma.xproce.pfehub.dao.repositories;
 
 import ma.xproce.pfehub.dao.entities.Departement;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -9,6 +12,8 @@ import java.util.Optional;
 @Repository
 public interface DepartementRepository extends JpaRepository<Departement, Long> {
     
+    // Results kept in the query cache, dropped by Hibernate whenever the departements table is written
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Departement> findByCode(String code);
     
     Optional<Departement> findByName(String name);
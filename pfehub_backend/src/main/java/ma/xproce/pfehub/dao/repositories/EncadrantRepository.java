@@ -3,6 +3,8 @@ package ma.xproce.pfehub.dao.repositories;
 import ma.xproce.pfehub.dao.entities.Encadrant;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -15,23 +17,42 @@ import java.util.Optional;
 public interface EncadrantRepository extends JpaRepository<Encadrant, Long> {
     
     Optional<Encadrant> findByEmail(String email);
+
+    @EntityGraph("Encadrant.profile")
+    Optional<Encadrant> findProfileById(Long id);
+
+    @Override
+    @EntityGraph("Encadrant.profile")
+    List<Encadrant> findAll();
     
     List<Encadrant> findByDepartementId(Long departementId);
     
     List<Encadrant> findBySpecialiteId(Long specialiteId);
     
-    @Query("SELECT e FROM Encadrant e WHERE SIZE(e.pfes) < e.maxProjectCapacity")
+    @EntityGraph("Encadrant.profile")
+    @Query("SELECT e FROM Encadrant e LEFT JOIN " +
+           "(SELECT p.encadrant.id AS encadrantId, COUNT(p) AS projectCount FROM PFE p GROUP BY p.encadrant.id) w " +
+           "ON w.encadrantId = e.id WHERE COALESCE(w.projectCount, 0) < e.maxProjectCapacity")
     List<Encadrant> findAvailableProfessors();
     
     @Query("SELECT e FROM Encadrant e WHERE e.expertise LIKE %:keyword%")
     List<Encadrant> findByExpertiseContaining(@Param("keyword") String keyword);
     
-    @Query("SELECT e FROM Encadrant e WHERE e.specialite.id = :specialiteId AND SIZE(e.pfes) < e.maxProjectCapacity")
+    @Query("SELECT e FROM Encadrant e LEFT JOIN " +
+           "(SELECT p.encadrant.id AS encadrantId, COUNT(p) AS projectCount FROM PFE p GROUP BY p.encadrant.id) w " +
+           "ON w.encadrantId = e.id WHERE e.specialite.id = :specialiteId AND COALESCE(w.projectCount, 0) < e.maxProjectCapacity")
     List<Encadrant> findAvailableProfessorsBySpecialite(@Param("specialiteId") Long specialiteId);
     
-    @Query("SELECT e FROM Encadrant e WHERE " +
+    String SEARCH = "SELECT e FROM Encadrant e WHERE " +
            "(LOWER(e.firstName) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
            "LOWER(e.lastName) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "LOWER(e.email) LIKE LOWER(CONCAT('%', :search, '%')))")
+           "LOWER(e.email) LIKE LOWER(CONCAT('%', :search, '%')))";
+
+    @EntityGraph("Encadrant.profile")
+    @Query(SEARCH)
     Page<Encadrant> searchProfessors(@Param("search") String search, Pageable pageable);
+
+    @EntityGraph("Encadrant.profile")
+    @Query(SEARCH + " AND e.id > :afterId ORDER BY e.id")
+    Slice<Encadrant> searchProfessorsAfter(@Param("search") String search, @Param("afterId") Long afterId, Pageable pageable);
 }
@@ -3,6 +3,9 @@ package ma.xproce.pfehub.dao.repositories;
 import ma.xproce.pfehub.dao.entities.Etudiant;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import ma.xproce.pfehub.web.dto.StudentSummaryDTO;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -15,6 +18,9 @@ import java.util.Optional;
 public interface EtudiantRepository extends JpaRepository<Etudiant, Long> {
     
     Optional<Etudiant> findByEmail(String email);
+
+    @EntityGraph("Etudiant.profile")
+    Optional<Etudiant> findProfileById(Long id);
     
     Optional<Etudiant> findByNumeroEtudiant(String numeroEtudiant);
     
@@ -24,16 +30,33 @@ public interface EtudiantRepository extends JpaRepository<Etudiant, Long> {
     
     List<Etudiant> findByPromotion(String promotion);
     
+    @Query("SELECT new ma.xproce.pfehub.web.dto.StudentSummaryDTO(" +
+           "e.id, e.firstName, e.lastName, e.email, e.isActive, e.numeroEtudiant, e.promotion, d.name, sp.name, p.id, p.status) " +
+           "FROM Etudiant e LEFT JOIN e.departement d LEFT JOIN e.specialite sp LEFT JOIN e.pfe p " +
+           "ORDER BY e.lastName, e.firstName")
+    List<StudentSummaryDTO> findSummaries();
+
     @Query("SELECT e FROM Etudiant e WHERE e.pfe IS NULL")
     List<Etudiant> findStudentsWithoutProject();
     
     @Query("SELECT e FROM Etudiant e WHERE e.pfe IS NOT NULL")
     List<Etudiant> findStudentsWithProject();
+
+    // (student id, departement id, number of projects) of every student, for the dashboard counters
+    @Query("SELECT e.id, d.id, COUNT(p) FROM Etudiant e LEFT JOIN e.departement d LEFT JOIN e.pfe p GROUP BY e.id, d.id")
+    List<Object[]> findDepartementIdsAndProjectCounts();
     
-    @Query("SELECT e FROM Etudiant e WHERE " +
+    String SEARCH = "SELECT e FROM Etudiant e WHERE " +
            "(LOWER(e.firstName) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
            "LOWER(e.lastName) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
            "LOWER(e.email) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "LOWER(e.numeroEtudiant) LIKE LOWER(CONCAT('%', :search, '%')))")
+           "LOWER(e.numeroEtudiant) LIKE LOWER(CONCAT('%', :search, '%')))";
+
+    @EntityGraph("Etudiant.profile")
+    @Query(SEARCH)
     Page<Etudiant> searchStudents(@Param("search") String search, Pageable pageable);
+
+    @EntityGraph("Etudiant.profile")
+    @Query(SEARCH + " AND e.id > :afterId ORDER BY e.id")
+    Slice<Etudiant> searchStudentsAfter(@Param("search") String search, @Param("afterId") Long afterId, Pageable pageable);
 }
@@ -2,7 +2,12 @@ package ma.xproce.pfehub.dao.repositories;
 
 import ma.xproce.pfehub.dao.entities.JuryMember;
 import ma.xproce.pfehub.dao.entities.JuryRole;
+import ma.xproce.pfehub.dao.entities.PFEStatus;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,11 +15,25 @@ import java.util.List;
 @Repository
 public interface JuryMemberRepository extends JpaRepository<JuryMember, Long> {
     
+    @EntityGraph("JuryMember.detail")
     List<JuryMember> findBySoutenanceId(Long soutenanceId);
     
     List<JuryMember> findByProfessorId(Long professorId);
     
     List<JuryMember> findBySoutenanceIdAndRole(Long soutenanceId, JuryRole role);
     
-    void deleteBySoutenanceId(Long soutenanceId);
+    // One statement, where the derived delete loaded the members and removed them one by one
+    @Modifying
+    @Query("DELETE FROM JuryMember j WHERE j.soutenance.id = :soutenanceId")
+    void deleteBySoutenanceId(@Param("soutenanceId") Long soutenanceId);
+    
+    @Query("SELECT j.professor.id, j.role, s.id, s.status, s.proposedRoom, s.proposedDate, s.proposedTime, " +
+           "s.finalRoom, s.finalDate, s.finalTime, p.id, p.title " +
+           "FROM JuryMember j JOIN j.soutenance s JOIN s.pfe p WHERE j.professor IS NOT NULL")
+    List<Object[]> findProfessorSeats();
+    
+    // (project id, professor id) for the professors on the juries of the projects in a status
+    @Query("SELECT p.id, j.professor.id FROM JuryMember j JOIN j.soutenance s JOIN s.pfe p " +
+           "WHERE p.status = :status AND j.professor IS NOT NULL ORDER BY j.id")
+    List<Object[]> findProfessorIdsByProjectStatus(@Param("status") PFEStatus status);
 }
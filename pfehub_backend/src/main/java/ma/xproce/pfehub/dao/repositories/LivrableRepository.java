@@ -3,6 +3,9 @@ package ma.xproce.pfehub.dao.repositories;
 import ma.xproce.pfehub.dao.entities.Livrable;
 import ma.xproce.pfehub.dao.entities.LivrableType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -15,4 +18,13 @@ public interface LivrableRepository extends JpaRepository<Livrable, Long> {
     List<Livrable> findByPfeIdAndType(Long pfeId, LivrableType type);
     
     long countByPfeId(Long pfeId);
+    
+    long countByFileUrl(String fileUrl);
+    
+    @Query("SELECT DISTINCT l.fileUrl FROM Livrable l WHERE l.fileUrl IS NOT NULL AND l.fileUrl NOT LIKE CONCAT(:prefix, '%')")
+    List<String> findFileUrlsNotStartingWith(@Param("prefix") String prefix);
+    
+    @Modifying
+    @Query("UPDATE Livrable l SET l.fileUrl = :newUrl WHERE l.fileUrl = :oldUrl")
+    int replaceFileUrl(@Param("oldUrl") String oldUrl, @Param("newUrl") String newUrl);
 }
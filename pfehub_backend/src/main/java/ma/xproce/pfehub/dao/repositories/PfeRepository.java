@@ -4,17 +4,66 @@ import ma.xproce.pfehub.dao.entities.PFE;
 import ma.xproce.pfehub.dao.entities.PFEStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import ma.xproce.pfehub.web.dto.ProjectSummaryDTO;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface PfeRepository extends JpaRepository<PFE, Long> {
-    
+
+    // Dashboard rows: the columns the lists show, students and professors joined in the same statement
+    String PROJECT_SUMMARY_COLUMNS = "SELECT new ma.xproce.pfehub.web.dto.ProjectSummaryDTO(" +
+            "p.id, p.title, p.keywords, p.status, p.submittedAt, p.assignedAt, p.acceptedAt, p.finalSubmittedAt, " +
+            "p.proposalFilePath, e.id, CONCAT(e.firstName, ' ', e.lastName), e.numeroEtudiant, d.name, sp.name, " +
+            "en.id, CONCAT(en.firstName, ' ', en.lastName)) ";
+    String PROJECT_SUMMARY = PROJECT_SUMMARY_COLUMNS +
+            "FROM PFE p JOIN p.etudiant e LEFT JOIN e.departement d LEFT JOIN e.specialite sp LEFT JOIN p.encadrant en";
+
+    @Query(value = PROJECT_SUMMARY, countQuery = "SELECT COUNT(p) FROM PFE p")
+    Page<ProjectSummaryDTO> findSummaries(Pageable pageable);
+
+    @Query(value = PROJECT_SUMMARY + " WHERE p.status = :status",
+           countQuery = "SELECT COUNT(p) FROM PFE p WHERE p.status = :status")
+    Page<ProjectSummaryDTO> findSummariesByStatus(@Param("status") PFEStatus status, Pageable pageable);
+
+    // Keyset pages, newest first, read along the (submitted_at, id) indexes of PFE; the <= bound is what
+    // lets the database seek to the cursor instead of scanning the rows before it
+    @Query(PROJECT_SUMMARY + " WHERE p.submittedAt <= :submittedAt " +
+           "AND (p.submittedAt < :submittedAt OR p.id < :id) " +
+           "ORDER BY p.submittedAt DESC, p.id DESC")
+    Slice<ProjectSummaryDTO> findSummariesBefore(@Param("submittedAt") LocalDateTime submittedAt, @Param("id") Long id,
+                                                 Pageable pageable);
+
+    @Query(PROJECT_SUMMARY + " WHERE p.status = :status " +
+           "AND p.submittedAt <= :submittedAt AND (p.submittedAt < :submittedAt OR p.id < :id) " +
+           "ORDER BY p.submittedAt DESC, p.id DESC")
+    Slice<ProjectSummaryDTO> findSummariesByStatusBefore(@Param("status") PFEStatus status,
+                                                         @Param("submittedAt") LocalDateTime submittedAt,
+                                                         @Param("id") Long id, Pageable pageable);
+
+    // From the professor, so that the projects are reached through the index on their encadrant_id
+    @Query(PROJECT_SUMMARY_COLUMNS + "FROM Encadrant en JOIN PFE p ON p.encadrant = en JOIN p.etudiant e " +
+           "LEFT JOIN e.departement d LEFT JOIN e.specialite sp WHERE en.id = :encadrantId")
+    List<ProjectSummaryDTO> findSummariesByEncadrantId(@Param("encadrantId") Long encadrantId);
+    
+    // Entities the API renders, with the people and year they show; internal reads use findById
+    @EntityGraph("PFE.detail")
+    Optional<PFE> findDetailById(Long id);
+
+    @EntityGraph("PFE.detail")
+    List<PFE> findDetailByIdIn(Collection<Long> ids);
+
+    @EntityGraph("PFE.detail")
     Optional<PFE> findByEtudiantId(Long etudiantId);
     
     List<PFE> findByEncadrantId(Long encadrantId);
@@ -26,16 +75,25 @@ public interface PfeRepository extends JpaRepository<PFE, Long> {
     @Query("SELECT p FROM PFE p WHERE p.status = :status")
     List<PFE> findAllByStatus(@Param("status") PFEStatus status);
     
+    // (id, title, supervisor id) of the projects in a status, without loading the projects and their defense
+    @Query("SELECT p.id, p.title, p.encadrant.id FROM PFE p WHERE p.status = :status ORDER BY p.id")
+    List<Object[]> findScheduleCandidates(@Param("status") PFEStatus status);
+
+    // The projects of a generated schedule, with what applying them reads: their supervisor and defense
+    @Query("SELECT p FROM PFE p LEFT JOIN FETCH p.encadrant LEFT JOIN FETCH p.soutenance WHERE p.id IN :ids")
+    List<PFE> findWithSupervisorAndDefenseByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @EntityGraph("PFE.detail")
     @Query("SELECT p FROM PFE p WHERE p.encadrant IS NULL AND p.status = 'EN_ATTENTE_ASSIGNATION'")
     List<PFE> findPendingAssignment();
     
     @Query("SELECT p FROM PFE p WHERE p.encadrant.id = :encadrantId AND p.status = :status")
     List<PFE> findByEncadrantIdAndStatus(@Param("encadrantId") Long encadrantId, @Param("status") PFEStatus status);
     
-    @Query("SELECT p FROM PFE p WHERE p.etudiant.departement.id = :departementId")
+    @Query("SELECT p FROM PFE p JOIN p.etudiant e WHERE e.departement.id = :departementId")
     List<PFE> findByDepartementId(@Param("departementId") Long departementId);
     
-    @Query("SELECT p FROM PFE p WHERE p.etudiant.specialite.id = :specialiteId")
+    @Query("SELECT p FROM PFE p JOIN p.etudiant e WHERE e.specialite.id = :specialiteId")
     List<PFE> findBySpecialiteId(@Param("specialiteId") Long specialiteId);
     
     @Query("SELECT p FROM PFE p WHERE p.anneeUniversitaire.id = :anneeId")
@@ -47,6 +105,12 @@ public interface PfeRepository extends JpaRepository<PFE, Long> {
     @Query("SELECT COUNT(p) FROM PFE p WHERE p.encadrant.id = :encadrantId")
     long countByEncadrantId(@Param("encadrantId") Long encadrantId);
     
+    @Query("SELECT p.encadrant.id, COUNT(p) FROM PFE p WHERE p.encadrant IS NOT NULL GROUP BY p.encadrant.id")
+    List<Object[]> countByEncadrantGrouped();
+    
+    @Query("SELECT p.encadrant.id, COUNT(p) FROM PFE p WHERE p.encadrant.id IN :encadrantIds GROUP BY p.encadrant.id")
+    List<Object[]> countByEncadrantGrouped(@Param("encadrantIds") Collection<Long> encadrantIds);
+    
     @Query("SELECT p.status, COUNT(p) FROM PFE p GROUP BY p.status")
     List<Object[]> countByStatusGrouped();
     
@@ -58,6 +122,18 @@ public interface PfeRepository extends JpaRepository<PFE, Long> {
            "LOWER(p.description) LIKE LOWER(CONCAT('%', :search, '%')))")
     Page<PFE> searchProjects(@Param("search") String search, Pageable pageable);
     
+    @EntityGraph("PFE.detail")
     @Query("SELECT p FROM PFE p ORDER BY p.submittedAt DESC")
     List<PFE> findRecentSubmissions(Pageable pageable);
+    
+    long countByProposalFilePath(String proposalFilePath);
+
+    List<PFE> findByProposalFilePath(String proposalFilePath);
+    
+    @Query("SELECT DISTINCT p.proposalFilePath FROM PFE p WHERE p.proposalFilePath IS NOT NULL AND p.proposalFilePath NOT LIKE CONCAT(:prefix, '%')")
+    List<String> findProposalFilePathsNotStartingWith(@Param("prefix") String prefix);
+    
+    @Modifying
+    @Query("UPDATE PFE p SET p.proposalFilePath = :newPath WHERE p.proposalFilePath = :oldPath")
+    int replaceProposalFilePath(@Param("oldPath") String oldPath, @Param("newPath") String newPath);
 }
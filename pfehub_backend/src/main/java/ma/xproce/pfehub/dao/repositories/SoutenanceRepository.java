@@ -4,41 +4,97 @@ import ma.xproce.pfehub.dao.entities.Soutenance;
 import ma.xproce.pfehub.dao.entities.SoutenanceStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import ma.xproce.pfehub.web.dto.DefenseSummaryDTO;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface SoutenanceRepository extends JpaRepository<Soutenance, Long> {
+
+    // Dashboard rows: the columns the lists show, project, student and professor joined in the same statement
+    String DEFENSE_SUMMARY = "SELECT new ma.xproce.pfehub.web.dto.DefenseSummaryDTO(" +
+            "s.id, s.status, s.proposedDate, s.proposedTime, s.proposedRoom, s.finalDate, s.finalTime, s.finalRoom, " +
+            "s.finalGrade, p.id, p.title, CONCAT(e.firstName, ' ', e.lastName), CONCAT(en.firstName, ' ', en.lastName)) " +
+            "FROM Soutenance s JOIN s.pfe p JOIN p.etudiant e LEFT JOIN p.encadrant en";
+
+    @Query(value = DEFENSE_SUMMARY, countQuery = "SELECT COUNT(s) FROM Soutenance s")
+    Page<DefenseSummaryDTO> findSummaries(Pageable pageable);
+
+    @Query(value = DEFENSE_SUMMARY + " WHERE s.status = :status",
+           countQuery = "SELECT COUNT(s) FROM Soutenance s WHERE s.status = :status")
+    Page<DefenseSummaryDTO> findSummariesByStatus(@Param("status") SoutenanceStatus status, Pageable pageable);
+
+    // Keyset pages along the (final_date, id) indexes: defenses not scheduled yet first, then by date
+    String DEFENSE_KEYSET_ORDER = " ORDER BY s.finalDate ASC NULLS FIRST, s.id ASC";
+
+    @Query(DEFENSE_SUMMARY + " WHERE (s.finalDate IS NULL AND s.id > :id) OR s.finalDate IS NOT NULL" + DEFENSE_KEYSET_ORDER)
+    Slice<DefenseSummaryDTO> findSummariesAfterUnscheduled(@Param("id") Long id, Pageable pageable);
+
+    @Query(DEFENSE_SUMMARY + " WHERE s.finalDate >= :finalDate AND (s.finalDate > :finalDate OR s.id > :id)" + DEFENSE_KEYSET_ORDER)
+    Slice<DefenseSummaryDTO> findSummariesAfter(@Param("finalDate") LocalDate finalDate, @Param("id") Long id,
+                                                Pageable pageable);
+
+    @Query(DEFENSE_SUMMARY + " WHERE s.status = :status " +
+           "AND ((s.finalDate IS NULL AND s.id > :id) OR s.finalDate IS NOT NULL)" + DEFENSE_KEYSET_ORDER)
+    Slice<DefenseSummaryDTO> findSummariesByStatusAfterUnscheduled(@Param("status") SoutenanceStatus status,
+                                                                   @Param("id") Long id, Pageable pageable);
+
+    @Query(DEFENSE_SUMMARY + " WHERE s.status = :status " +
+           "AND s.finalDate >= :finalDate AND (s.finalDate > :finalDate OR s.id > :id)" + DEFENSE_KEYSET_ORDER)
+    Slice<DefenseSummaryDTO> findSummariesByStatusAfter(@Param("status") SoutenanceStatus status,
+                                                        @Param("finalDate") LocalDate finalDate,
+                                                        @Param("id") Long id, Pageable pageable);
     
+    // Entities the API renders, with the project, people and year they show; internal reads use findById
+    @EntityGraph("Soutenance.detail")
+    Optional<Soutenance> findDetailById(Long id);
+
+    @EntityGraph("Soutenance.detail")
     Optional<Soutenance> findByPfeId(Long pfeId);
     
+    @EntityGraph("Soutenance.detail")
     Optional<Soutenance> findByPfeEtudiantId(Long etudiantId);
     
     List<Soutenance> findByStatus(SoutenanceStatus status);
     
     Page<Soutenance> findByStatus(SoutenanceStatus status, Pageable pageable);
     
+    @EntityGraph("Soutenance.detail")
     @Query("SELECT s FROM Soutenance s WHERE s.status = 'PROPOSEE'")
     List<Soutenance> findPendingProposals();
     
-    @Query("SELECT s FROM Soutenance s WHERE s.pfe.encadrant.id = :encadrantId")
+    // Behind the graph's joins H2 no longer picks the professor's projects as the driving table
+    @EntityGraph("Soutenance.detail")
+    @Query("SELECT s FROM Soutenance s WHERE s.pfe.id IN (SELECT p.id FROM PFE p WHERE p.encadrant.id = :encadrantId)")
     List<Soutenance> findByEncadrantId(@Param("encadrantId") Long encadrantId);
     
+    // (supervisor id, final date, final time) of the scheduled defenses supervised by the given professors
+    @Query("SELECT p.encadrant.id, s.finalDate, s.finalTime FROM Soutenance s JOIN s.pfe p " +
+           "WHERE p.encadrant.id IN :encadrantIds AND s.status IN ('VALIDEE', 'MODIFIEE') " +
+           "AND s.finalRoom IS NOT NULL AND s.finalDate IS NOT NULL AND s.finalTime IS NOT NULL")
+    List<Object[]> findScheduledSlotsByEncadrantIdIn(@Param("encadrantIds") Collection<Long> encadrantIds);
+    
     @Query("SELECT s FROM Soutenance s WHERE s.finalDate = :date")
     List<Soutenance> findByFinalDate(@Param("date") LocalDate date);
     
+    @EntityGraph("Soutenance.detail")
     @Query("SELECT s FROM Soutenance s WHERE s.finalDate BETWEEN :startDate AND :endDate")
     List<Soutenance> findByDateRange(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
     
+    @EntityGraph("Soutenance.detail")
     @Query("SELECT s FROM Soutenance s WHERE s.status = 'VALIDEE' AND s.finalDate >= :fromDate ORDER BY s.finalDate ASC")
     List<Soutenance> findUpcomingDefenses(@Param("fromDate") LocalDate fromDate);
     
+    @EntityGraph("Soutenance.detail")
     @Query("SELECT s FROM Soutenance s WHERE s.finalGrade IS NOT NULL")
     List<Soutenance> findEvaluatedDefenses();
     
@@ -48,6 +104,17 @@ public interface SoutenanceRepository extends JpaRepository<Soutenance, Long> {
     @Query("SELECT COUNT(s) FROM Soutenance s WHERE s.finalDate >= :fromDate AND s.status = 'VALIDEE'")
     long countUpcoming(@Param("fromDate") LocalDate fromDate);
     
+    @Query("SELECT s.status, COUNT(s) FROM Soutenance s GROUP BY s.status")
+    List<Object[]> countByStatusGrouped();
+    
+    @Query("SELECT s.finalDate, COUNT(s) FROM Soutenance s WHERE s.status = 'VALIDEE' AND s.finalDate IS NOT NULL GROUP BY s.finalDate")
+    List<Object[]> countValidatedByFinalDate();
+    
+    @Query("SELECT s.id, s.finalRoom, s.finalDate, s.finalTime FROM Soutenance s " +
+           "WHERE s.status IN ('VALIDEE', 'MODIFIEE') AND s.finalRoom IS NOT NULL AND s.finalDate IS NOT NULL AND s.finalTime IS NOT NULL")
+    List<Object[]> findScheduledSlots();
+    
+    @EntityGraph("Soutenance.detail")
     @Query("SELECT s FROM Soutenance s WHERE s.finalRoom = :room AND s.finalDate = :date")
     List<Soutenance> findByRoomAndDate(@Param("room") String room, @Param("date") LocalDate date);
 }
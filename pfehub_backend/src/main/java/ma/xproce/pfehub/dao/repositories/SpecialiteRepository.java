@@ -1,7 +1,10 @@
 package ma.xproce.pfehub.dao.repositories;
 
 import ma.xproce.pfehub.dao.entities.Specialite;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,6 +13,7 @@ import java.util.Optional;
 @Repository
 public interface SpecialiteRepository extends JpaRepository<Specialite, Long> {
     
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Specialite> findByCode(String code);
     
     List<Specialite> findByDepartementId(Long departementId);
@@ -0,0 +1,23 @@
+package ma.xproce.pfehub.security;
+
+import ma.xproce.pfehub.dao.entities.UserRole;
+
+import java.time.Instant;
+
+/**
+ * The user a request is authenticated as, read from the claims of its token: nothing here is
+ * checked against the database, so it is as current as the token is.
+ */
+public record AuthenticatedUser(Long id,
+                                String email,
+                                String firstName,
+                                String lastName,
+                                UserRole role,
+                                Long departementId,
+                                String departementNom,
+                                Long specialiteId,
+                                String specialiteNom,
+                                String tokenId,
+                                Instant issuedAt,
+                                Instant expiresAt) {
+}
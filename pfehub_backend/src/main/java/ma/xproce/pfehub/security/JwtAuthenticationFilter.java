@@ -0,0 +1,43 @@
+package ma.xproce.pfehub.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Authenticates requests carrying a valid, unrevoked {@code Authorization: Bearer} token as its
+ * {@link AuthenticatedUser}, with the authority {@code ROLE_<role>}. Requests without one go on
+ * unauthenticated and are left to the authorization rules.
+ */
+@RequiredArgsConstructor
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final String BEARER = "Bearer ";
+
+    private final JwtTokenService jwtTokenService;
+    private final TokenDenyList tokenDenyList;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header != null && header.startsWith(BEARER)) {
+            jwtTokenService.verify(header.substring(BEARER.length()).trim())
+                    .filter(user -> !tokenDenyList.isRevoked(user))
+                    .ifPresent(user -> SecurityContextHolder.getContext().setAuthentication(
+                            UsernamePasswordAuthenticationToken.authenticated(user, null,
+                                    List.of(new SimpleGrantedAuthority("ROLE_" + user.role().name())))));
+        }
+        chain.doFilter(request, response);
+    }
+}
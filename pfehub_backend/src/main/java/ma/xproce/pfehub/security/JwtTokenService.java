@@ -0,0 +1,153 @@
+package ma.xproce.pfehub.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.xproce.pfehub.dao.entities.AppUser;
+import ma.xproce.pfehub.dao.entities.UserRole;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Issues and verifies HS256 JSON Web Tokens (RFC 7519) signed with a local key. A token carries
+ * everything the API needs about its user (id, role, department, specialty, name), so verifying
+ * it is one HMAC and a small JSON parse, without touching the database.
+ * Only the header this service writes is accepted, which rules out "alg" substitution.
+ * Without {@code security.jwt.secret} a random key is generated, and tokens do not survive a restart.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class JwtTokenService {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    private static final String HEADER = ENCODER.encodeToString(
+            "{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+
+    private final ObjectMapper objectMapper;
+    private final SecureRandom random = new SecureRandom();
+
+    @Value("${security.jwt.secret:}")
+    private String secret;
+
+    @Getter
+    @Value("${security.jwt.time-to-live:8h}")
+    private Duration timeToLive;
+
+    private SecretKeySpec key;
+    // Mac instances are not thread-safe, and cheaper to keep than to create per request
+    private ThreadLocal<Mac> macs;
+
+    @PostConstruct
+    public void init() {
+        byte[] keyBytes;
+        if (secret.isBlank()) {
+            log.warn("No security.jwt.secret set: using a random key, tokens will not survive a restart");
+            keyBytes = new byte[32];
+            random.nextBytes(keyBytes);
+        } else {
+            keyBytes = Base64.getDecoder().decode(secret);
+            if (keyBytes.length < 32) {
+                throw new IllegalStateException("security.jwt.secret must be at least 256 bits, base64 encoded");
+            }
+        }
+        key = new SecretKeySpec(keyBytes, ALGORITHM);
+        macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    public String issue(AppUser user) {
+        Instant now = Instant.now();
+        byte[] tokenId = new byte[16];
+        random.nextBytes(tokenId);
+
+        ObjectNode claims = objectMapper.createObjectNode()
+                .put("sub", user.getId().toString())
+                .put("jti", ENCODER.encodeToString(tokenId))
+                .put("iat", now.getEpochSecond())
+                .put("exp", now.plus(timeToLive).getEpochSecond())
+                .put("role", user.getRole().name())
+                .put("email", user.getEmail())
+                .put("given_name", user.getFirstName())
+                .put("family_name", user.getLastName());
+        if (user.getDepartement() != null) {
+            claims.put("dept", user.getDepartement().getId()).put("dept_name", user.getDepartement().getName());
+        }
+        if (user.getSpecialite() != null) {
+            claims.put("spec", user.getSpecialite().getId()).put("spec_name", user.getSpecialite().getName());
+        }
+
+        try {
+            String content = HEADER + "." + ENCODER.encodeToString(objectMapper.writeValueAsBytes(claims));
+            return content + "." + ENCODER.encodeToString(sign(content));
+        } catch (IOException e) {
+            throw new RuntimeException("Could not issue token", e);
+        }
+    }
+
+    /** The user of a well-formed, correctly signed and unexpired token, or empty. */
+    public Optional<AuthenticatedUser> verify(String token) {
+        int first = token.indexOf('.');
+        int second = token.indexOf('.', first + 1);
+        if (first < 0 || second < 0 || token.indexOf('.', second + 1) >= 0
+                || !HEADER.equals(token.substring(0, first))) {
+            return Optional.empty();
+        }
+        try {
+            byte[] signature = DECODER.decode(token.substring(second + 1));
+            if (!MessageDigest.isEqual(signature, sign(token.substring(0, second)))) {
+                return Optional.empty();
+            }
+            JsonNode claims = objectMapper.readTree(DECODER.decode(token.substring(first + 1, second)));
+            Instant expiresAt = Instant.ofEpochSecond(claims.path("exp").asLong());
+            if (!expiresAt.isAfter(Instant.now())) {
+                return Optional.empty();
+            }
+            return Optional.of(new AuthenticatedUser(
+                    Long.valueOf(claims.path("sub").asText()),
+                    claims.path("email").asText(null),
+                    claims.path("given_name").asText(null),
+                    claims.path("family_name").asText(null),
+                    UserRole.valueOf(claims.path("role").asText()),
+                    claims.hasNonNull("dept") ? claims.get("dept").asLong() : null,
+                    claims.path("dept_name").asText(null),
+                    claims.hasNonNull("spec") ? claims.get("spec").asLong() : null,
+                    claims.path("spec_name").asText(null),
+                    claims.path("jti").asText(),
+                    Instant.ofEpochSecond(claims.path("iat").asLong()),
+                    expiresAt));
+        } catch (IOException | IllegalArgumentException e) {
+            // Not base64, not JSON or missing claims: a token this service did not sign
+            return Optional.empty();
+        }
+    }
+
+    private byte[] sign(String content) {
+        return macs.get().doFinal(content.getBytes(StandardCharsets.US_ASCII));
+    }
+}
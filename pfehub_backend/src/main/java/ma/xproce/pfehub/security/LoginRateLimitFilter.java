@@ -0,0 +1,156 @@
+package ma.xproce.pfehub.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Throttles the login endpoints per client IP and per email before the request reaches the
+ * password check, so a credential-stuffing script is turned away for the price of a hash lookup
+ * instead of a BCrypt round. Refused logins get 429 with a Retry-After header.
+ * The client IP is the remote address: behind a proxy, set {@code server.forward-headers-strategy}.
+ */
+public class LoginRateLimitFilter extends OncePerRequestFilter {
+
+    private static final Set<String> LOGIN_PATHS = Set.of("/api/auth/login", "/api/users/login");
+    // Login bodies are a few dozen bytes; anything bigger is not a login
+    private static final int MAX_BODY_SIZE = 4 * 1024;
+
+    private final RateLimiter perIp;
+    private final RateLimiter perEmail;
+    private final ObjectMapper objectMapper;
+
+    public LoginRateLimitFilter(int perIpLimit, int perEmailLimit, Duration period, int slots, ObjectMapper objectMapper) {
+        this.perIp = new RateLimiter(perIpLimit, period, slots);
+        this.perEmail = new RateLimiter(perEmailLimit, period, slots);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod()) || !LOGIN_PATHS.contains(request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long retryAfter = perIp.tryAcquire(request.getRemoteAddr());
+        if (retryAfter > 0) {
+            refuse(response, retryAfter);
+            return;
+        }
+
+        byte[] body = request.getInputStream().readNBytes(MAX_BODY_SIZE + 1);
+        if (body.length > MAX_BODY_SIZE) {
+            response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+            return;
+        }
+        String email = email(body);
+        if (email != null) {
+            retryAfter = perEmail.tryAcquire(email);
+            if (retryAfter > 0) {
+                refuse(response, retryAfter);
+                return;
+            }
+        }
+        chain.doFilter(new CachedBodyRequest(request, body), response);
+    }
+
+    private String email(byte[] body) {
+        try {
+            JsonNode email = objectMapper.readTree(body).get("email");
+            return email != null && email.isTextual() ? email.asText().trim().toLowerCase(Locale.ROOT) : null;
+        } catch (IOException e) {
+            return null; // Left to the controller to reject
+        }
+    }
+
+    private void refuse(HttpServletResponse response, long retryAfterMillis) throws IOException {
+        long seconds = Math.max(1, (retryAfterMillis + 999) / 1000);
+        response.setStatus(429);
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(seconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), Map.of(
+                "error", "Trop de tentatives",
+                "message", "Trop de tentatives de connexion, réessayez dans " + seconds + " s"
+        ));
+    }
+
+    /** The request with its body, already read here, readable again by the controller. */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        private CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // The whole body is already in memory: it is available, then read, right away
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    try {
+                        if (!isFinished()) {
+                            listener.onDataAvailable();
+                        }
+                        listener.onAllDataRead();
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
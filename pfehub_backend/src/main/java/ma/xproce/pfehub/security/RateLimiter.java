@@ -0,0 +1,106 @@
+package ma.xproce.pfehub.security;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Token buckets ({@code limit} requests per {@code period}, all of which may be used at once) for
+ * any number of keys, in a fixed amount of memory and without locks.
+ * Each bucket is one long in a fixed-size table: a 16-bit key fingerprint and the bucket's
+ * "theoretical arrival time" (GCRA): the moment it will be full again. A key looks for its
+ * fingerprint among 4 neighbouring slots and otherwise takes a slot whose bucket is full, which
+ * is as good as empty: that is the eviction, with no sweeping. When the table is saturated (all 4
+ * held by busy keys) it evicts the least used of them: a flood of new keys then costs the keys it
+ * evicts their history, while a key being hammered, the most used, keeps its slot.
+ * Updates are a compare-and-set on the slot.
+ */
+final class RateLimiter {
+
+    private static final int PROBES = 4;
+    private static final int TIME_BITS = 48;
+    private static final long TIME_MASK = (1L << TIME_BITS) - 1;
+
+    private final AtomicLongArray slots;
+    private final int mask;
+    private final long interval;
+    private final long burst;
+    private final long origin = System.nanoTime();
+    // Keys are hashed with a per-instance seed: colliding keys can't be crafted to throttle someone else
+    private final long seed = new SecureRandom().nextLong();
+
+    /**
+     * @param slots buckets kept, rounded up to a power of two; 8 bytes each
+     */
+    RateLimiter(int limit, Duration period, int slots) {
+        int size = Integer.highestOneBit(Math.max(slots, PROBES) - 1) << 1;
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.interval = Math.max(period.toMillis() / limit, 1);
+        this.burst = interval * limit;
+    }
+
+    /** Takes a token for {@code key}: 0 if there was one, else the milliseconds until there is. */
+    long tryAcquire(String key) {
+        long hash = hash(key);
+        long fingerprint = (hash >>> TIME_BITS) | 1; // 0 marks a slot never used
+        int base = (int) hash & mask & ~(PROBES - 1);
+
+        while (true) {
+            long now = now();
+            int index = -1;
+            long current = 0;
+            int leastUsed = base;
+            long leastUsedSlot = Long.MAX_VALUE;
+            for (int i = 0; i < PROBES; i++) {
+                long slot = slots.get(base + i);
+                if (slot >>> TIME_BITS == fingerprint) {
+                    index = base + i;
+                    current = slot;
+                    break;
+                }
+                if (index < 0 && (slot & TIME_MASK) <= now) {
+                    // A full bucket, taken unless the key's own slot comes further on
+                    index = base + i;
+                    current = slot;
+                }
+                if ((slot & TIME_MASK) < (leastUsedSlot & TIME_MASK)) {
+                    leastUsed = base + i;
+                    leastUsedSlot = slot;
+                }
+            }
+            long start = now;
+            if (index < 0) {
+                // Evicted: the new key starts with a full bucket
+                index = leastUsed;
+                current = leastUsedSlot;
+            } else {
+                start = Math.max(current & TIME_MASK, now);
+            }
+
+            long arrival = start + interval;
+            if (arrival - now > burst) {
+                return arrival - now - burst;
+            }
+            if (slots.compareAndSet(index, current, fingerprint << TIME_BITS | arrival)) {
+                return 0;
+            }
+        }
+    }
+
+    private long now() {
+        // Never 0, so a used slot never looks empty
+        return (System.nanoTime() - origin) / 1_000_000 + 1;
+    }
+
+    private long hash(String key) {
+        long h = seed;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x100000001B3L;
+        }
+        // SplitMix64 finalizer, so every bit of the result depends on every character
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+}
@@ -1,37 +1,77 @@
 package ma.xproce.pfehub.security;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import ma.xproce.pfehub.dao.entities.UserRole;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authorization.AuthorizationDecision;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 @Configuration
 @EnableWebSecurity
+@RequiredArgsConstructor
 public class SecurityConfig {
 
+    private static final IpAddressMatcher LOCALHOST = new IpAddressMatcher("127.0.0.1");
+    private static final IpAddressMatcher LOCALHOST_V6 = new IpAddressMatcher("::1");
+
+    private final JwtTokenService jwtTokenService;
+    private final TokenDenyList tokenDenyList;
+    private final ObjectMapper objectMapper;
+
+    @Value("${security.login-rate-limit.per-ip:20}")
+    private int loginsPerIp;
+
+    @Value("${security.login-rate-limit.per-email:5}")
+    private int loginsPerEmail;
+
+    @Value("${security.login-rate-limit.period:1m}")
+    private Duration loginRatePeriod;
+
+    @Value("${security.login-rate-limit.slots:65536}")
+    private int loginRateSlots;
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
             .csrf(AbstractHttpConfigurer::disable)
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+            .addFilterBefore(new LoginRateLimitFilter(loginsPerIp, loginsPerEmail, loginRatePeriod, loginRateSlots, objectMapper),
+                    UsernamePasswordAuthenticationFilter.class)
+            .addFilterBefore(new JwtAuthenticationFilter(jwtTokenService, tokenDenyList), UsernamePasswordAuthenticationFilter.class)
+            .exceptionHandling(exceptions -> exceptions.authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
             .authorizeHttpRequests(authz -> authz
                 // Public endpoints
                 .requestMatchers("/api/users/login").permitAll()
+                .requestMatchers("/api/admin/**").hasRole(UserRole.ADMIN.name())
                 .requestMatchers("/api/**").permitAll()
-                .requestMatchers("/h2-console/**").permitAll()
-                // All other requests require authentication (for future JWT implementation)
+                // The console has its own login but reaches the whole database: only from this machine
+                .requestMatchers("/h2-console/**").access((authentication, context) ->
+                        new AuthorizationDecision(LOCALHOST.matches(context.getRequest())
+                                || LOCALHOST_V6.matches(context.getRequest())))
+                // Tokens are verified by JwtAuthenticationFilter; endpoints can require a role with hasRole
                 .anyRequest().permitAll()
             )
             // Allow H2 console frames
@@ -56,7 +96,7 @@ public class SecurityConfig {
         
         // Allow all HTTP methods
         configuration.setAllowedMethods(Arrays.asList(
-            "GET", "POST", "PUT", "DELETE", "PATCH", "OPTIONS"
+            "GET", "HEAD", "POST", "PUT", "DELETE", "PATCH", "OPTIONS"
         ));
         
         // Allow all headers
@@ -67,7 +107,14 @@ public class SecurityConfig {
             "Origin",
             "X-Requested-With",
             "Access-Control-Request-Method",
-            "Access-Control-Request-Headers"
+            "Access-Control-Request-Headers",
+            "Range",
+            "If-Range",
+            "If-Match",
+            "If-None-Match",
+            "If-Modified-Since",
+            "If-Unmodified-Since",
+            "Content-Digest"
         ));
         
         // Allow credentials (cookies, authorization headers)
@@ -76,7 +123,13 @@ public class SecurityConfig {
         // Expose headers that the client can access
         configuration.setExposedHeaders(Arrays.asList(
             "Authorization",
-            "Content-Disposition"
+            "Content-Disposition",
+            "Accept-Ranges",
+            "Content-Range",
+            "Content-Length",
+            "ETag",
+            "Last-Modified",
+            "Retry-After"
         ));
         
         // Cache preflight response for 1 hour
@@ -88,8 +141,17 @@ public class SecurityConfig {
         return source;
     }
 
+    /**
+     * Hashes are stored as {@code {bcrypt}$2a$<cost>$...}. Hashes without the id prefix (written
+     * before it existed) still match as BCrypt, and are re-encoded at the configured cost on the
+     * next successful login, as are hashes of a lower cost (see {@link PasswordEncoder#upgradeEncoding}).
+     * BCryptCostBenchmark picks the cost for a target login latency on the current hardware.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${security.password-hashing.bcrypt-strength:10}") int strength) {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(strength);
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
     }
 }
@@ -0,0 +1,49 @@
+package ma.xproce.pfehub.security;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revoked tokens, kept in memory only until they would have expired anyway, so the list never
+ * holds more than the tokens revoked during one token lifetime. Tokens are revoked one by one
+ * (logout) or all those of a user issued before a point in time (account deleted).
+ */
+@Component
+@RequiredArgsConstructor
+public class TokenDenyList {
+
+    // Token id -> expiry, in epoch seconds
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    // User id -> tokens issued before this are revoked, in epoch seconds
+    private final Map<Long, Long> revokedBefore = new ConcurrentHashMap<>();
+
+    private final JwtTokenService jwtTokenService;
+
+    public void revoke(AuthenticatedUser user) {
+        revokedTokens.put(user.tokenId(), user.expiresAt().getEpochSecond());
+    }
+
+    public void revokeAll(Long userId) {
+        revokedBefore.put(userId, Instant.now().getEpochSecond() + 1);
+    }
+
+    public boolean isRevoked(AuthenticatedUser user) {
+        Long before = revokedBefore.get(user.id());
+        return revokedTokens.containsKey(user.tokenId())
+                || (before != null && user.issuedAt().getEpochSecond() < before);
+    }
+
+    @Scheduled(fixedRate = 10 * 60 * 1000)
+    public void purgeExpired() {
+        long now = Instant.now().getEpochSecond();
+        revokedTokens.values().removeIf(expiry -> expiry < now);
+        // Every token issued before the cutoff has expired once a full lifetime has passed
+        long lifetime = jwtTokenService.getTimeToLive().getSeconds();
+        revokedBefore.values().removeIf(before -> before + lifetime < now);
+    }
+}
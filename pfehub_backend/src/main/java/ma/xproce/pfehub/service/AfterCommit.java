@@ -0,0 +1,35 @@
+package ma.xproce.pfehub.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Applies a change to an in-memory index once the transaction writing the rows behind it has
+ * committed, so that a write failing at flush or commit (a unique constraint, a concurrent update)
+ * leaves the index as it was. Outside a transaction the change is applied right away.
+ */
+@Slf4j
+final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    static void run(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                // The rows are committed by now: a failing index is logged rather than failing the request
+                try {
+                    change.run();
+                } catch (RuntimeException e) {
+                    log.warn("Could not update an index after commit: {}", e.getMessage(), e);
+                }
+            }
+        });
+    }
+}
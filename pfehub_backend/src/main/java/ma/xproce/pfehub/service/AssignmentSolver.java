@@ -0,0 +1,221 @@
+package ma.xproce.pfehub.service;
+
+import java.util.Arrays;
+
+/**
+ * Capacity-constrained assignment of projects (rows) to professors (columns).
+ * Solved as a min-cost flow with successive shortest paths: projects are added one at a time and
+ * routed along the cheapest augmenting path (Dijkstra on reduced costs, stopped as soon as the sink
+ * is reached). The result assigns as many projects as the capacities allow and, among those plans,
+ * maximizes the total match score.
+ */
+public final class AssignmentSolver {
+
+    public static final int UNASSIGNED = -1;
+
+    private AssignmentSolver() {
+    }
+
+    /**
+     * @param scores     match score (0..100) of every project against every professor
+     * @param capacities remaining capacity of every professor
+     * @return for every project the index of its professor, or {@link #UNASSIGNED}
+     */
+    public static int[] solve(int[][] scores, int[] capacities) {
+        int rows = scores.length;
+        int cols = capacities.length;
+
+        // Node layout: rows, then columns, then the "unassigned" overflow column, then the sink
+        int dummy = rows + cols;
+        int sink = dummy + 1;
+        int nodes = sink + 1;
+        // Leaving a project unassigned must always cost more than any rearrangement of the others
+        long unassignedCost = 101L * (rows + 1);
+
+        long[] potential = new long[nodes];
+        long[] dist = new long[nodes];
+        int[] parent = new int[nodes];
+        boolean[] settled = new boolean[nodes];
+
+        int[] columnOf = new int[rows];
+        Arrays.fill(columnOf, UNASSIGNED);
+        int[] pathRows = new int[rows + 1];
+        int[] pathColumns = new int[rows + 1];
+        int[] load = new int[cols + 1];
+        int[][] assignedRows = new int[cols + 1][];
+        for (int j = 0; j < cols; j++) {
+            assignedRows[j] = new int[Math.max(capacities[j], 0)];
+        }
+        assignedRows[cols] = new int[rows];
+
+        LongHeap heap = new LongHeap(nodes * 4);
+
+        for (int source = 0; source < rows; source++) {
+            Arrays.fill(dist, Long.MAX_VALUE);
+            Arrays.fill(settled, false);
+            heap.clear();
+            dist[source] = 0;
+            parent[source] = -1;
+            heap.push(0, source);
+
+            while (!heap.isEmpty()) {
+                long key = heap.peekKey();
+                int u = heap.popNode();
+                if (settled[u] || key > dist[u]) {
+                    continue;
+                }
+                settled[u] = true;
+                if (u == sink) {
+                    break;
+                }
+
+                if (u < rows) {
+                    // Forward edges project -> professor / overflow
+                    int current = columnOf[u];
+                    int[] rowScores = scores[u];
+                    for (int j = 0; j < cols; j++) {
+                        if (j != current) {
+                            relax(heap, dist, parent, settled, u, rows + j,
+                                    dist[u] + (100 - rowScores[j]) + potential[u] - potential[rows + j]);
+                        }
+                    }
+                    if (current != cols) {
+                        relax(heap, dist, parent, settled, u, dummy,
+                                dist[u] + unassignedCost + potential[u] - potential[dummy]);
+                    }
+                } else if (u < sink) {
+                    // Backward edges professor -> currently assigned project, then professor -> sink
+                    int j = u - rows;
+                    int[] members = assignedRows[j];
+                    for (int k = 0; k < load[j]; k++) {
+                        int r = members[k];
+                        long cost = j == cols ? unassignedCost : 100 - scores[r][j];
+                        relax(heap, dist, parent, settled, u, r, dist[u] - cost + potential[u] - potential[r]);
+                    }
+                    if (j == cols || load[j] < capacities[j]) {
+                        relax(heap, dist, parent, settled, u, sink, dist[u] + potential[u] - potential[sink]);
+                    }
+                }
+            }
+
+            long reached = dist[sink];
+            for (int v = 0; v < nodes; v++) {
+                potential[v] += Math.min(dist[v], reached);
+            }
+
+            // Walk the path back from the sink: each project on it moves to the next column
+            int length = 0;
+            int column = parent[sink];
+            while (column != -1) {
+                int row = parent[column];
+                pathRows[length] = row;
+                pathColumns[length] = column - rows;
+                length++;
+                column = parent[row];
+            }
+            for (int k = 0; k < length; k++) {
+                int previous = columnOf[pathRows[k]];
+                if (previous != UNASSIGNED) {
+                    removeMember(assignedRows[previous], load, previous, pathRows[k]);
+                }
+            }
+            for (int k = 0; k < length; k++) {
+                int j = pathColumns[k];
+                assignedRows[j][load[j]++] = pathRows[k];
+                columnOf[pathRows[k]] = j;
+            }
+        }
+
+        int[] assignment = new int[rows];
+        for (int r = 0; r < rows; r++) {
+            assignment[r] = columnOf[r] == cols ? UNASSIGNED : columnOf[r];
+        }
+        return assignment;
+    }
+
+    private static void relax(LongHeap heap, long[] dist, int[] parent, boolean[] settled, int from, int to, long candidate) {
+        if (!settled[to] && candidate < dist[to]) {
+            dist[to] = candidate;
+            parent[to] = from;
+            heap.push(candidate, to);
+        }
+    }
+
+    private static void removeMember(int[] members, int[] load, int column, int row) {
+        for (int k = 0; k < load[column]; k++) {
+            if (members[k] == row) {
+                members[k] = members[load[column] - 1];
+                load[column]--;
+                return;
+            }
+        }
+    }
+
+    /** Minimal binary heap of (key, node) pairs, avoiding boxing in the Dijkstra loop. */
+    private static final class LongHeap {
+        private long[] keys;
+        private int[] values;
+        private int size;
+
+        LongHeap(int capacity) {
+            keys = new long[capacity];
+            values = new int[capacity];
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long peekKey() {
+            return keys[0];
+        }
+
+        void push(long key, int value) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int p = (i - 1) >>> 1;
+                if (keys[p] <= key) {
+                    break;
+                }
+                keys[i] = keys[p];
+                values[i] = values[p];
+                i = p;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        int popNode() {
+            int top = values[0];
+            long key = keys[--size];
+            int value = values[size];
+            int i = 0;
+            while (true) {
+                int c = 2 * i + 1;
+                if (c >= size) {
+                    break;
+                }
+                if (c + 1 < size && keys[c + 1] < keys[c]) {
+                    c++;
+                }
+                if (keys[c] >= key) {
+                    break;
+                }
+                keys[i] = keys[c];
+                values[i] = values[c];
+                i = c;
+            }
+            keys[i] = key;
+            values[i] = value;
+            return top;
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package ma.xproce.pfehub.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.xproce.pfehub.web.dto.UploadInitDTO;
+import ma.xproce.pfehub.web.dto.UploadSessionDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Resumable uploads: the client announces the file, sends it as fixed-size chunks in any order
+ * (again after a dropped connection), then completes the upload.
+ * Each chunk is streamed straight to its offset in a single part file and must carry a
+ * {@code Content-Digest: sha-256=:<base64>:} header (RFC 9530) matching its content. Completing
+ * moves the part file into storage, a rename when the part directory sits next to the upload
+ * directory as it does by default. Part files are kept out of the upload directory, which is served.
+ * Completed inside a transaction, the session is only dropped once it commits; on rollback the file
+ * goes back to the session, which can be completed again.
+ * Sessions are kept in memory and expire after a period without activity.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ChunkedUploadManager implements IChunkedUploadService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String SHA_256 = "sha-256=:";
+
+    private final IFileStorageService fileStorageService;
+
+    @Value("${file.upload-dir:./uploads}")
+    private String uploadDir;
+
+    @Value("${file.chunked-upload.dir:${file.upload-dir:./uploads}.chunks}")
+    private String partDir;
+
+    @Value("${file.chunked-upload.chunk-size:8MB}")
+    private DataSize chunkSize;
+
+    @Value("${file.chunked-upload.max-size:2GB}")
+    private DataSize maxSize;
+
+    @Value("${file.chunked-upload.expiry:24h}")
+    private Duration expiry;
+
+    private final Map<String, Upload> uploads = new ConcurrentHashMap<>();
+    private Path chunkDirectory;
+
+    private static final class Upload {
+        private final String id = UUID.randomUUID().toString();
+        private final String fileName;
+        private final long size;
+        private final long chunkSize;
+        private final int chunkCount;
+        private final Path file;
+        // Guarded by the upload itself
+        private final BitSet received = new BitSet();
+        private final BitSet inFlight = new BitSet();
+        private boolean completing;
+        private boolean discarded;
+        private volatile Instant lastActivity = Instant.now();
+
+        private Upload(String fileName, long size, long chunkSize, Path directory) {
+            this.fileName = fileName;
+            this.size = size;
+            this.chunkSize = chunkSize;
+            this.chunkCount = (int) ((size + chunkSize - 1) / chunkSize);
+            this.file = directory.resolve(id + ".part");
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        chunkDirectory = Paths.get(partDir);
+        try {
+            Files.createDirectories(chunkDirectory);
+            // Sessions do not survive a restart, so neither do their part files, here or where they used to be
+            deleteParts(chunkDirectory);
+            deleteParts(Paths.get(uploadDir).resolve(".chunks"));
+        } catch (IOException e) {
+            throw new RuntimeException("Could not initialize chunked upload location", e);
+        }
+    }
+
+    @Override
+    public UploadSessionDTO startUpload(UploadInitDTO dto) {
+        if (dto.getFileName() == null || dto.getFileName().isBlank()) {
+            throw new RuntimeException("File name is required");
+        }
+        if (dto.getSize() == null || dto.getSize() <= 0) {
+            throw new RuntimeException("File size must be positive");
+        }
+        if (dto.getSize() > maxSize.toBytes()) {
+            throw new RuntimeException("File is too large (max " + maxSize.toMegabytes() + " MB)");
+        }
+
+        Upload upload = new Upload(dto.getFileName(), dto.getSize(), chunkSize.toBytes(), chunkDirectory);
+        try {
+            if (Files.getFileStore(chunkDirectory).getUsableSpace() < dto.getSize()) {
+                throw new RuntimeException("Not enough storage space left for this file");
+            }
+            Files.createFile(upload.file);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not start upload", e);
+        }
+        uploads.put(upload.id, upload);
+        return toDTO(upload);
+    }
+
+    @Override
+    public Optional<UploadSessionDTO> getUpload(String uploadId) {
+        return Optional.ofNullable(uploads.get(uploadId)).map(this::toDTO);
+    }
+
+    @Override
+    public UploadSessionDTO writeChunk(String uploadId, int index, String contentDigest, InputStream body) {
+        Upload upload = find(uploadId);
+        if (index < 0 || index >= upload.chunkCount) {
+            throw new RuntimeException("Chunk index must be between 0 and " + (upload.chunkCount - 1));
+        }
+        byte[] expected = sha256(contentDigest);
+        long position = index * upload.chunkSize;
+        long length = Math.min(upload.chunkSize, upload.size - position);
+
+        synchronized (upload) {
+            if (upload.discarded) {
+                throw new RuntimeException("Upload not found");
+            }
+            if (upload.completing) {
+                throw new RuntimeException("Upload is being completed");
+            }
+            if (upload.inFlight.get(index)) {
+                throw new RuntimeException("Chunk " + index + " is already being uploaded");
+            }
+            // Until this write succeeds the chunk's bytes on disk can't be trusted
+            upload.inFlight.set(index);
+            upload.received.clear(index);
+        }
+        boolean written = false;
+        try (FileChannel channel = FileChannel.open(upload.file, StandardOpenOption.WRITE)) {
+            MessageDigest digest = newSha256();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long count = 0;
+            int read;
+            // Reads one byte past the chunk length to detect an oversized body
+            while ((read = body.read(buffer, 0, (int) Math.min(buffer.length, length - count + 1))) > 0) {
+                if (count + read > length) {
+                    throw new RuntimeException("Chunk " + index + " is longer than " + length + " bytes");
+                }
+                digest.update(buffer, 0, read);
+                ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+                while (bytes.hasRemaining()) {
+                    count += channel.write(bytes, position + count);
+                }
+            }
+            if (count != length) {
+                throw new RuntimeException("Chunk " + index + " must be " + length + " bytes, received " + count);
+            }
+            if (!MessageDigest.isEqual(digest.digest(), expected)) {
+                throw new RuntimeException("Checksum mismatch for chunk " + index);
+            }
+            written = true;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write chunk " + index, e);
+        } finally {
+            synchronized (upload) {
+                upload.inFlight.clear(index);
+                if (written) {
+                    upload.received.set(index);
+                }
+            }
+            upload.lastActivity = Instant.now();
+        }
+        return toDTO(upload);
+    }
+
+    @Override
+    public String completeUpload(String uploadId, String subDirectory) {
+        Upload upload = find(uploadId);
+        synchronized (upload) {
+            if (upload.discarded) {
+                throw new RuntimeException("Upload not found");
+            }
+            if (upload.completing) {
+                throw new RuntimeException("Upload is already being completed");
+            }
+            if (!upload.inFlight.isEmpty()) {
+                throw new RuntimeException("Chunks are still being uploaded");
+            }
+            int missing = upload.chunkCount - upload.received.cardinality();
+            if (missing > 0) {
+                throw new RuntimeException(missing + " chunk(s) missing");
+            }
+            upload.completing = true;
+        }
+        String filePath;
+        try {
+            filePath = fileStorageService.storeFile(upload.file, upload.fileName, subDirectory);
+        } catch (RuntimeException e) {
+            synchronized (upload) {
+                upload.completing = false;
+            }
+            throw e;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            uploads.remove(uploadId);
+            return filePath;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    uploads.remove(uploadId);
+                } else {
+                    restore(upload, filePath);
+                }
+            }
+        });
+        return filePath;
+    }
+
+    /** Puts a file stored by a rolled back transaction back into its session and out of storage. */
+    private void restore(Upload upload, String filePath) {
+        int slash = filePath.lastIndexOf('/');
+        String fileName = filePath.substring(slash + 1);
+        String subDirectory = filePath.substring(0, slash);
+        try {
+            // A copy: with deduplicating storage the stored file may be shared with earlier uploads
+            Files.copy(fileStorageService.getFilePath(fileName, subDirectory), upload.file, StandardCopyOption.REPLACE_EXISTING);
+            synchronized (upload) {
+                upload.completing = false;
+            }
+            upload.lastActivity = Instant.now();
+        } catch (IOException e) {
+            log.warn("Could not restore upload {} of {}: {}", upload.id, upload.fileName, e.getMessage());
+            synchronized (upload) {
+                upload.discarded = true;
+            }
+            uploads.remove(upload.id);
+            deleteQuietly(upload.file);
+        }
+        try {
+            fileStorageService.deleteFile(fileName, subDirectory);
+        } catch (RuntimeException e) {
+            log.warn("Could not delete {} after rollback: {}", filePath, e.getMessage());
+        }
+    }
+
+    @Override
+    public void cancelUpload(String uploadId) {
+        Upload upload = uploads.get(uploadId);
+        if (upload == null) {
+            return;
+        }
+        synchronized (upload) {
+            if (upload.completing) {
+                throw new RuntimeException("Upload is being completed");
+            }
+            if (!upload.inFlight.isEmpty()) {
+                throw new RuntimeException("Chunks are still being uploaded");
+            }
+            upload.discarded = true;
+        }
+        uploads.remove(uploadId);
+        deleteQuietly(upload.file);
+    }
+
+    @Scheduled(fixedRate = 60 * 60 * 1000)
+    public void purgeExpired() {
+        Instant limit = Instant.now().minus(expiry);
+        uploads.values().removeIf(upload -> {
+            synchronized (upload) {
+                if (upload.completing || !upload.inFlight.isEmpty() || upload.lastActivity.isAfter(limit)) {
+                    return false;
+                }
+                upload.discarded = true;
+            }
+            log.debug("Upload {} of {} expired", upload.id, upload.fileName);
+            deleteQuietly(upload.file);
+            return true;
+        });
+    }
+
+    private Upload find(String uploadId) {
+        Upload upload = uploads.get(uploadId);
+        if (upload == null) {
+            throw new RuntimeException("Upload not found");
+        }
+        return upload;
+    }
+
+    private UploadSessionDTO toDTO(Upload upload) {
+        List<Integer> missing = new ArrayList<>();
+        int received;
+        synchronized (upload) {
+            for (int i = upload.received.nextClearBit(0); i < upload.chunkCount; i = upload.received.nextClearBit(i + 1)) {
+                missing.add(i);
+            }
+            received = upload.received.cardinality();
+        }
+        return UploadSessionDTO.builder()
+                .uploadId(upload.id)
+                .fileName(upload.fileName)
+                .size(upload.size)
+                .chunkSize(upload.chunkSize)
+                .chunkCount(upload.chunkCount)
+                .receivedChunks(received)
+                .missingChunks(missing)
+                .expiresAt(LocalDateTime.ofInstant(upload.lastActivity.plus(expiry), ZoneId.systemDefault()))
+                .build();
+    }
+
+    /** The sha-256 member of a Content-Digest header. */
+    private static byte[] sha256(String contentDigest) {
+        int start = contentDigest != null ? contentDigest.indexOf(SHA_256) : -1;
+        int end = start >= 0 ? contentDigest.indexOf(':', start + SHA_256.length()) : -1;
+        if (end < 0) {
+            throw new RuntimeException("A Content-Digest header with a sha-256 checksum is required");
+        }
+        try {
+            return Base64.getDecoder().decode(contentDigest.substring(start + SHA_256.length(), end));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Invalid sha-256 checksum in Content-Digest header");
+        }
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void deleteParts(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> parts = Files.list(directory)) {
+            parts.forEach(ChunkedUploadManager::deleteQuietly);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete {}: {}", file, e.getMessage());
+        }
+    }
+}
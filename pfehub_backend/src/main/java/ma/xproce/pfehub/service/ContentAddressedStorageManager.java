@@ -0,0 +1,246 @@
+package ma.xproce.pfehub.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.xproce.pfehub.dao.repositories.LivrableRepository;
+import ma.xproce.pfehub.dao.repositories.PfeRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.UrlResource;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * Storage keeping each distinct content once. Files are named after the SHA-256 of their bytes,
+ * computed while they are written, plus their extension (which drives the content type when
+ * served), and kept under {@code blobs/ab/cd/<hash><ext>}, so a PDF uploaded again costs no disk.
+ * The stored path is {@code blobs/<hash><ext>} whatever sub-directory was asked for.
+ * A blob is reference-counted from {@code Livrable.fileUrl} and {@code PFE.proposalFilePath}: deleting
+ * it only removes the file once no deliverable or project refers to it any more.
+ * Paths written by {@link FileStorageManager} ("proposals/&lt;uuid&gt;.pdf") are still served until
+ * {@link StorageMigrationJob} moves them into the blob store.
+ * Enabled with {@code file.storage=content-addressed}.
+ */
+@Service
+@ConditionalOnProperty(name = "file.storage", havingValue = "content-addressed")
+@RequiredArgsConstructor
+@Slf4j
+public class ContentAddressedStorageManager implements IFileStorageService {
+
+    static final String BLOBS = "blobs";
+
+    private static final Pattern BLOB_NAME = Pattern.compile("[0-9a-f]{64}(\\.[A-Za-z0-9]{1,10})?");
+    private static final Pattern EXTENSION = Pattern.compile("[A-Za-z0-9]{1,10}");
+    private static final int LOCK_STRIPES = 64;
+    // A blob stored this recently may have a reference in a transaction that hasn't committed yet
+    private static final Duration DELETE_GRACE = Duration.ofMinutes(5);
+
+    private final LivrableRepository livrableRepository;
+    private final PfeRepository pfeRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${file.upload-dir:./uploads}")
+    private String uploadDir;
+
+    private Path rootLocation;
+    private Path blobLocation;
+    private Path tempLocation;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    /** Where a content ended up, and whether it was new to the store. */
+    record Blob(String path, boolean created) {
+    }
+
+    @PostConstruct
+    public void init() {
+        rootLocation = Paths.get(uploadDir).normalize().toAbsolutePath();
+        blobLocation = rootLocation.resolve(BLOBS);
+        tempLocation = rootLocation.resolve(".tmp");
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        try {
+            Files.createDirectories(blobLocation);
+            Files.createDirectories(tempLocation);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not initialize storage location", e);
+        }
+    }
+
+    @Override
+    public String storeFile(MultipartFile file, String subDirectory) {
+        if (file.isEmpty()) {
+            throw new RuntimeException("Failed to store empty file");
+        }
+        try (InputStream in = file.getInputStream()) {
+            return store(in, file.getOriginalFilename()).path();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to store file", e);
+        }
+    }
+
+    @Override
+    public String storeFile(Path source, String originalFilename, String subDirectory) {
+        try {
+            // The file is already on disk: one read pass to hash it, then a rename
+            MessageDigest digest = newSha256();
+            try (InputStream in = new DigestInputStream(Files.newInputStream(source), digest)) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            return intern(source, HexFormat.of().formatHex(digest.digest()), extension(originalFilename)).path();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to store file", e);
+        }
+    }
+
+    /** Copies a content into the store, hashing it on the way. */
+    Blob store(InputStream in, String originalFilename) throws IOException {
+        Path temp = Files.createTempFile(tempLocation, "upload-", ".tmp");
+        try {
+            MessageDigest digest = newSha256();
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(temp), digest)) {
+                in.transferTo(out);
+            }
+            return intern(temp, HexFormat.of().formatHex(digest.digest()), extension(originalFilename));
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /** Moves {@code source} to the blob of its hash, or drops it when that blob already exists. */
+    private Blob intern(Path source, String hash, String extension) throws IOException {
+        String fileName = hash + extension;
+        Path blob = blobPath(fileName);
+        synchronized (lock(fileName)) {
+            if (Files.exists(blob)) {
+                Files.delete(source);
+                // Restarts the delete grace period for the new reference
+                Files.setLastModifiedTime(blob, FileTime.from(Instant.now()));
+                return new Blob(BLOBS + "/" + fileName, false);
+            }
+            Files.createDirectories(blob.getParent());
+            try {
+                Files.move(source, blob, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(source, blob, StandardCopyOption.REPLACE_EXISTING);
+            }
+            eventPublisher.publishEvent(new StoredFileEvent(BLOBS + "/" + fileName, blob, false));
+            return new Blob(BLOBS + "/" + fileName, true);
+        }
+    }
+
+    @Override
+    public Resource loadFileAsResource(String fileName, String subDirectory) {
+        try {
+            Resource resource = new UrlResource(getFilePath(fileName, subDirectory).toUri());
+
+            if (resource.exists() && resource.isReadable()) {
+                return resource;
+            } else {
+                throw new RuntimeException("Could not read file: " + fileName);
+            }
+        } catch (MalformedURLException e) {
+            throw new RuntimeException("Could not read file: " + fileName, e);
+        }
+    }
+
+    @Override
+    public void deleteFile(String fileName, String subDirectory) {
+        try {
+            if (!BLOBS.equals(subDirectory)) {
+                Path file = legacyPath(fileName, subDirectory);
+                if (Files.deleteIfExists(file)) {
+                    eventPublisher.publishEvent(new StoredFileEvent(subDirectory + "/" + fileName, file, true));
+                }
+                return;
+            }
+            Path blob = blobPath(fileName);
+            String path = BLOBS + "/" + fileName;
+            synchronized (lock(fileName)) {
+                if (!Files.exists(blob)) {
+                    return;
+                }
+                long references = livrableRepository.countByFileUrl(path) + pfeRepository.countByProposalFilePath(path);
+                if (references > 0) {
+                    log.debug("Keeping {}: still referenced {} time(s)", path, references);
+                    return;
+                }
+                if (Files.getLastModifiedTime(blob).toInstant().isAfter(Instant.now().minus(DELETE_GRACE))) {
+                    log.debug("Keeping {}: stored again less than {} ago", path, DELETE_GRACE);
+                    return;
+                }
+                Files.delete(blob);
+            }
+            eventPublisher.publishEvent(new StoredFileEvent(path, blob, true));
+        } catch (IOException e) {
+            throw new RuntimeException("Could not delete file: " + fileName, e);
+        }
+    }
+
+    @Override
+    public Path getFilePath(String fileName, String subDirectory) {
+        return BLOBS.equals(subDirectory) ? blobPath(fileName) : legacyPath(fileName, subDirectory);
+    }
+
+    @Override
+    public boolean fileExists(String fileName, String subDirectory) {
+        return Files.exists(getFilePath(fileName, subDirectory));
+    }
+
+    /** blobs/ab/cd/abcd...: two levels of 256 directories keep each directory small. */
+    private Path blobPath(String fileName) {
+        if (!BLOB_NAME.matcher(fileName).matches()) {
+            throw new RuntimeException("Invalid file name: " + fileName);
+        }
+        return blobLocation.resolve(fileName.substring(0, 2)).resolve(fileName.substring(2, 4)).resolve(fileName);
+    }
+
+    /** A file written by {@link FileStorageManager}, not migrated yet. */
+    Path legacyPath(String fileName, String subDirectory) {
+        Path filePath = rootLocation.resolve(subDirectory).resolve(fileName).normalize();
+        if (!filePath.startsWith(rootLocation) || filePath.startsWith(blobLocation) || filePath.startsWith(tempLocation)) {
+            throw new RuntimeException("Cannot access file outside current directory");
+        }
+        return filePath;
+    }
+
+    private Object lock(String fileName) {
+        return locks[Math.floorMod(fileName.hashCode(), LOCK_STRIPES)];
+    }
+
+    private static String extension(String originalFilename) {
+        String extension = StringUtils.getFilenameExtension(StringUtils.cleanPath(originalFilename != null ? originalFilename : ""));
+        return extension != null && EXTENSION.matcher(extension).matches() ? "." + extension : "";
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,455 @@
+package ma.xproce.pfehub.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.xproce.pfehub.dao.entities.*;
+import ma.xproce.pfehub.dao.repositories.*;
+import ma.xproce.pfehub.web.dto.DepartmentProjectCountDTO;
+import ma.xproce.pfehub.web.dto.ProjectStatusCountDTO;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Materialized read model behind the admin dashboard: counters and the latest submissions.
+ * Loaded once at startup, then kept current from Hibernate insert/update/delete events: each
+ * event is turned into counter deltas (using the entity's previous state) that are applied when
+ * the transaction commits, so rolled-back writes never show up. Projects, defenses and users carry
+ * a {@code @Version}: of two transactions changing the same row from the same previous state, the
+ * second fails at commit, so a change is never counted twice. A transaction holds a shared lock
+ * from its first write until its deltas are applied, and a {@link #rebuild()} takes it exclusively,
+ * so a commit is either in what the rebuild reads or applied on top of it, never both.
+ * Deltas only use the entity state and ids (students' departments are kept here), never lazy
+ * associations, which would be loaded in the middle of a flush.
+ * Readers get an immutable {@link Snapshot} whose version changes with every committed write it
+ * shows; every new snapshot is also published as an application event.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DashboardStats implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final AppUserRepository appUserRepository;
+    private final PfeRepository pfeRepository;
+    private final SoutenanceRepository soutenanceRepository;
+    private final DepartementRepository departementRepository;
+    private final EtudiantRepository etudiantRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PlatformTransactionManager transactionManager;
+
+    private static final int RECENT_SUBMISSIONS = 5;
+
+    private final ReentrantReadWriteLock commits = new ReentrantReadWriteLock();
+    // A transaction nested in another one of the same thread can't take the lock exclusively: its rebuild waits for the outer one
+    private final ThreadLocal<Boolean> rebuildRequested = ThreadLocal.withInitial(() -> false);
+
+    // Mutable state, only touched while holding the monitor
+    private final Map<UserRole, Long> usersByRole = new EnumMap<>(UserRole.class);
+    private final Map<PFEStatus, Long> projectsByStatus = new EnumMap<>(PFEStatus.class);
+    private final Map<Long, Long> projectsByDepartementId = new HashMap<>();
+    private final Map<Long, String> departementNames = new HashMap<>();
+    private final Map<Long, Long> departementIdByStudent = new HashMap<>();
+    private final Map<Long, Long> projectsByStudent = new HashMap<>();
+    private final Map<SoutenanceStatus, Long> defensesByStatus = new EnumMap<>(SoutenanceStatus.class);
+    private final NavigableMap<LocalDate, Long> validatedDefensesByDate = new TreeMap<>();
+    private List<PFE> recentSubmissions = List.of();
+    private long version;
+
+    private volatile Snapshot snapshot = new Snapshot(0, 0, 0, Map.of(), Map.of(), Map.of(), new TreeMap<>(), List.of());
+
+    public record Snapshot(long version,
+                           long students,
+                           long professors,
+                           Map<PFEStatus, Long> projectsByStatus,
+                           Map<String, Long> projectsByDepartment,
+                           Map<SoutenanceStatus, Long> defensesByStatus,
+                           NavigableMap<LocalDate, Long> validatedDefensesByDate,
+                           List<PFE> recentSubmissions) {
+
+        public long activeProjects() {
+            long total = projectsByStatus.values().stream().mapToLong(Long::longValue).sum();
+            return total - projectsByStatus.getOrDefault(PFEStatus.EVALUE, 0L);
+        }
+
+        public long upcomingDefenses(LocalDate fromDate) {
+            return validatedDefensesByDate.tailMap(fromDate, true).values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        public long defensesWithStatus(SoutenanceStatus status) {
+            return defensesByStatus.getOrDefault(status, 0L);
+        }
+
+        public List<ProjectStatusCountDTO> projectsByStatusList() {
+            return projectsByStatus.entrySet().stream()
+                    .map(e -> new ProjectStatusCountDTO(e.getKey(), e.getValue()))
+                    .toList();
+        }
+
+        public List<DepartmentProjectCountDTO> projectsByDepartmentList() {
+            return projectsByDepartment.entrySet().stream()
+                    .map(e -> new DepartmentProjectCountDTO(e.getKey(), e.getValue()))
+                    .toList();
+        }
+
+        /** Upcoming defenses depend on the current date, so the day is part of the tag. */
+        public String etag(LocalDate today) {
+            return "\"" + version + "-" + today.toEpochDay() + "\"";
+        }
+    }
+
+    @PostConstruct
+    public void registerListeners() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        // Waits for the transactions whose writes are not applied yet, and holds new ones back until the swap
+        commits.writeLock().lock();
+        try {
+            synchronized (this) {
+                load();
+                log.info("Dashboard counters loaded (version {})", version);
+            }
+        } finally {
+            commits.writeLock().unlock();
+        }
+    }
+
+    private void load() {
+        usersByRole.clear();
+        projectsByStatus.clear();
+        projectsByDepartementId.clear();
+        departementNames.clear();
+        departementIdByStudent.clear();
+        projectsByStudent.clear();
+        defensesByStatus.clear();
+        validatedDefensesByDate.clear();
+
+        for (Object[] row : appUserRepository.countByRoleGrouped()) {
+            usersByRole.put((UserRole) row[0], (Long) row[1]);
+        }
+        for (Object[] row : pfeRepository.countByStatusGrouped()) {
+            projectsByStatus.put((PFEStatus) row[0], (Long) row[1]);
+        }
+        for (Object[] row : etudiantRepository.findDepartementIdsAndProjectCounts()) {
+            Long studentId = (Long) row[0];
+            Long departementId = (Long) row[1];
+            long projects = (Long) row[2];
+            departementIdByStudent.put(studentId, departementId);
+            if (projects > 0) {
+                projectsByStudent.put(studentId, projects);
+                if (departementId != null) {
+                    projectsByDepartementId.merge(departementId, projects, Long::sum);
+                }
+            }
+        }
+        for (Departement departement : departementRepository.findAll()) {
+            departementNames.put(departement.getId(), departement.getName());
+        }
+        for (Object[] row : soutenanceRepository.countByStatusGrouped()) {
+            defensesByStatus.put((SoutenanceStatus) row[0], (Long) row[1]);
+        }
+        for (Object[] row : soutenanceRepository.countValidatedByFinalDate()) {
+            validatedDefensesByDate.put((LocalDate) row[0], (Long) row[1]);
+        }
+        recentSubmissions = loadRecentSubmissions();
+        publish();
+    }
+
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    // ============= Hibernate events =============
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        record(event.getEntity(), delta(event.getEntity(), event.getPersister(), null, event.getState()));
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getOldState() == null) {
+            // Previous state unknown (detached update): recount instead of guessing
+            PendingChanges pending = pending();
+            if (pending != null) {
+                pending.rebuild = true;
+            } else {
+                requestRebuild();
+            }
+            return;
+        }
+        record(event.getEntity(), delta(event.getEntity(), event.getPersister(), event.getOldState(), event.getState()));
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        record(event.getEntity(), delta(event.getEntity(), event.getPersister(), event.getDeletedState(), null));
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    /**
+     * Counter changes for one entity going from {@code before} to {@code after}
+     * (null for an insert or a delete respectively). Computed at flush time, applied on commit.
+     */
+    private Runnable delta(Object entity, EntityPersister persister, Object[] before, Object[] after) {
+        String[] properties = persister.getPropertyNames();
+
+        if (entity instanceof PFE) {
+            PFEStatus from = (PFEStatus) value(properties, before, "status");
+            PFEStatus to = (PFEStatus) value(properties, after, "status");
+            Long studentId = id(value(properties, after != null ? after : before, "etudiant"));
+            return () -> {
+                move(projectsByStatus, from, to);
+                if (studentId != null && (from == null || to == null)) {
+                    long count = from == null ? 1 : -1;
+                    projectsByStudent.merge(studentId, count, (a, b) -> a + b == 0 ? null : a + b);
+                    Long departementId = departementIdByStudent.get(studentId);
+                    if (departementId != null) {
+                        projectsByDepartementId.merge(departementId, count, Long::sum);
+                    }
+                }
+            };
+        }
+        if (entity instanceof AppUser user) {
+            UserRole from = (UserRole) value(properties, before, "role");
+            UserRole to = (UserRole) value(properties, after, "role");
+            Long studentId = user instanceof Etudiant ? id(user) : null;
+            Long fromDepartementId = id(value(properties, before, "departement"));
+            Long toDepartementId = id(value(properties, after, "departement"));
+            return () -> {
+                move(usersByRole, from, to);
+                if (studentId == null) {
+                    return;
+                }
+                if (after == null) {
+                    departementIdByStudent.remove(studentId);
+                    return;
+                }
+                departementIdByStudent.put(studentId, toDepartementId);
+                // A student changing department carries their project along
+                long projects = projectsByStudent.getOrDefault(studentId, 0L);
+                if (before != null && projects > 0 && !Objects.equals(fromDepartementId, toDepartementId)) {
+                    if (fromDepartementId != null) {
+                        projectsByDepartementId.merge(fromDepartementId, -projects, Long::sum);
+                    }
+                    if (toDepartementId != null) {
+                        projectsByDepartementId.merge(toDepartementId, projects, Long::sum);
+                    }
+                }
+            };
+        }
+        if (entity instanceof Soutenance) {
+            SoutenanceStatus fromStatus = (SoutenanceStatus) value(properties, before, "status");
+            SoutenanceStatus toStatus = (SoutenanceStatus) value(properties, after, "status");
+            LocalDate from = validatedDate(properties, before);
+            LocalDate to = validatedDate(properties, after);
+            return () -> {
+                move(defensesByStatus, fromStatus, toStatus);
+                move(validatedDefensesByDate, from, to);
+            };
+        }
+        if (entity instanceof Departement departement) {
+            Long id = departement.getId();
+            String name = after != null ? (String) value(properties, after, "name") : null;
+            return () -> {
+                if (name != null) {
+                    departementNames.put(id, name);
+                } else {
+                    departementNames.remove(id);
+                }
+            };
+        }
+        return null;
+    }
+
+    /** Whether the recent submissions, rendered with {@code PFE.detail}, can show this entity. */
+    private static boolean shownInRecentSubmissions(Object entity) {
+        return entity instanceof PFE || entity instanceof AppUser || entity instanceof Soutenance
+                || entity instanceof Departement || entity instanceof Specialite || entity instanceof AnneeUniversitaire;
+    }
+
+    private void record(Object entity, Runnable change) {
+        boolean recent = shownInRecentSubmissions(entity);
+        if (change == null && !recent) {
+            return;
+        }
+        PendingChanges pending = pending();
+        if (pending == null) {
+            commits.readLock().lock();
+            try {
+                apply(change != null ? List.of(change) : List.of(), recent);
+            } finally {
+                commits.readLock().unlock();
+            }
+            return;
+        }
+        if (change != null) {
+            pending.changes.add(change);
+        }
+        pending.recentSubmissionsChanged |= recent;
+    }
+
+    /** The changes of the current transaction, registered (and the shared lock taken) on its first write. */
+    private PendingChanges pending() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingChanges pending) {
+                return pending;
+            }
+        }
+        commits.readLock().lock();
+        PendingChanges pending = new PendingChanges();
+        TransactionSynchronizationManager.registerSynchronization(pending);
+        return pending;
+    }
+
+    private final class PendingChanges implements TransactionSynchronization {
+
+        private final List<Runnable> changes = new ArrayList<>();
+        private boolean recentSubmissionsChanged;
+        private boolean rebuild;
+
+        @Override
+        public void afterCompletion(int status) {
+            boolean committed = status == STATUS_COMMITTED;
+            try {
+                if (committed && !rebuild) {
+                    apply(changes, recentSubmissionsChanged);
+                }
+            } finally {
+                commits.readLock().unlock();
+            }
+            if (committed && rebuild) {
+                requestRebuild();
+            } else if (rebuildRequested.get() && commits.getReadHoldCount() == 0) {
+                rebuildRequested.remove();
+                rebuild();
+            }
+        }
+    }
+
+    private void requestRebuild() {
+        if (commits.getReadHoldCount() > 0) {
+            rebuildRequested.set(true);
+            return;
+        }
+        rebuildRequested.remove();
+        rebuild();
+    }
+
+    private synchronized void apply(List<Runnable> changes, boolean recentSubmissionsChanged) {
+        changes.forEach(Runnable::run);
+        if (recentSubmissionsChanged) {
+            recentSubmissions = loadRecentSubmissions();
+        }
+        publish();
+    }
+
+    // In a transaction of its own: this runs after the writing transaction has completed
+    private List<PFE> loadRecentSubmissions() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transaction.setReadOnly(true);
+        return List.copyOf(transaction.execute(status ->
+                pfeRepository.findRecentSubmissions(PageRequest.of(0, RECENT_SUBMISSIONS))));
+    }
+
+    /** Called with the monitor held, so snapshots are published in version order. */
+    private void publish() {
+        Map<String, Long> byDepartment = new TreeMap<>();
+        projectsByDepartementId.forEach((id, count) -> {
+            String name = departementNames.get(id);
+            if (name != null && count > 0) {
+                byDepartment.merge(name, count, Long::sum);
+            }
+        });
+        Map<PFEStatus, Long> byStatus = new EnumMap<>(PFEStatus.class);
+        projectsByStatus.forEach((status, count) -> {
+            if (count > 0) {
+                byStatus.put(status, count);
+            }
+        });
+        Map<SoutenanceStatus, Long> byDefenseStatus = new EnumMap<>(SoutenanceStatus.class);
+        defensesByStatus.forEach((status, count) -> {
+            if (count > 0) {
+                byDefenseStatus.put(status, count);
+            }
+        });
+        version++;
+        snapshot = new Snapshot(version,
+                usersByRole.getOrDefault(UserRole.ETUDIANT, 0L),
+                usersByRole.getOrDefault(UserRole.ENCADRANT, 0L),
+                Collections.unmodifiableMap(byStatus),
+                Collections.unmodifiableMap(byDepartment),
+                Collections.unmodifiableMap(byDefenseStatus),
+                Collections.unmodifiableNavigableMap(new TreeMap<>(validatedDefensesByDate)),
+                recentSubmissions);
+        eventPublisher.publishEvent(snapshot);
+    }
+
+    private static <K> void move(Map<K, Long> counters, K from, K to) {
+        if (Objects.equals(from, to)) {
+            return;
+        }
+        if (from != null) {
+            counters.merge(from, -1L, Long::sum);
+        }
+        if (to != null) {
+            counters.merge(to, 1L, Long::sum);
+        }
+    }
+
+    private static Object value(String[] properties, Object[] state, String property) {
+        if (state == null) {
+            return null;
+        }
+        for (int i = 0; i < properties.length; i++) {
+            if (properties[i].equals(property)) {
+                return state[i];
+            }
+        }
+        return null;
+    }
+
+    private static LocalDate validatedDate(String[] properties, Object[] state) {
+        return value(properties, state, "status") == SoutenanceStatus.VALIDEE
+                ? (LocalDate) value(properties, state, "finalDate")
+                : null;
+    }
+
+    /** The id of an entity or of a proxy, without initializing the proxy. */
+    private Long id(Object entity) {
+        return entity != null ? (Long) entityManagerFactory.getPersistenceUnitUtil().getIdentifier(entity) : null;
+    }
+}
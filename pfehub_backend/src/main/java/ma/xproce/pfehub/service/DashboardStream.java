@@ -0,0 +1,265 @@
+package ma.xproce.pfehub.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.xproce.pfehub.dao.entities.SoutenanceStatus;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Server-Sent Events feed of the dashboard counters.
+ * A new subscriber first receives a "snapshot" event with every counter, then a "delta" event with
+ * only the counters that changed each time {@link DashboardStats} publishes a new snapshot.
+ * Idle connections hold no thread. A signalled subscriber is queued once, however many changes
+ * arrive before it is served, and a small fixed pool of senders works through the queue; changes
+ * that arrive while a slow client is still being written to are folded into its next delta, so
+ * memory per subscriber stays constant however far behind it falls, and nothing signalled is lost
+ * when every sender is busy: it waits in the queue.
+ * A send blocks its sender while the client's TCP window is full. A subscriber whose send is still
+ * blocked after {@link #SEND_TIMEOUT} is dropped and its stream completed; the sender comes back
+ * when the container's write timeout fails the write.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DashboardStream {
+
+    private static final long TIMEOUT = Duration.ofMinutes(30).toMillis();
+    private static final Duration SEND_TIMEOUT = Duration.ofSeconds(10);
+    private static final int SENDERS = 8;
+
+    private final DashboardStats dashboardStats;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private volatile Frame current;
+    // The ready queue is the pool's own (unbounded) queue
+    private ThreadPoolTaskExecutor senders;
+    // Completes dropped streams: completing waits for the blocked send, at most one per sender
+    private ThreadPoolTaskExecutor closer;
+
+    /** Counters as sent to the clients, computed once per snapshot and day. */
+    private record Frame(long version, LocalDate day, Map<String, Object> counters) {
+
+        boolean sameAs(Frame other) {
+            return version == other.version && day.equals(other.day);
+        }
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter = new SseEmitter(TIMEOUT);
+        // Set while queued or being served
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean heartbeatDue;
+        // System.nanoTime() when the send in flight started, 0 when none is
+        private volatile long sendingSince;
+        // Only touched by the drain task, which never runs twice at once for a subscriber
+        private Frame sent;
+    }
+
+    @PostConstruct
+    public void init() {
+        senders = pool("dashboard-stream-");
+        closer = pool("dashboard-stream-close-");
+    }
+
+    private static ThreadPoolTaskExecutor pool(String threadNamePrefix) {
+        ThreadPoolTaskExecutor pool = new ThreadPoolTaskExecutor();
+        pool.setCorePoolSize(SENDERS);
+        pool.setMaxPoolSize(SENDERS);
+        pool.setAllowCoreThreadTimeOut(true);
+        pool.setThreadNamePrefix(threadNamePrefix);
+        pool.initialize();
+        return pool;
+    }
+
+    @PreDestroy
+    public void close() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        senders.shutdown();
+        closer.shutdown();
+    }
+
+    public SseEmitter subscribe() {
+        Subscriber subscriber = new Subscriber();
+        subscriber.emitter.onCompletion(() -> subscribers.remove(subscriber));
+        subscriber.emitter.onTimeout(() -> subscribers.remove(subscriber));
+        subscriber.emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        signal(subscriber);
+        return subscriber.emitter;
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @EventListener
+    public void onSnapshot(DashboardStats.Snapshot snapshot) {
+        current = null;
+        subscribers.forEach(this::signal);
+    }
+
+    /** Keeps proxies from closing idle streams, finds dead clients and rolls upcoming defenses over at midnight. */
+    @Scheduled(fixedRate = 25_000)
+    public void heartbeat() {
+        subscribers.forEach(subscriber -> {
+            subscriber.heartbeatDue = true;
+            signal(subscriber);
+        });
+    }
+
+    /** Drops the subscribers whose send has been blocked past the deadline: nothing more is sent to them. */
+    @Scheduled(fixedRate = 1_000)
+    public void dropStalledSubscribers() {
+        long now = System.nanoTime();
+        subscribers.removeIf(subscriber -> {
+            long since = subscriber.sendingSince;
+            if (since == 0 || now - since < SEND_TIMEOUT.toNanos()) {
+                return false;
+            }
+            log.debug("Dropping dashboard subscriber: no write progress for {}", SEND_TIMEOUT);
+            // The client is behind: close the stream rather than resume it once the write returns
+            closer.execute(subscriber.emitter::complete);
+            return true;
+        });
+    }
+
+    private void signal(Subscriber subscriber) {
+        if (subscriber.scheduled.compareAndSet(false, true)) {
+            try {
+                senders.execute(() -> drain(subscriber));
+            } catch (TaskRejectedException e) {
+                // Shutting down; the subscriber stays flagged, nothing more is sent
+                log.debug("Dashboard subscriber not signalled: {}", e.getMessage());
+            }
+        }
+    }
+
+    /** Brings one subscriber up to date, then goes back to the end of the queue if it changed meanwhile. */
+    private void drain(Subscriber subscriber) {
+        if (!subscribers.contains(subscriber)) {
+            return;
+        }
+        try {
+            Frame latest = frame();
+            if (subscriber.sent == null) {
+                send(subscriber, SseEmitter.event()
+                        .id(String.valueOf(latest.version()))
+                        .name("snapshot")
+                        .data(latest.counters(), MediaType.APPLICATION_JSON));
+            } else if (!latest.sameAs(subscriber.sent)) {
+                Map<String, Object> changes = diff(subscriber.sent.counters(), latest.counters());
+                if (!changes.isEmpty()) {
+                    subscriber.heartbeatDue = false;
+                    send(subscriber, SseEmitter.event()
+                            .id(String.valueOf(latest.version()))
+                            .name("delta")
+                            .data(changes, MediaType.APPLICATION_JSON));
+                }
+            }
+            subscriber.sent = latest;
+            if (subscriber.heartbeatDue) {
+                subscriber.heartbeatDue = false;
+                send(subscriber, SseEmitter.event().comment("keep-alive"));
+            }
+            subscriber.scheduled.set(false);
+            // Re-check after releasing the flag: a signal may have been folded into the send that just ended
+            if (!frame().sameAs(subscriber.sent) || subscriber.heartbeatDue) {
+                signal(subscriber);
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Dropping dashboard subscriber: {}", e.getMessage());
+            subscribers.remove(subscriber);
+            subscriber.emitter.completeWithError(e);
+        }
+    }
+
+    private void send(Subscriber subscriber, SseEmitter.SseEventBuilder event) throws IOException {
+        if (!subscribers.contains(subscriber)) {
+            // Dropped during an earlier send of this drain: don't write to the stalled connection again
+            return;
+        }
+        subscriber.sendingSince = System.nanoTime();
+        try {
+            subscriber.emitter.send(event);
+        } finally {
+            subscriber.sendingSince = 0;
+        }
+    }
+
+    private Frame frame() {
+        Frame frame = current;
+        LocalDate today = LocalDate.now();
+        DashboardStats.Snapshot snapshot = dashboardStats.snapshot();
+        if (frame == null || frame.version() != snapshot.version() || !frame.day().equals(today)) {
+            // Racing threads may each build an equal frame; frames are immutable, so either one wins
+            frame = new Frame(snapshot.version(), today, counters(snapshot, today));
+            current = frame;
+        }
+        return frame;
+    }
+
+    private static Map<String, Object> counters(DashboardStats.Snapshot snapshot, LocalDate today) {
+        Map<String, Object> counters = new LinkedHashMap<>();
+        counters.put("version", snapshot.version());
+        counters.put("totalStudents", snapshot.students());
+        counters.put("totalProfessors", snapshot.professors());
+        counters.put("activeProjects", snapshot.activeProjects());
+        counters.put("upcomingDefenses", snapshot.upcomingDefenses(today));
+        counters.put("pendingDefenses", snapshot.defensesWithStatus(SoutenanceStatus.PROPOSEE));
+        counters.put("validatedDefenses", snapshot.defensesWithStatus(SoutenanceStatus.VALIDEE));
+        Map<String, Long> byStatus = new TreeMap<>();
+        snapshot.projectsByStatus().forEach((status, count) -> byStatus.put(status.name(), count));
+        counters.put("projectsByStatus", byStatus);
+        counters.put("projectsByDepartment", snapshot.projectsByDepartment());
+        return counters;
+    }
+
+    /**
+     * Counters whose value differs, with their new value. For the per-status and per-department
+     * maps only the changed entries are included, a vanished entry being sent as 0.
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> diff(Map<String, Object> before, Map<String, Object> after) {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : after.entrySet()) {
+            Object previous = before.get(entry.getKey());
+            if (entry.getKey().equals("version") || Objects.equals(previous, entry.getValue())) {
+                continue;
+            }
+            if (entry.getValue() instanceof Map<?, ?> counts) {
+                Map<String, Long> old = (Map<String, Long>) previous;
+                Map<String, Long> changed = new TreeMap<>();
+                ((Map<String, Long>) counts).forEach((key, count) -> {
+                    if (!count.equals(old.get(key))) {
+                        changed.put(key, count);
+                    }
+                });
+                old.keySet().stream()
+                        .filter(key -> !counts.containsKey(key))
+                        .forEach(key -> changed.put(key, 0L));
+                changes.put(entry.getKey(), changed);
+            } else {
+                changes.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (!changes.isEmpty()) {
+            changes.put("version", after.get("version"));
+        }
+        return changes;
+    }
+}
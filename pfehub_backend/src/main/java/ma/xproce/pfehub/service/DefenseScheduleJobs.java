@@ -0,0 +1,154 @@
+package ma.xproce.pfehub.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import ma.xproce.pfehub.web.dto.DefenseScheduleJobDTO;
+import ma.xproce.pfehub.web.dto.ScheduledDefenseDTO;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs {@link DefenseTimetableSolver} in the background, one generation at a time, and keeps the
+ * jobs (progress, then result) in memory for an hour so the planning screen can poll them.
+ */
+@Component
+@Slf4j
+public class DefenseScheduleJobs {
+
+    private static final Duration RETENTION = Duration.ofHours(1);
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private ThreadPoolTaskExecutor executor;
+
+    /** A defense to place, with the professors on its jury. */
+    public record Candidate(Long projectId, String projectTitle, List<Long> juryProfessorIds) {
+    }
+
+    /**
+     * Everything the solver needs, already resolved from the database: the defenses, the rooms and
+     * slot start times of the grid, each defense's jury as professor indexes, the slots where each
+     * professor is already taken and the [slot][room] cells already booked.
+     */
+    public record Problem(List<Candidate> candidates,
+                          List<String> rooms,
+                          List<LocalDateTime> slotStarts,
+                          int[][] juries,
+                          BitSet[] professorBusy,
+                          boolean[][] roomBlocked) {
+    }
+
+    private static final class Job {
+        private final String id = UUID.randomUUID().toString();
+        private final Instant createdAt = Instant.now();
+        private final Problem problem;
+        private final AtomicInteger processed = new AtomicInteger();
+        private volatile DefenseScheduleJobDTO.Status status = DefenseScheduleJobDTO.Status.RUNNING;
+        private volatile DefenseTimetableSolver.Result result;
+        private volatile String error;
+
+        private Job(Problem problem) {
+            this.problem = problem;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(4);
+        executor.setThreadNamePrefix("defense-schedule-");
+        executor.initialize();
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdown();
+    }
+
+    public String start(Problem problem) {
+        Instant expiry = Instant.now().minus(RETENTION);
+        jobs.values().removeIf(job -> job.status != DefenseScheduleJobDTO.Status.RUNNING && job.createdAt.isBefore(expiry));
+
+        Job job = new Job(problem);
+        jobs.put(job.id, job);
+        try {
+            executor.execute(() -> run(job));
+        } catch (TaskRejectedException e) {
+            jobs.remove(job.id);
+            throw new RuntimeException("Too many schedule generations in progress, try again later");
+        }
+        return job.id;
+    }
+
+    public Optional<DefenseScheduleJobDTO> find(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(DefenseScheduleJobs::toDTO);
+    }
+
+    private void run(Job job) {
+        long start = System.nanoTime();
+        try {
+            Problem problem = job.problem;
+            job.result = DefenseTimetableSolver.solve(problem.juries(), problem.professorBusy(), problem.roomBlocked(),
+                    job.processed::set);
+            job.status = DefenseScheduleJobDTO.Status.COMPLETED;
+            log.info("Defense schedule {}: {}/{} defenses placed in {} ms", job.id, job.result.scheduled(),
+                    problem.candidates().size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.error("Defense schedule {} failed", job.id, e);
+            job.error = e.getMessage();
+            job.status = DefenseScheduleJobDTO.Status.FAILED;
+        }
+    }
+
+    private static DefenseScheduleJobDTO toDTO(Job job) {
+        int total = job.problem.candidates().size();
+        DefenseScheduleJobDTO.DefenseScheduleJobDTOBuilder dto = DefenseScheduleJobDTO.builder()
+                .jobId(job.id)
+                .status(job.status)
+                .totalDefenses(total)
+                .progress(total == 0 ? 100 : job.processed.get() * 100 / total)
+                .error(job.error);
+
+        DefenseTimetableSolver.Result result = job.result;
+        if (job.status == DefenseScheduleJobDTO.Status.COMPLETED && result != null) {
+            List<ScheduledDefenseDTO> schedule = new ArrayList<>();
+            List<Long> unscheduled = new ArrayList<>();
+            for (int d = 0; d < total; d++) {
+                Candidate candidate = job.problem.candidates().get(d);
+                if (result.timeSlots()[d] == DefenseTimetableSolver.UNSCHEDULED) {
+                    unscheduled.add(candidate.projectId());
+                    continue;
+                }
+                LocalDateTime slotStart = job.problem.slotStarts().get(result.timeSlots()[d]);
+                schedule.add(ScheduledDefenseDTO.builder()
+                        .projectId(candidate.projectId())
+                        .projectTitle(candidate.projectTitle())
+                        .room(job.problem.rooms().get(result.rooms()[d]))
+                        .date(slotStart.toLocalDate().toString())
+                        .time(slotStart.toLocalTime().toString())
+                        .juryProfessorIds(candidate.juryProfessorIds())
+                        .build());
+            }
+            dto.progress(100)
+                    .scheduledDefenses(result.scheduled())
+                    .schedule(schedule)
+                    .unscheduledProjectIds(unscheduled);
+        }
+        return dto.build();
+    }
+}
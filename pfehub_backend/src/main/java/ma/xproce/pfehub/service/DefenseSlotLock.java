@@ -0,0 +1,37 @@
+package ma.xproce.pfehub.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serializes the writes that book defense slots (proposals, validations, moves, jury changes and
+ * schedule applies). Their conflict checks read the room and jury indexes, which only change once
+ * the writing transaction has committed: the lock is taken before the checks and released when the
+ * transaction has completed, after the indexes are updated, so two writers never both pass their
+ * checks against indexes that miss the other one.
+ */
+@Component
+class DefenseSlotLock {
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** Takes the lock until the current transaction completes; does nothing if this transaction already holds it. */
+    void holdUntilCompletion() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Defense slots are only booked within a transaction");
+        }
+        if (lock.isHeldByCurrentThread()) {
+            return;
+        }
+        lock.lock();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                lock.unlock();
+            }
+        });
+    }
+}
@@ -0,0 +1,234 @@
+package ma.xproce.pfehub.service;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntConsumer;
+
+/**
+ * Places defenses on a grid of time slots x rooms so that no room hosts two defenses at once and
+ * no professor sits on two juries at once.
+ * Defenses are placed most-constrained first (fewest feasible time slots left, re-evaluated after
+ * every placement) at their earliest feasible slot. Defenses left without a slot are then repaired
+ * by moving one already placed defense out of the way when that frees a slot for them.
+ */
+public final class DefenseTimetableSolver {
+
+    public static final int UNSCHEDULED = -1;
+
+    private final int[][] juries;
+    private final BitSet[] professorBusy;
+    private final int timeSlots;
+    private final int rooms;
+    private final int[][] roomOwner;   // [slot][room]: defense index, UNSCHEDULED when free, BLOCKED when taken beforehand
+    private final int[] freeRooms;
+    private final BitSet fullSlots = new BitSet();
+    private final int[] slotOf;
+    private final int[] roomOf;
+
+    private static final int BLOCKED = -2;
+
+    public record Result(int[] timeSlots, int[] rooms, int scheduled) {
+    }
+
+    private DefenseTimetableSolver(int[][] juries, BitSet[] professorBusy, boolean[][] roomBlocked, int timeSlots, int rooms) {
+        this.juries = juries;
+        this.timeSlots = timeSlots;
+        this.rooms = rooms;
+        this.professorBusy = new BitSet[professorBusy.length];
+        for (int p = 0; p < professorBusy.length; p++) {
+            this.professorBusy[p] = (BitSet) professorBusy[p].clone();
+        }
+        roomOwner = new int[timeSlots][rooms];
+        freeRooms = new int[timeSlots];
+        for (int t = 0; t < timeSlots; t++) {
+            for (int r = 0; r < rooms; r++) {
+                roomOwner[t][r] = roomBlocked[t][r] ? BLOCKED : UNSCHEDULED;
+                if (!roomBlocked[t][r]) {
+                    freeRooms[t]++;
+                }
+            }
+            if (freeRooms[t] == 0) {
+                fullSlots.set(t);
+            }
+        }
+        slotOf = new int[juries.length];
+        roomOf = new int[juries.length];
+        Arrays.fill(slotOf, UNSCHEDULED);
+        Arrays.fill(roomOf, UNSCHEDULED);
+    }
+
+    /**
+     * @param juries        for every defense, the indexes of the professors on its jury (no duplicates)
+     * @param professorBusy for every professor, the time slots where they are already taken
+     * @param roomBlocked   [time slot][room]: true when the room is already booked
+     * @param progress      receives the number of defenses processed so far (placed or given up)
+     */
+    public static Result solve(int[][] juries, BitSet[] professorBusy, boolean[][] roomBlocked, IntConsumer progress) {
+        int timeSlots = roomBlocked.length;
+        int rooms = timeSlots == 0 ? 0 : roomBlocked[0].length;
+        return new DefenseTimetableSolver(juries, professorBusy, roomBlocked, timeSlots, rooms).run(progress);
+    }
+
+    private Result run(IntConsumer progress) {
+        int n = juries.length;
+        boolean[] done = new boolean[n];
+        BitSet feasible = new BitSet(timeSlots);
+
+        for (int step = 0; step < n; step++) {
+            int chosen = -1;
+            int fewest = Integer.MAX_VALUE;
+            for (int d = 0; d < n; d++) {
+                if (!done[d]) {
+                    int count = feasibleSlots(d, feasible).cardinality();
+                    if (count < fewest) {
+                        fewest = count;
+                        chosen = d;
+                    }
+                }
+            }
+            done[chosen] = true;
+            int slot = feasibleSlots(chosen, feasible).nextSetBit(0);
+            if (slot >= 0) {
+                place(chosen, slot, firstFreeRoom(slot));
+            }
+            progress.accept(step + 1);
+        }
+
+        int scheduled = 0;
+        for (int d = 0; d < n; d++) {
+            if (slotOf[d] == UNSCHEDULED) {
+                repair(d);
+            }
+            if (slotOf[d] != UNSCHEDULED) {
+                scheduled++;
+            }
+        }
+        return new Result(slotOf, roomOf, scheduled);
+    }
+
+    /** Time slots where every juror of {@code d} is free and a room is left. */
+    private BitSet feasibleSlots(int d, BitSet into) {
+        into.clear();
+        into.set(0, timeSlots);
+        into.andNot(fullSlots);
+        for (int professor : juries[d]) {
+            into.andNot(professorBusy[professor]);
+        }
+        return into;
+    }
+
+    /**
+     * Tries every slot where a single placed defense stands in the way of {@code d} (by sharing a juror,
+     * or by holding the last room) and moves that defense to another feasible slot.
+     */
+    private boolean repair(int d) {
+        BitSet feasible = new BitSet(timeSlots);
+        for (int t = 0; t < timeSlots; t++) {
+            int blocker = singleBlocker(d, t);
+            if (blocker < 0) {
+                continue;
+            }
+            int fromRoom = roomOf[blocker];
+            unplace(blocker);
+            if (!isFree(d, t)) {
+                place(blocker, t, fromRoom);
+                continue;
+            }
+            place(d, t, firstFreeRoom(t));
+            int target = feasibleSlots(blocker, feasible).nextSetBit(0);
+            if (target >= 0) {
+                place(blocker, target, firstFreeRoom(target));
+                return true;
+            }
+            unplace(d);
+            place(blocker, t, fromRoom);
+        }
+        return false;
+    }
+
+    /** The one placed defense keeping {@code d} out of slot {@code t}, or -1 if there are none or several. */
+    private int singleBlocker(int d, int t) {
+        int blocker = -1;
+        for (int professor : juries[d]) {
+            if (professorBusy[professor].get(t)) {
+                int owner = defenseOf(professor, t);
+                if (owner < 0 || (blocker >= 0 && owner != blocker)) {
+                    return -1; // Busy outside this schedule, or more than one defense to move
+                }
+                blocker = owner;
+            }
+        }
+        if (freeRooms[t] == 0 && blocker < 0) {
+            for (int r = 0; r < rooms; r++) {
+                if (roomOwner[t][r] >= 0) {
+                    return roomOwner[t][r];
+                }
+            }
+        }
+        return blocker;
+    }
+
+    private int defenseOf(int professor, int t) {
+        for (int r = 0; r < rooms; r++) {
+            int owner = roomOwner[t][r];
+            if (owner >= 0 && contains(juries[owner], professor)) {
+                return owner;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isFree(int d, int t) {
+        if (freeRooms[t] == 0) {
+            return false;
+        }
+        for (int professor : juries[d]) {
+            if (professorBusy[professor].get(t)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int firstFreeRoom(int t) {
+        for (int r = 0; r < rooms; r++) {
+            if (roomOwner[t][r] == UNSCHEDULED) {
+                return r;
+            }
+        }
+        throw new IllegalStateException("No free room in slot " + t);
+    }
+
+    private void place(int d, int t, int r) {
+        roomOwner[t][r] = d;
+        if (--freeRooms[t] == 0) {
+            fullSlots.set(t);
+        }
+        for (int professor : juries[d]) {
+            professorBusy[professor].set(t);
+        }
+        slotOf[d] = t;
+        roomOf[d] = r;
+    }
+
+    private void unplace(int d) {
+        int t = slotOf[d];
+        roomOwner[t][roomOf[d]] = UNSCHEDULED;
+        freeRooms[t]++;
+        fullSlots.clear(t);
+        for (int professor : juries[d]) {
+            professorBusy[professor].clear(t);
+        }
+        slotOf[d] = UNSCHEDULED;
+        roomOf[d] = UNSCHEDULED;
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int v : values) {
+            if (v == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
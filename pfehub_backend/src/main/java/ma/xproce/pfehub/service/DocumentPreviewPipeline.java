@@ -0,0 +1,207 @@
+package ma.xproce.pfehub.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.xproce.pfehub.dao.repositories.PfeRepository;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Renders a first-page thumbnail of each stored PDF and extracts its text, in the background once
+ * the upload is committed. Results are written next to the file ({@code <file>.thumb.png} and
+ * {@code <file>.txt}) and removed with it; the text of a project proposal is added to
+ * {@link ProjectSearchIndex}.
+ * Work goes through a small pool with a bounded queue: when it is full the file is skipped, and
+ * rendered on the first request for its preview instead.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentPreviewPipeline {
+
+    private static final String THUMBNAIL_SUFFIX = ".thumb.png";
+    private static final String TEXT_SUFFIX = ".txt";
+    // Enough for search, and keeps a 500-page thesis from costing minutes of CPU
+    private static final int MAX_TEXT_PAGES = 100;
+    private static final int MAX_TEXT_LENGTH = 200_000;
+
+    private final IFileStorageService fileStorageService;
+    private final PfeRepository pfeRepository;
+    private final ProjectSearchIndex projectSearchIndex;
+
+    @Value("${file.preview.workers:2}")
+    private int workers;
+
+    @Value("${file.preview.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${file.preview.thumbnail-width:320}")
+    private int thumbnailWidth;
+
+    private ThreadPoolTaskExecutor executor;
+    private final Set<Path> pending = ConcurrentHashMap.newKeySet();
+    // Files PDFBox could not read, not retried until the next restart
+    private final Set<Path> failed = ConcurrentHashMap.newKeySet();
+
+    public enum Kind { THUMBNAIL, TEXT }
+
+    public enum Status { READY, PENDING, UNAVAILABLE }
+
+    /** A preview lookup: {@code file} is set when the preview is READY. */
+    public record Preview(Status status, Path file) {
+    }
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("document-preview-");
+        executor.initialize();
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdown();
+    }
+
+    /** Runs once the transaction storing the file has committed, right away outside of one. */
+    @TransactionalEventListener(fallbackExecution = true, condition = "!#event.deleted")
+    public void onFileStored(StoredFileEvent event) {
+        if (isPdf(event.file())) {
+            submit(event.filePath(), event.file());
+        }
+    }
+
+    @EventListener(condition = "#event.deleted")
+    public void onFileDeleted(StoredFileEvent event) {
+        failed.remove(event.file());
+        deleteQuietly(thumbnailFile(event.file()));
+        deleteQuietly(textFile(event.file()));
+    }
+
+    /**
+     * Looks up the preview of a stored file. A PDF whose preview is missing is queued for rendering
+     * and reported PENDING; other files are UNAVAILABLE.
+     */
+    public Preview find(String fileName, String subDirectory, Kind kind) {
+        Path source;
+        try {
+            source = fileStorageService.getFilePath(fileName, subDirectory);
+        } catch (RuntimeException e) {
+            return new Preview(Status.UNAVAILABLE, null);
+        }
+        Path preview = kind == Kind.THUMBNAIL ? thumbnailFile(source) : textFile(source);
+        if (Files.isRegularFile(preview)) {
+            return new Preview(Status.READY, preview);
+        }
+        if (!isPdf(source) || failed.contains(source) || !Files.isRegularFile(source)) {
+            return new Preview(Status.UNAVAILABLE, null);
+        }
+        submit(subDirectory + "/" + fileName, source);
+        return new Preview(Status.PENDING, null);
+    }
+
+    /** The extracted text of a stored file, if it has been extracted yet. */
+    static Path textFile(Path source) {
+        return source.resolveSibling(source.getFileName() + TEXT_SUFFIX);
+    }
+
+    private static Path thumbnailFile(Path source) {
+        return source.resolveSibling(source.getFileName() + THUMBNAIL_SUFFIX);
+    }
+
+    private void submit(String filePath, Path source) {
+        if (!pending.add(source)) {
+            return;
+        }
+        try {
+            executor.execute(() -> render(filePath, source));
+        } catch (TaskRejectedException e) {
+            pending.remove(source);
+            log.warn("Preview queue full, {} will be rendered when requested", filePath);
+        }
+    }
+
+    private void render(String filePath, Path source) {
+        long start = System.nanoTime();
+        // Scratch buffers go to a temp file rather than the heap, whatever the size of the document
+        try (PDDocument document = Loader.loadPDF(source.toFile(), IOUtils.createTempFileOnlyStreamCache())) {
+            if (document.getNumberOfPages() > 0) {
+                PDRectangle page = document.getPage(0).getCropBox();
+                BufferedImage image = new PDFRenderer(document)
+                        .renderImage(0, thumbnailWidth / page.getWidth(), ImageType.RGB);
+                ByteArrayOutputStream png = new ByteArrayOutputStream();
+                ImageIO.write(image, "png", png);
+                write(thumbnailFile(source), png.toByteArray());
+            }
+
+            PDFTextStripper stripper = new PDFTextStripper();
+            stripper.setEndPage(MAX_TEXT_PAGES);
+            String text = stripper.getText(document);
+            if (text.length() > MAX_TEXT_LENGTH) {
+                text = text.substring(0, MAX_TEXT_LENGTH);
+            }
+            write(textFile(source), text.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException | RuntimeException e) {
+            failed.add(source);
+            log.warn("Could not render preview of {}: {}", filePath, e.getMessage());
+            return;
+        } finally {
+            pending.remove(source);
+        }
+        log.debug("Preview of {} rendered in {} ms", filePath, (System.nanoTime() - start) / 1_000_000);
+
+        pfeRepository.findByProposalFilePath(filePath).forEach(projectSearchIndex::index);
+    }
+
+    /** Readers never see a half-written preview: it is written aside, then renamed. */
+    private static void write(Path target, byte[] content) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(temp, content);
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static boolean isPdf(Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".pdf");
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete {}: {}", file, e.getMessage());
+        }
+    }
+}
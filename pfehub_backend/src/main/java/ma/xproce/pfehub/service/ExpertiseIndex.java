@@ -0,0 +1,198 @@
+package ma.xproce.pfehub.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.xproce.pfehub.dao.entities.Encadrant;
+import ma.xproce.pfehub.dao.repositories.EncadrantRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory inverted index of professor expertise used by the assignment recommendations.
+ * Maps each lower-cased expertise entry to the ids of the professors declaring it, so a project
+ * is only scored against professors that can actually earn points for it.
+ * A keyword matches the entries it contains, found by looking up each of its substrings, and the
+ * entries containing it, found through an index of the entries' 1, 2 and 3 character grams.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ExpertiseIndex {
+
+    private final EncadrantRepository encadrantRepository;
+
+    private static final int GRAM = 3;
+
+    private final Map<String, Set<Long>> professorsByExpertise = new ConcurrentHashMap<>();
+    // Every substring of up to GRAM characters -> the expertise entries containing it
+    private final Map<String, Set<String>> expertiseByGram = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> professorsBySpecialite = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> professorsByDepartement = new ConcurrentHashMap<>();
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    private record Entry(Set<String> expertise, Long specialiteId, Long departementId) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        professorsByExpertise.clear();
+        expertiseByGram.clear();
+        professorsBySpecialite.clear();
+        professorsByDepartement.clear();
+        entries.clear();
+        List<Encadrant> professors = encadrantRepository.findAll();
+        professors.forEach(this::index);
+        log.info("Expertise index built for {} professors ({} distinct entries)",
+                professors.size(), professorsByExpertise.size());
+    }
+
+    public synchronized void index(Encadrant encadrant) {
+        remove(encadrant.getId());
+
+        Set<String> expertise = new HashSet<>();
+        for (String entry : encadrant.getExpertiseList()) {
+            expertise.add(entry.toLowerCase());
+        }
+        Long specialiteId = encadrant.getSpecialite() != null ? encadrant.getSpecialite().getId() : null;
+        Long departementId = encadrant.getDepartement() != null ? encadrant.getDepartement().getId() : null;
+
+        Entry entry = new Entry(expertise, specialiteId, departementId);
+        entries.put(encadrant.getId(), entry);
+        for (String token : expertise) {
+            professorsByExpertise.computeIfAbsent(token, k -> {
+                for (String gram : grams(k)) {
+                    expertiseByGram.computeIfAbsent(gram, g -> ConcurrentHashMap.newKeySet()).add(k);
+                }
+                return ConcurrentHashMap.newKeySet();
+            }).add(encadrant.getId());
+        }
+        if (specialiteId != null) {
+            professorsBySpecialite.computeIfAbsent(specialiteId, k -> ConcurrentHashMap.newKeySet()).add(encadrant.getId());
+        }
+        if (departementId != null) {
+            professorsByDepartement.computeIfAbsent(departementId, k -> ConcurrentHashMap.newKeySet()).add(encadrant.getId());
+        }
+    }
+
+    public synchronized void remove(Long professorId) {
+        Entry entry = entries.remove(professorId);
+        if (entry == null) {
+            return;
+        }
+        for (String token : entry.expertise()) {
+            removeFrom(professorsByExpertise, token, professorId);
+            if (!professorsByExpertise.containsKey(token)) {
+                for (String gram : grams(token)) {
+                    expertiseByGram.computeIfPresent(gram, (g, tokens) -> {
+                        tokens.remove(token);
+                        return tokens.isEmpty() ? null : tokens;
+                    });
+                }
+            }
+        }
+        if (entry.specialiteId() != null) {
+            removeFrom(professorsBySpecialite, entry.specialiteId(), professorId);
+        }
+        if (entry.departementId() != null) {
+            removeFrom(professorsByDepartement, entry.departementId(), professorId);
+        }
+    }
+
+    /**
+     * Counts, per professor, how many project keywords match at least one of their expertise
+     * entries (either string containing the other, case-insensitive).
+     */
+    public Map<Long, Integer> countKeywordMatches(List<String> keywords) {
+        Map<Long, Integer> matches = new HashMap<>();
+        for (String keyword : keywords) {
+            String normalized = keyword.toLowerCase();
+            if (normalized.isEmpty()) {
+                continue;
+            }
+            Set<String> matchedTokens = new HashSet<>();
+            // Entries the keyword contains: each of its substrings is an exact lookup
+            for (int start = 0; start < normalized.length(); start++) {
+                for (int end = start + 1; end <= normalized.length(); end++) {
+                    String substring = normalized.substring(start, end);
+                    if (professorsByExpertise.containsKey(substring)) {
+                        matchedTokens.add(substring);
+                    }
+                }
+            }
+            // Entries containing the keyword: those having all of its grams, then checked
+            for (String token : containing(normalized)) {
+                if (token.contains(normalized)) {
+                    matchedTokens.add(token);
+                }
+            }
+            Set<Long> matchedForKeyword = new HashSet<>();
+            for (String token : matchedTokens) {
+                matchedForKeyword.addAll(professorsByExpertise.getOrDefault(token, Set.of()));
+            }
+            for (Long professorId : matchedForKeyword) {
+                matches.merge(professorId, 1, Integer::sum);
+            }
+        }
+        return matches;
+    }
+
+    /** The entries having every gram of {@code keyword}, a superset of those containing it. */
+    private Set<String> containing(String keyword) {
+        if (keyword.length() <= GRAM) {
+            return expertiseByGram.getOrDefault(keyword, Set.of());
+        }
+        Set<String> candidates = null;
+        for (int start = 0; start + GRAM <= keyword.length(); start++) {
+            Set<String> tokens = expertiseByGram.getOrDefault(keyword.substring(start, start + GRAM), Set.of());
+            if (candidates == null) {
+                candidates = new HashSet<>(tokens);
+            } else {
+                candidates.retainAll(tokens);
+            }
+            if (candidates.isEmpty()) {
+                break;
+            }
+        }
+        return candidates;
+    }
+
+    private static Set<String> grams(String token) {
+        Set<String> grams = new HashSet<>();
+        for (int start = 0; start < token.length(); start++) {
+            for (int end = start + 1; end <= Math.min(start + GRAM, token.length()); end++) {
+                grams.add(token.substring(start, end));
+            }
+        }
+        return grams;
+    }
+
+    /**
+     * Professors that can score on something other than workload: expertise match,
+     * same specialization or same department.
+     */
+    public Set<Long> findCandidates(Set<Long> expertiseMatches, Long specialiteId, Long departementId) {
+        Set<Long> candidates = new HashSet<>(expertiseMatches);
+        if (specialiteId != null) {
+            candidates.addAll(professorsBySpecialite.getOrDefault(specialiteId, Set.of()));
+        }
+        if (departementId != null) {
+            candidates.addAll(professorsByDepartement.getOrDefault(departementId, Set.of()));
+        }
+        return candidates;
+    }
+
+    private static <K> void removeFrom(Map<K, Set<Long>> index, K key, Long professorId) {
+        index.computeIfPresent(key, (k, ids) -> {
+            ids.remove(professorId);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+}
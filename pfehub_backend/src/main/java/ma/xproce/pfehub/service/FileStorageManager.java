@@ -1,6 +1,9 @@
 package ma.xproce.pfehub.service;
 
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
 import org.springframework.stereotype.Service;
@@ -10,15 +13,24 @@ import org.springframework.web.multipart.MultipartFile;
 import jakarta.annotation.PostConstruct;
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.UUID;
 
+/**
+ * Default storage: every upload gets a new UUID name under its sub-directory. See
+ * {@link ContentAddressedStorageManager} for the deduplicating alternative.
+ */
 @Service
+@ConditionalOnProperty(name = "file.storage", havingValue = "uuid", matchIfMissing = true)
+@RequiredArgsConstructor
 public class FileStorageManager implements IFileStorageService {
 
+    private final ApplicationEventPublisher eventPublisher;
+
     @Value("${file.upload-dir:./uploads}")
     private String uploadDir;
 
@@ -41,35 +53,66 @@ public class FileStorageManager implements IFileStorageService {
                 throw new RuntimeException("Failed to store empty file");
             }
 
-            String originalFilename = StringUtils.cleanPath(file.getOriginalFilename());
-            String extension = "";
-            int dotIndex = originalFilename.lastIndexOf('.');
-            if (dotIndex > 0) {
-                extension = originalFilename.substring(dotIndex);
-            }
+            Path destinationFile = destination(file.getOriginalFilename(), subDirectory);
 
-            // Generate unique filename
-            String newFilename = UUID.randomUUID().toString() + extension;
+            // Copy file
+            Files.copy(file.getInputStream(), destinationFile, StandardCopyOption.REPLACE_EXISTING);
 
-            // Create subdirectory if it doesn't exist
-            Path subDir = rootLocation.resolve(subDirectory);
-            Files.createDirectories(subDir);
+            return stored(subDirectory + "/" + destinationFile.getFileName(), destinationFile);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to store file", e);
+        }
+    }
 
-            // Copy file
-            Path destinationFile = subDir.resolve(newFilename).normalize().toAbsolutePath();
-            
-            if (!destinationFile.getParent().equals(subDir.toAbsolutePath())) {
-                throw new RuntimeException("Cannot store file outside current directory");
-            }
+    @Override
+    public String storeFile(Path source, String originalFilename, String subDirectory) {
+        try {
+            Path destinationFile = destination(originalFilename, subDirectory);
 
-            Files.copy(file.getInputStream(), destinationFile, StandardCopyOption.REPLACE_EXISTING);
+            // A rename when the source is on the same file system, as the chunked uploads are
+            try {
+                Files.move(source, destinationFile, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(source, destinationFile, StandardCopyOption.REPLACE_EXISTING);
+            }
 
-            return subDirectory + "/" + newFilename;
+            return stored(subDirectory + "/" + destinationFile.getFileName(), destinationFile);
         } catch (IOException e) {
             throw new RuntimeException("Failed to store file", e);
         }
     }
 
+    private String stored(String filePath, Path file) {
+        eventPublisher.publishEvent(new StoredFileEvent(filePath, file, false));
+        return filePath;
+    }
+
+    /** A new unique path in the sub-directory, keeping the extension of the original file name. */
+    private Path destination(String originalFilename, String subDirectory) throws IOException {
+        String cleanFilename = StringUtils.cleanPath(originalFilename != null ? originalFilename : "");
+        String extension = "";
+        int dotIndex = cleanFilename.lastIndexOf('.');
+        if (dotIndex > 0) {
+            extension = cleanFilename.substring(dotIndex);
+        }
+
+        // Generate unique filename
+        String newFilename = UUID.randomUUID().toString() + extension;
+
+        // Create subdirectory if it doesn't exist
+        Path subDir = rootLocation.resolve(subDirectory).normalize().toAbsolutePath();
+        if (!subDir.getParent().equals(rootLocation.normalize().toAbsolutePath())) {
+            throw new RuntimeException("Cannot store file outside current directory");
+        }
+        Files.createDirectories(subDir);
+
+        Path destinationFile = subDir.resolve(newFilename).normalize();
+        if (!destinationFile.getParent().equals(subDir)) {
+            throw new RuntimeException("Cannot store file outside current directory");
+        }
+        return destinationFile;
+    }
+
     @Override
     public Resource loadFileAsResource(String fileName, String subDirectory) {
         try {
@@ -90,7 +133,9 @@ public class FileStorageManager implements IFileStorageService {
     public void deleteFile(String fileName, String subDirectory) {
         try {
             Path filePath = rootLocation.resolve(subDirectory).resolve(fileName).normalize();
-            Files.deleteIfExists(filePath);
+            if (Files.deleteIfExists(filePath)) {
+                eventPublisher.publishEvent(new StoredFileEvent(subDirectory + "/" + fileName, filePath, true));
+            }
         } catch (IOException e) {
             throw new RuntimeException("Could not delete file: " + fileName, e);
         }
@@ -0,0 +1,22 @@
+package ma.xproce.pfehub.service;
+
+import ma.xproce.pfehub.web.dto.UploadInitDTO;
+import ma.xproce.pfehub.web.dto.UploadSessionDTO;
+
+import java.io.InputStream;
+import java.util.Optional;
+
+public interface IChunkedUploadService {
+
+    UploadSessionDTO startUpload(UploadInitDTO dto);
+
+    Optional<UploadSessionDTO> getUpload(String uploadId);
+
+    UploadSessionDTO writeChunk(String uploadId, int index, String contentDigest, InputStream body);
+
+    /** Checks every chunk arrived and moves the file into storage, returning its stored path. */
+    String completeUpload(String uploadId, String subDirectory);
+
+    /** Refused while a chunk is being written or the upload is being completed. */
+    void cancelUpload(String uploadId);
+}
@@ -9,6 +9,9 @@ public interface IFileStorageService {
     
     String storeFile(MultipartFile file, String subDirectory);
     
+    /** Moves a local file (e.g. an assembled upload) into storage instead of copying it. */
+    String storeFile(Path source, String originalFilename, String subDirectory);
+    
     Resource loadFileAsResource(String fileName, String subDirectory);
     
     void deleteFile(String fileName, String subDirectory);
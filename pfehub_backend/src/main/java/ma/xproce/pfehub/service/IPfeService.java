@@ -18,16 +18,19 @@ public interface IPfeService {
     void deleteProject(Long id);
     
     // Queries
-    Page<PFE> getAllProjects(Pageable pageable);
-    Page<PFE> getProjectsByStatus(PFEStatus status, Pageable pageable);
+    Page<ProjectSummaryDTO> getAllProjects(Pageable pageable);
+    Page<ProjectSummaryDTO> getProjectsByStatus(PFEStatus status, Pageable pageable);
+    CursorPageDTO<ProjectSummaryDTO> getProjectsAfter(PFEStatus status, String cursor, int size);
     Optional<PFE> getProjectByStudentId(Long studentId);
-    List<PFE> getProjectsByProfessorId(Long professorId);
+    List<ProjectSummaryDTO> getProjectsByProfessorId(Long professorId);
     List<PFE> getPendingAssignmentProjects();
     Page<PFE> searchProjects(String search, Pageable pageable);
     
     // Workflow - Assignment (Admin)
     PFE assignProfessor(Long projectId, Long professorId, String notes);
     List<AssignmentRecommendationDTO> getAssignmentRecommendations(Long projectId);
+    AssignmentPlanDTO computeAssignmentPlan();
+    List<PFE> applyAssignmentPlan(List<ProjectAssignmentDTO> assignments);
     
     // Workflow - Review (Professor)
     PFE acceptProject(Long projectId, String comments);
@@ -36,9 +39,11 @@ public interface IPfeService {
     
     // Workflow - Final Submission (Student)
     PFE submitFinalVersion(Long projectId, MultipartFile finalDocument);
+    PFE submitFinalVersionFromUpload(Long projectId, String uploadId);
     
     // Deliverables
     Livrable addDeliverable(Long projectId, DeliverableSubmissionDTO dto, MultipartFile file);
+    Livrable addDeliverableFromUpload(Long projectId, DeliverableSubmissionDTO dto, String uploadId);
     List<Livrable> getProjectDeliverables(Long projectId);
     void deleteDeliverable(Long deliverableId);
     
@@ -16,8 +16,9 @@ public interface ISoutenanceService {
     void deleteDefense(Long id);
     
     // Queries
-    Page<Soutenance> getAllDefenses(Pageable pageable);
-    Page<Soutenance> getDefensesByStatus(SoutenanceStatus status, Pageable pageable);
+    Page<DefenseSummaryDTO> getAllDefenses(Pageable pageable);
+    Page<DefenseSummaryDTO> getDefensesByStatus(SoutenanceStatus status, Pageable pageable);
+    CursorPageDTO<DefenseSummaryDTO> getDefensesAfter(SoutenanceStatus status, String cursor, int size);
     Optional<Soutenance> getDefenseByProjectId(Long projectId);
     Optional<Soutenance> getDefenseByStudentId(Long studentId);
     List<Soutenance> getDefensesByProfessorId(Long professorId);
@@ -40,10 +41,21 @@ public interface ISoutenanceService {
     // Jury Management
     List<JuryMember> getJuryMembers(Long defenseId);
     void updateJuryMembers(Long defenseId, List<JuryMemberDTO> juryMembers);
+    List<ProfessorAgendaEntryDTO> getProfessorAgenda(Long professorId, LocalDate from, LocalDate to);
     
+    // Timetable generation (Admin)
+    String startScheduleGeneration(DefenseScheduleRequestDTO dto);
+    Optional<DefenseScheduleJobDTO> getScheduleJob(String jobId);
+    List<Soutenance> applySchedule(String jobId);
+
     // Room/Schedule conflicts
     boolean hasConflict(String room, LocalDate date, String time);
+    List<SlotConflictDTO> checkSlots(List<ProposedSlotDTO> slots);
     List<Soutenance> getDefensesByRoomAndDate(String room, LocalDate date);
+
+    // Jury bundles (the project files of a defense, or of a room's day)
+    List<BundleEntryDTO> getDefenseBundle(Long defenseId);
+    List<BundleEntryDTO> getRoomDayBundle(String room, LocalDate date);
     
     // Statistics
     long countByStatus(SoutenanceStatus status);
@@ -16,15 +16,18 @@ public interface IUserService {
     
     // User management
     Page<AppUser> getAllUsers(Pageable pageable);
+    CursorPageDTO<AppUser> getUsersAfter(String cursor, int size);
     Optional<AppUser> getUserById(Long id);
     Optional<AppUser> getUserByEmail(String email);
     void deleteUser(Long id);
+    List<UserSuggestionDTO> autocompleteUsers(String query, UserRole role, int limit);
     
     // Students
     Etudiant createStudent(CreateStudentDTO dto);
     Etudiant updateStudent(Long id, UpdateStudentDTO dto);
-    List<Etudiant> getAllStudents();
+    List<StudentSummaryDTO> getAllStudents();
     Page<Etudiant> searchStudents(String search, Pageable pageable);
+    CursorPageDTO<Etudiant> searchStudentsAfter(String search, String cursor, int size);
     Optional<Etudiant> getStudentById(Long id);
     
     // Professors
@@ -33,6 +36,7 @@ public interface IUserService {
     List<Encadrant> getAllProfessors();
     List<Encadrant> getAvailableProfessors();
     Page<Encadrant> searchProfessors(String search, Pageable pageable);
+    CursorPageDTO<Encadrant> searchProfessorsAfter(String search, String cursor, int size);
     Optional<Encadrant> getProfessorById(Long id);
     
     // Admins
@@ -0,0 +1,63 @@
+package ma.xproce.pfehub.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a listing paged by keyset (seek) instead of OFFSET: the sort key and id of the last
+ * row served. The next page is read from the index right after that row, so a deep page costs as
+ * much as the first. Clients get it as an opaque string and send it back as {@code ?cursor=}.
+ *
+ * @param key the sort column of the last row, null when the listing is by id alone or the value was null
+ */
+public record KeysetCursor(String key, long id) {
+
+    /** Before the first row. */
+    public static final KeysetCursor FIRST = new KeysetCursor(null, 0);
+
+    public static KeysetCursor of(Object key, Long id) {
+        return new KeysetCursor(key != null ? key.toString() : null, id);
+    }
+
+    /**
+     * @param cursor a value from {@link #encode()}, or blank for the first page
+     * @throws IllegalArgumentException if it is not one
+     */
+    public static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return FIRST;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf('|');
+            String key = value.substring(0, separator);
+            return new KeysetCursor(key.isEmpty() ? null : key, Long.parseLong(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    public String encode() {
+        String value = (key != null ? key : "") + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime dateTimeKey() {
+        try {
+            return key != null ? LocalDateTime.parse(key) : null;
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor key: " + key);
+        }
+    }
+
+    public LocalDate dateKey() {
+        try {
+            return key != null ? LocalDate.parse(key) : null;
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor key: " + key);
+        }
+    }
+}
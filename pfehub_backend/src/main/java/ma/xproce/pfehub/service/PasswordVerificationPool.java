@@ -0,0 +1,145 @@
+package ma.xproce.pfehub.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs login password checks on a few dedicated threads instead of the request threads. BCrypt is
+ * meant to be slow: during a login burst (the submission window opening) it would otherwise take
+ * every Tomcat thread and the CPU with them. Checks wait in a bounded queue; past it a login is
+ * refused at once with {@link ServiceBusyException}, so at most threads + queue capacity request
+ * threads are ever held by logins and the rest of the API keeps being served.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PasswordVerificationPool {
+
+    private final PasswordEncoder passwordEncoder;
+
+    // 0: one thread per core, hashing being CPU bound
+    @Value("${security.password-hashing.threads:0}")
+    private int threads;
+
+    @Value("${security.password-hashing.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${security.password-hashing.max-wait:5s}")
+    private Duration maxWait;
+
+    private ThreadPoolTaskExecutor executor;
+    // Checked when the email is unknown, so that costs as long as a wrong password
+    private String dummyHash;
+
+    private final LongAdder verifications = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder();
+    private final AtomicLong maxHashNanos = new AtomicLong();
+
+    /**
+     * @param upgradedHash a new encoding of the password when it matched an outdated hash, else null
+     */
+    public record Verification(boolean matches, String upgradedHash) {
+    }
+
+    /** Pool state and, since startup, check counts and timings (queue wait and hashing apart). */
+    public record Stats(int threads, int active, int queued, int queueCapacity,
+                        long verifications, long rejections,
+                        double averageWaitMs, double averageHashMs, double maxHashMs) {
+    }
+
+    @PostConstruct
+    public void init() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("password-hashing-");
+        executor.initialize();
+        dummyHash = passwordEncoder.encode(UUID.randomUUID().toString());
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * Checks {@code rawPassword} against {@code encodedPassword}; a null encoded password (unknown
+     * user) never matches but takes the same time. A match against a hash that is outdated (older
+     * format or lower cost) also re-encodes the password, on the same thread.
+     */
+    public Verification verify(String rawPassword, String encodedPassword) {
+        long submitted = System.nanoTime();
+        Future<Verification> result;
+        try {
+            result = executor.submit(() -> {
+                long start = System.nanoTime();
+                waitNanos.add(start - submitted);
+                try {
+                    boolean matches = passwordEncoder.matches(rawPassword,
+                            encodedPassword != null ? encodedPassword : dummyHash);
+                    if (!matches || encodedPassword == null) {
+                        return new Verification(false, null);
+                    }
+                    return new Verification(true, passwordEncoder.upgradeEncoding(encodedPassword)
+                            ? passwordEncoder.encode(rawPassword) : null);
+                } finally {
+                    long elapsed = System.nanoTime() - start;
+                    hashNanos.add(elapsed);
+                    maxHashNanos.accumulateAndGet(elapsed, Math::max);
+                    verifications.increment();
+                }
+            });
+        } catch (TaskRejectedException e) {
+            rejections.increment();
+            log.debug("Password hashing queue full, login refused");
+            throw new ServiceBusyException("Too many logins in progress, try again in a moment");
+        }
+
+        try {
+            return result.get(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(false);
+            rejections.increment();
+            throw new ServiceBusyException("Too many logins in progress, try again in a moment");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("Login interrupted");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Password verification failed", e.getCause());
+        }
+    }
+
+    public Stats stats() {
+        long count = verifications.sum();
+        return new Stats(
+                executor.getMaxPoolSize(),
+                executor.getActiveCount(),
+                executor.getQueueSize(),
+                queueCapacity,
+                count,
+                rejections.sum(),
+                count > 0 ? waitNanos.sum() / 1e6 / count : 0,
+                count > 0 ? hashNanos.sum() / 1e6 / count : 0,
+                maxHashNanos.get() / 1e6);
+    }
+}
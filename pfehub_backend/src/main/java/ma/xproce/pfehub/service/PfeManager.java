@@ -1,36 +1,55 @@
 package ma.xproce.pfehub.service;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import ma.xproce.pfehub.dao.entities.*;
 import ma.xproce.pfehub.dao.repositories.*;
 import ma.xproce.pfehub.web.dto.*;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 @RequiredArgsConstructor
+@Slf4j
 public class PfeManager implements IPfeService {
 
+    // Keyset start of the newest-first listings: after every real submission date
+    private static final LocalDateTime END_OF_TIME = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
     private final PfeRepository pfeRepository;
     private final EtudiantRepository etudiantRepository;
     private final EncadrantRepository encadrantRepository;
     private final LivrableRepository livrableRepository;
     private final IFileStorageService fileStorageService;
+    private final IChunkedUploadService chunkedUploadService;
+    private final ExpertiseIndex expertiseIndex;
+    private final ProjectSearchIndex projectSearchIndex;
+    private final RoomOccupancyIndex roomOccupancyIndex;
+    private final ProfessorAgendaIndex professorAgendaIndex;
 
     @Override
     public PFE createProject(Long studentId, ProjectSubmissionDTO dto, MultipartFile proposalFile) {
-        Etudiant etudiant = etudiantRepository.findById(studentId)
+        Etudiant etudiant = etudiantRepository.findProfileById(studentId)
                 .orElseThrow(() -> new RuntimeException("Student not found"));
 
         if (pfeRepository.findByEtudiantId(studentId).isPresent()) {
@@ -56,12 +75,14 @@ public class PfeManager implements IPfeService {
             pfe.setProposalFilePath(filePath);
         }
 
-        return pfeRepository.save(pfe);
+        PFE saved = pfeRepository.save(pfe);
+        AfterCommit.run(() -> projectSearchIndex.index(saved));
+        return saved;
     }
 
     @Override
     public PFE updateProject(Long projectId, ProjectUpdateDTO dto) {
-        PFE pfe = pfeRepository.findById(projectId)
+        PFE pfe = pfeRepository.findDetailById(projectId)
                 .orElseThrow(() -> new RuntimeException("Project not found"));
 
         if (dto.getTitle() != null) pfe.setTitle(dto.getTitle());
@@ -74,27 +95,57 @@ public class PfeManager implements IPfeService {
             pfe.setKeywords(String.join(",", dto.getKeywords()));
         }
 
-        return pfeRepository.save(pfe);
+        PFE saved = pfeRepository.save(pfe);
+        AfterCommit.run(() -> projectSearchIndex.index(saved));
+        return saved;
     }
 
     @Override
     public Optional<PFE> getProjectById(Long id) {
-        return pfeRepository.findById(id);
+        return pfeRepository.findDetailById(id);
     }
 
     @Override
     public void deleteProject(Long id) {
-        pfeRepository.deleteById(id);
+        PFE pfe = pfeRepository.findById(id).orElse(null);
+        if (pfe == null) {
+            return;
+        }
+        // The defense goes with the project; the student cascades to the project and would otherwise save it again
+        Long defenseId = pfe.getSoutenance() != null ? pfe.getSoutenance().getId() : null;
+        List<String> files = new ArrayList<>();
+        files.add(pfe.getProposalFilePath());
+        livrableRepository.findByPfeId(id).forEach(livrable -> files.add(livrable.getFileUrl()));
+        pfe.getEtudiant().setPfe(null);
+        pfeRepository.delete(pfe);
+        files.forEach(this::releaseFile);
+        AfterCommit.run(() -> projectSearchIndex.remove(id));
+        if (defenseId != null) {
+            AfterCommit.run(() -> roomOccupancyIndex.remove(defenseId));
+            AfterCommit.run(() -> professorAgendaIndex.remove(defenseId));
+        }
+    }
+
+    @Override
+    public Page<ProjectSummaryDTO> getAllProjects(Pageable pageable) {
+        return pfeRepository.findSummaries(pageable);
     }
 
     @Override
-    public Page<PFE> getAllProjects(Pageable pageable) {
-        return pfeRepository.findAll(pageable);
+    public Page<ProjectSummaryDTO> getProjectsByStatus(PFEStatus status, Pageable pageable) {
+        return pfeRepository.findSummariesByStatus(status, pageable);
     }
 
     @Override
-    public Page<PFE> getProjectsByStatus(PFEStatus status, Pageable pageable) {
-        return pfeRepository.findByStatus(status, pageable);
+    public CursorPageDTO<ProjectSummaryDTO> getProjectsAfter(PFEStatus status, String cursor, int size) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        LocalDateTime submittedAt = after == KeysetCursor.FIRST ? END_OF_TIME : after.dateTimeKey();
+        long id = after == KeysetCursor.FIRST ? Long.MAX_VALUE : after.id();
+        Pageable page = PageRequest.ofSize(size);
+        Slice<ProjectSummaryDTO> slice = status != null
+                ? pfeRepository.findSummariesByStatusBefore(status, submittedAt, id, page)
+                : pfeRepository.findSummariesBefore(submittedAt, id, page);
+        return CursorPageDTO.of(slice, p -> KeysetCursor.of(p.getSubmittedAt(), p.getId()));
     }
 
     @Override
@@ -103,8 +154,8 @@ public class PfeManager implements IPfeService {
     }
 
     @Override
-    public List<PFE> getProjectsByProfessorId(Long professorId) {
-        return pfeRepository.findByEncadrantId(professorId);
+    public List<ProjectSummaryDTO> getProjectsByProfessorId(Long professorId) {
+        return pfeRepository.findSummariesByEncadrantId(professorId);
     }
 
     @Override
@@ -114,18 +165,27 @@ public class PfeManager implements IPfeService {
 
     @Override
     public Page<PFE> searchProjects(String search, Pageable pageable) {
-        return pfeRepository.searchProjects(search, pageable);
+        Page<Long> hits = projectSearchIndex.search(search, pageable);
+        Map<Long, PFE> projects = pfeRepository.findDetailByIdIn(hits.getContent()).stream()
+                .collect(Collectors.toMap(PFE::getId, p -> p));
+
+        // Keep the relevance order of the index; ids deleted in the meantime are skipped
+        List<PFE> content = hits.getContent().stream()
+                .map(projects::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        return new PageImpl<>(content, pageable, hits.getTotalElements());
     }
 
     @Override
     public PFE assignProfessor(Long projectId, Long professorId, String notes) {
-        PFE pfe = pfeRepository.findById(projectId)
+        PFE pfe = pfeRepository.findDetailById(projectId)
                 .orElseThrow(() -> new RuntimeException("Project not found"));
 
-        Encadrant encadrant = encadrantRepository.findById(professorId)
+        Encadrant encadrant = encadrantRepository.findProfileById(professorId)
                 .orElseThrow(() -> new RuntimeException("Professor not found"));
 
-        if (!encadrant.canAcceptMoreProjects()) {
+        if (!encadrant.canAcceptMoreProjects(pfeRepository.countByEncadrantId(professorId))) {
             throw new RuntimeException("Professor has reached maximum project capacity");
         }
 
@@ -144,11 +204,36 @@ public class PfeManager implements IPfeService {
         PFE pfe = pfeRepository.findById(projectId)
                 .orElseThrow(() -> new RuntimeException("Project not found"));
 
-        List<Encadrant> availableProfessors = encadrantRepository.findAvailableProfessors();
+        Etudiant etudiant = pfe.getEtudiant();
+        Long specialiteId = etudiant.getSpecialite() != null ? etudiant.getSpecialite().getId() : null;
+        Long departementId = etudiant.getDepartement() != null ? etudiant.getDepartement().getId() : null;
+
+        // Only professors matching on expertise, specialization or department can score above the workload bonus
+        Map<Long, Integer> keywordMatches = pfe.getKeywords() != null
+                ? expertiseIndex.countKeywordMatches(pfe.getKeywordsList())
+                : Map.of();
+        Set<Long> candidateIds = expertiseIndex.findCandidates(keywordMatches.keySet(), specialiteId, departementId);
+        Map<Long, Long> workloads = toWorkloadMap(pfeRepository.countByEncadrantGrouped());
+
+        List<Encadrant> professors = encadrantRepository.findAllById(candidateIds).stream()
+                .filter(e -> e.canAcceptMoreProjects(workloads.getOrDefault(e.getId(), 0L)))
+                .collect(Collectors.toCollection(ArrayList::new));
+
+        // Not enough candidates: top up with the remaining available professors
+        if (professors.size() < 5) {
+            for (Encadrant encadrant : encadrantRepository.findAvailableProfessors()) {
+                if (!candidateIds.contains(encadrant.getId())) {
+                    professors.add(encadrant);
+                }
+            }
+        }
+
         List<AssignmentRecommendationDTO> recommendations = new ArrayList<>();
 
-        for (Encadrant encadrant : availableProfessors) {
-            int matchPercentage = calculateMatchPercentage(pfe, encadrant);
+        for (Encadrant encadrant : professors) {
+            long workload = workloads.getOrDefault(encadrant.getId(), 0L);
+            int matchPercentage = calculateMatchPercentage(pfe, encadrant,
+                    keywordMatches.getOrDefault(encadrant.getId(), 0), workload);
             
             AssignmentRecommendationDTO rec = AssignmentRecommendationDTO.builder()
                     .projectId(projectId)
@@ -156,10 +241,10 @@ public class PfeManager implements IPfeService {
                     .professorName(encadrant.getFullName())
                     .professorEmail(encadrant.getEmail())
                     .matchPercentage(matchPercentage)
-                    .currentWorkload(encadrant.getCurrentProjectCount())
+                    .currentWorkload((int) workload)
                     .maxCapacity(encadrant.getMaxProjectCapacity())
                     .expertise(encadrant.getExpertiseList())
-                    .reason(generateMatchReason(pfe, encadrant, matchPercentage))
+                    .reason(generateMatchReason(pfe, encadrant, matchPercentage, workload))
                     .build();
             
             recommendations.add(rec);
@@ -171,7 +256,110 @@ public class PfeManager implements IPfeService {
         return recommendations.stream().limit(5).collect(Collectors.toList());
     }
 
-    private int calculateMatchPercentage(PFE pfe, Encadrant encadrant) {
+    @Override
+    @Transactional(readOnly = true)
+    public AssignmentPlanDTO computeAssignmentPlan() {
+        List<PFE> projects = pfeRepository.findPendingAssignment();
+        List<Encadrant> professors = encadrantRepository.findAvailableProfessors();
+        Map<Long, Long> workloads = toWorkloadMap(pfeRepository.countByEncadrantGrouped());
+
+        int[] capacities = new int[professors.size()];
+        for (int j = 0; j < professors.size(); j++) {
+            Encadrant encadrant = professors.get(j);
+            capacities[j] = (int) (encadrant.getMaxProjectCapacity() - workloads.getOrDefault(encadrant.getId(), 0L));
+        }
+
+        int[][] scores = new int[projects.size()][professors.size()];
+        for (int i = 0; i < projects.size(); i++) {
+            PFE pfe = projects.get(i);
+            Map<Long, Integer> keywordMatches = pfe.getKeywords() != null
+                    ? expertiseIndex.countKeywordMatches(pfe.getKeywordsList())
+                    : Map.of();
+            for (int j = 0; j < professors.size(); j++) {
+                Encadrant encadrant = professors.get(j);
+                scores[i][j] = calculateMatchPercentage(pfe, encadrant,
+                        keywordMatches.getOrDefault(encadrant.getId(), 0), workloads.getOrDefault(encadrant.getId(), 0L));
+            }
+        }
+
+        int[] solution = AssignmentSolver.solve(scores, capacities);
+
+        List<ProjectAssignmentDTO> assignments = new ArrayList<>();
+        List<Long> unassigned = new ArrayList<>();
+        int totalScore = 0;
+        for (int i = 0; i < projects.size(); i++) {
+            PFE pfe = projects.get(i);
+            if (solution[i] == AssignmentSolver.UNASSIGNED) {
+                unassigned.add(pfe.getId());
+                continue;
+            }
+            Encadrant encadrant = professors.get(solution[i]);
+            assignments.add(ProjectAssignmentDTO.builder()
+                    .projectId(pfe.getId())
+                    .projectTitle(pfe.getTitle())
+                    .professorId(encadrant.getId())
+                    .professorName(encadrant.getFullName())
+                    .matchPercentage(scores[i][solution[i]])
+                    .build());
+            totalScore += scores[i][solution[i]];
+        }
+
+        return AssignmentPlanDTO.builder()
+                .assignments(assignments)
+                .unassignedProjectIds(unassigned)
+                .totalScore(totalScore)
+                .build();
+    }
+
+    @Override
+    public List<PFE> applyAssignmentPlan(List<ProjectAssignmentDTO> assignments) {
+        Map<Long, PFE> projects = pfeRepository.findAllById(
+                        assignments.stream().map(ProjectAssignmentDTO::getProjectId).toList())
+                .stream().collect(Collectors.toMap(PFE::getId, p -> p));
+        Map<Long, Encadrant> professors = encadrantRepository.findAllById(
+                        assignments.stream().map(ProjectAssignmentDTO::getProfessorId).distinct().toList())
+                .stream().collect(Collectors.toMap(Encadrant::getId, e -> e));
+        Map<Long, Long> workloads = toWorkloadMap(pfeRepository.countByEncadrantGrouped(professors.keySet()));
+
+        Map<Long, Integer> addedLoad = new HashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        List<PFE> updated = new ArrayList<>();
+
+        for (ProjectAssignmentDTO assignment : assignments) {
+            PFE pfe = projects.get(assignment.getProjectId());
+            if (pfe == null) {
+                throw new RuntimeException("Project not found: " + assignment.getProjectId());
+            }
+            if (pfe.getEncadrant() != null || pfe.getStatus() != PFEStatus.EN_ATTENTE_ASSIGNATION) {
+                throw new RuntimeException("Project already assigned: " + pfe.getId());
+            }
+            Encadrant encadrant = professors.get(assignment.getProfessorId());
+            if (encadrant == null) {
+                throw new RuntimeException("Professor not found: " + assignment.getProfessorId());
+            }
+            long load = workloads.getOrDefault(encadrant.getId(), 0L) + addedLoad.merge(encadrant.getId(), 1, Integer::sum);
+            if (load > encadrant.getMaxProjectCapacity()) {
+                throw new RuntimeException("Professor has reached maximum project capacity: " + encadrant.getFullName());
+            }
+
+            pfe.setEncadrant(encadrant);
+            pfe.setStatus(PFEStatus.EN_REVISION);
+            pfe.setAssignedAt(now);
+            updated.add(pfe);
+        }
+
+        return pfeRepository.saveAll(updated);
+    }
+
+    private Map<Long, Long> toWorkloadMap(List<Object[]> results) {
+        Map<Long, Long> workloads = new HashMap<>();
+        for (Object[] result : results) {
+            workloads.put((Long) result[0], (Long) result[1]);
+        }
+        return workloads;
+    }
+
+    private int calculateMatchPercentage(PFE pfe, Encadrant encadrant, int keywordMatches, long workload) {
         int score = 0;
         
         // Same specialization = +40%
@@ -186,32 +374,21 @@ public class PfeManager implements IPfeService {
             score += 20;
         }
         
-        // Keywords match expertise = +30%
+        // Keywords match expertise = +10% per matching keyword (resolved through the expertise index)
         if (pfe.getKeywords() != null && encadrant.getExpertise() != null) {
-            List<String> projectKeywords = pfe.getKeywordsList();
-            List<String> expertiseList = encadrant.getExpertiseList();
-            
-            for (String keyword : projectKeywords) {
-                for (String expertise : expertiseList) {
-                    if (keyword.toLowerCase().contains(expertise.toLowerCase()) 
-                            || expertise.toLowerCase().contains(keyword.toLowerCase())) {
-                        score += 10;
-                        break;
-                    }
-                }
-            }
+            score += 10 * keywordMatches;
             score = Math.min(score, 90); // Cap at 90 for expertise
         }
         
         // Low workload bonus = +10%
-        if (encadrant.getCurrentProjectCount() < encadrant.getMaxProjectCapacity() / 2) {
+        if (workload < encadrant.getMaxProjectCapacity() / 2) {
             score += 10;
         }
         
         return Math.min(score, 100);
     }
 
-    private String generateMatchReason(PFE pfe, Encadrant encadrant, int matchPercentage) {
+    private String generateMatchReason(PFE pfe, Encadrant encadrant, int matchPercentage, long workload) {
         StringBuilder reason = new StringBuilder();
         
         if (encadrant.getSpecialite() != null && pfe.getEtudiant().getSpecialite() != null
@@ -225,7 +402,7 @@ public class PfeManager implements IPfeService {
             reason.append("Bonne correspondance. ");
         }
         
-        reason.append("Charge: ").append(encadrant.getCurrentProjectCount())
+        reason.append("Charge: ").append(workload)
               .append("/").append(encadrant.getMaxProjectCapacity());
         
         return reason.toString();
@@ -233,7 +410,7 @@ public class PfeManager implements IPfeService {
 
     @Override
     public PFE acceptProject(Long projectId, String comments) {
-        PFE pfe = pfeRepository.findById(projectId)
+        PFE pfe = pfeRepository.findDetailById(projectId)
                 .orElseThrow(() -> new RuntimeException("Project not found"));
 
         pfe.setStatus(PFEStatus.ACCEPTE);
@@ -247,7 +424,7 @@ public class PfeManager implements IPfeService {
 
     @Override
     public PFE rejectProject(Long projectId, String reason, String comments) {
-        PFE pfe = pfeRepository.findById(projectId)
+        PFE pfe = pfeRepository.findDetailById(projectId)
                 .orElseThrow(() -> new RuntimeException("Project not found"));
 
         pfe.setStatus(PFEStatus.REFUSE);
@@ -261,7 +438,7 @@ public class PfeManager implements IPfeService {
 
     @Override
     public PFE requestRevision(Long projectId, String comments) {
-        PFE pfe = pfeRepository.findById(projectId)
+        PFE pfe = pfeRepository.findDetailById(projectId)
                 .orElseThrow(() -> new RuntimeException("Project not found"));
 
         pfe.setStatus(PFEStatus.EN_REVISION);
@@ -272,15 +449,27 @@ public class PfeManager implements IPfeService {
 
     @Override
     public PFE submitFinalVersion(Long projectId, MultipartFile finalDocument) {
-        PFE pfe = pfeRepository.findById(projectId)
+        return submitFinalVersion(projectId, finalDocument != null && !finalDocument.isEmpty()
+                ? () -> fileStorageService.storeFile(finalDocument, "final-submissions")
+                : null);
+    }
+
+    @Override
+    public PFE submitFinalVersionFromUpload(Long projectId, String uploadId) {
+        return submitFinalVersion(projectId, () -> chunkedUploadService.completeUpload(uploadId, "final-submissions"));
+    }
+
+    private PFE submitFinalVersion(Long projectId, Supplier<String> storeFile) {
+        PFE pfe = pfeRepository.findDetailById(projectId)
                 .orElseThrow(() -> new RuntimeException("Project not found"));
 
         pfe.setStatus(PFEStatus.SOUMISSION_FINALE);
         pfe.setFinalSubmittedAt(LocalDateTime.now());
 
-        if (finalDocument != null && !finalDocument.isEmpty()) {
-            String filePath = fileStorageService.storeFile(finalDocument, "final-submissions");
-            pfe.setProposalFilePath(filePath);
+        if (storeFile != null) {
+            String previous = pfe.getProposalFilePath();
+            pfe.setProposalFilePath(storeFile.get());
+            releaseFile(previous);
         }
 
         return pfeRepository.save(pfe);
@@ -288,6 +477,17 @@ public class PfeManager implements IPfeService {
 
     @Override
     public Livrable addDeliverable(Long projectId, DeliverableSubmissionDTO dto, MultipartFile file) {
+        return addDeliverable(projectId, dto, file != null && !file.isEmpty()
+                ? () -> fileStorageService.storeFile(file, "deliverables")
+                : null);
+    }
+
+    @Override
+    public Livrable addDeliverableFromUpload(Long projectId, DeliverableSubmissionDTO dto, String uploadId) {
+        return addDeliverable(projectId, dto, () -> chunkedUploadService.completeUpload(uploadId, "deliverables"));
+    }
+
+    private Livrable addDeliverable(Long projectId, DeliverableSubmissionDTO dto, Supplier<String> storeFile) {
         PFE pfe = pfeRepository.findById(projectId)
                 .orElseThrow(() -> new RuntimeException("Project not found"));
 
@@ -299,9 +499,8 @@ public class PfeManager implements IPfeService {
         livrable.setNotes(dto.getNotes());
         livrable.setSubmittedAt(LocalDateTime.now());
 
-        if (file != null && !file.isEmpty()) {
-            String filePath = fileStorageService.storeFile(file, "deliverables");
-            livrable.setFileUrl(filePath);
+        if (storeFile != null) {
+            livrable.setFileUrl(storeFile.get());
         }
 
         return livrableRepository.save(livrable);
@@ -314,7 +513,31 @@ public class PfeManager implements IPfeService {
 
     @Override
     public void deleteDeliverable(Long deliverableId) {
-        livrableRepository.deleteById(deliverableId);
+        livrableRepository.findById(deliverableId).ifPresent(livrable -> {
+            livrableRepository.delete(livrable);
+            releaseFile(livrable.getFileUrl());
+        });
+    }
+
+    /**
+     * Deletes a stored file once the transaction dropping a reference to it has committed. With the
+     * content-addressed storage the file is kept while other deliverables or projects still use it.
+     */
+    private void releaseFile(String filePath) {
+        int slash = filePath != null ? filePath.indexOf('/') : -1;
+        if (slash <= 0) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    fileStorageService.deleteFile(filePath.substring(slash + 1), filePath.substring(0, slash));
+                } catch (RuntimeException e) {
+                    log.warn("Could not delete {}: {}", filePath, e.getMessage());
+                }
+            }
+        });
     }
 
     @Override
@@ -0,0 +1,244 @@
+package ma.xproce.pfehub.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.xproce.pfehub.dao.entities.JuryMember;
+import ma.xproce.pfehub.dao.entities.JuryRole;
+import ma.xproce.pfehub.dao.entities.Soutenance;
+import ma.xproce.pfehub.dao.entities.SoutenanceStatus;
+import ma.xproce.pfehub.dao.repositories.JuryMemberRepository;
+import ma.xproce.pfehub.web.dto.ProfessorAgendaEntryDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory agenda of the professors sitting on juries: one interval tree per professor holding
+ * the defenses they are booked on, so a professor on two overlapping defenses is caught in
+ * O(log n) without querying the jury members of every defense.
+ * A proposed defense books its proposed slot, a validated or modified one its final slot;
+ * postponed defenses book nothing but keep their jury for when they are rescheduled.
+ * Changes are read from the defense when {@code reindex} is called, inside the writing transaction,
+ * and applied when the returned change runs, usually after commit when the project can no longer
+ * be loaded.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProfessorAgendaIndex {
+
+    private final JuryMemberRepository juryMemberRepository;
+
+    @Value("${defense.duration-minutes:60}")
+    private int durationMinutes;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Defense> defenses = new HashMap<>();
+    private final Map<Long, IntervalTree> professors = new HashMap<>();
+
+    /** A defense as seen from its jury: where and when it takes place (date null when unscheduled) and who sits on it. */
+    private record Defense(Long projectId, String projectTitle, SoutenanceStatus status,
+                           String room, LocalDate date, LocalTime time, Map<Long, JuryRole> jury) {
+
+        boolean booked() {
+            return date != null && time != null;
+        }
+
+        long start() {
+            return RoomOccupancyIndex.toMinutes(date, time);
+        }
+
+        Defense withJury(Map<Long, JuryRole> jury) {
+            return new Defense(projectId, projectTitle, status, room, date, time, jury);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        Map<Long, Defense> loaded = new HashMap<>();
+        for (Object[] row : juryMemberRepository.findProfessorSeats()) {
+            Defense defense = loaded.computeIfAbsent((Long) row[2], id -> defense(
+                    (SoutenanceStatus) row[3],
+                    (String) row[4], (LocalDate) row[5], (LocalTime) row[6],
+                    (String) row[7], (LocalDate) row[8], (LocalTime) row[9],
+                    (Long) row[10], (String) row[11], new LinkedHashMap<>()));
+            defense.jury().putIfAbsent((Long) row[0], (JuryRole) row[1]);
+        }
+        lock.writeLock().lock();
+        try {
+            defenses.clear();
+            professors.clear();
+            loaded.forEach(this::put);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Jury agenda built for {} professors over {} defenses", professors.size(), loaded.size());
+    }
+
+    /** The change re-indexing a defense whose jury was (re)assigned. */
+    public Runnable reindex(Soutenance soutenance, Collection<JuryMember> jury) {
+        Map<Long, JuryRole> professorRoles = new LinkedHashMap<>();
+        for (JuryMember member : jury) {
+            if (member.getProfessor() != null) {
+                professorRoles.putIfAbsent(member.getProfessor().getId(), member.getRole());
+            }
+        }
+        Long defenseId = soutenance.getId();
+        Defense defense = defense(soutenance, professorRoles);
+        return () -> {
+            lock.writeLock().lock();
+            try {
+                put(defenseId, defense);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        };
+    }
+
+    /** The change re-indexing a defense after a change of status, date, time or room, keeping its jury. */
+    public Runnable reindex(Soutenance soutenance) {
+        Long defenseId = soutenance.getId();
+        Defense defense = defense(soutenance, Map.of());
+        return () -> {
+            lock.writeLock().lock();
+            try {
+                Defense previous = defenses.get(defenseId);
+                put(defenseId, defense.withJury(previous != null ? previous.jury() : new LinkedHashMap<>()));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        };
+    }
+
+    public void remove(Long defenseId) {
+        lock.writeLock().lock();
+        try {
+            unbook(defenseId, defenses.remove(defenseId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Professors indexed on the jury of a defense. */
+    public Set<Long> getJury(Long defenseId) {
+        lock.readLock().lock();
+        try {
+            Defense defense = defenses.get(defenseId);
+            return defense == null ? Set.of() : Set.copyOf(defense.jury().keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of the defenses the professor is booked on that overlap a defense starting at
+     * {@code date}/{@code time}. {@code excludedDefenseId} (may be null) is ignored, for rescheduling a defense.
+     */
+    public List<Long> findConflicts(Long professorId, LocalDate date, LocalTime time, Long excludedDefenseId) {
+        long start = RoomOccupancyIndex.toMinutes(date, time);
+        List<Long> conflicts = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            IntervalTree tree = professors.get(professorId);
+            if (tree != null) {
+                tree.findOverlapping(start, start + durationMinutes, conflicts);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (excludedDefenseId != null) {
+            conflicts.remove(excludedDefenseId);
+        }
+        return conflicts;
+    }
+
+    /** The defenses the professor is booked on, in time order, optionally restricted to [from, to] (either may be null). */
+    public List<ProfessorAgendaEntryDTO> getAgenda(Long professorId, LocalDate from, LocalDate to) {
+        long start = from != null ? RoomOccupancyIndex.toMinutes(from, LocalTime.MIN) : Long.MIN_VALUE;
+        long end = to != null ? RoomOccupancyIndex.toMinutes(to.plusDays(1), LocalTime.MIN) : Long.MAX_VALUE;
+        List<ProfessorAgendaEntryDTO> agenda = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            IntervalTree tree = professors.get(professorId);
+            if (tree == null) {
+                return agenda;
+            }
+            List<Long> defenseIds = new ArrayList<>();
+            tree.findOverlapping(start, end, defenseIds);
+            for (Long defenseId : defenseIds) {
+                Defense defense = defenses.get(defenseId);
+                agenda.add(ProfessorAgendaEntryDTO.builder()
+                        .defenseId(defenseId)
+                        .projectId(defense.projectId())
+                        .projectTitle(defense.projectTitle())
+                        .status(defense.status())
+                        .role(defense.jury().get(professorId))
+                        .room(defense.room())
+                        .date(defense.date().toString())
+                        .time(defense.time().toString())
+                        .build());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        agenda.sort(Comparator.comparing(ProfessorAgendaEntryDTO::getDate).thenComparing(ProfessorAgendaEntryDTO::getTime));
+        return agenda;
+    }
+
+    private static Defense defense(Soutenance soutenance, Map<Long, JuryRole> jury) {
+        return defense(soutenance.getStatus(),
+                soutenance.getProposedRoom(), soutenance.getProposedDate(), soutenance.getProposedTime(),
+                soutenance.getFinalRoom(), soutenance.getFinalDate(), soutenance.getFinalTime(),
+                soutenance.getPfe().getId(), soutenance.getPfe().getTitle(), jury);
+    }
+
+    private static Defense defense(SoutenanceStatus status,
+                                   String proposedRoom, LocalDate proposedDate, LocalTime proposedTime,
+                                   String finalRoom, LocalDate finalDate, LocalTime finalTime,
+                                   Long projectId, String projectTitle, Map<Long, JuryRole> jury) {
+        return switch (status) {
+            case PROPOSEE -> new Defense(projectId, projectTitle, status, proposedRoom, proposedDate, proposedTime, jury);
+            case VALIDEE, MODIFIEE -> new Defense(projectId, projectTitle, status, finalRoom, finalDate, finalTime, jury);
+            default -> new Defense(projectId, projectTitle, status, null, null, null, jury);
+        };
+    }
+
+    private void put(Long defenseId, Defense defense) {
+        unbook(defenseId, defenses.put(defenseId, defense));
+        if (defense.booked()) {
+            long start = defense.start();
+            for (Long professorId : defense.jury().keySet()) {
+                professors.computeIfAbsent(professorId, id -> new IntervalTree())
+                        .insert(start, start + durationMinutes, defenseId);
+            }
+        }
+    }
+
+    private void unbook(Long defenseId, Defense defense) {
+        if (defense == null || !defense.booked()) {
+            return;
+        }
+        long start = defense.start();
+        for (Long professorId : defense.jury().keySet()) {
+            IntervalTree tree = professors.get(professorId);
+            tree.remove(start, defenseId);
+            if (tree.size() == 0) {
+                professors.remove(professorId);
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package ma.xproce.pfehub.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.xproce.pfehub.dao.entities.PFE;
+import ma.xproce.pfehub.dao.repositories.PfeRepository;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.StopFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.fr.FrenchAnalyzer;
+import org.apache.lucene.analysis.fr.FrenchLightStemFilter;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.util.ElisionFilter;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopScoreDocCollectorManager;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Embedded Lucene index over project title, keywords, objectives, description and the text of the
+ * proposal PDF, once {@link DocumentPreviewPipeline} has extracted it.
+ * Text is analyzed with French elision, stop words and light stemming, then accent-folded,
+ * so "énergie" and "energie" match. Results are ranked by relevance (BM25).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProjectSearchIndex {
+
+    private static final String ID = "id";
+    private static final String[] FIELDS = {"title", "keywords", "objectives", "description", "content"};
+    private static final Map<String, Float> BOOSTS = Map.of(
+            "title", 3f,
+            "keywords", 2f,
+            "objectives", 1f,
+            "description", 1f,
+            "content", 0.5f
+    );
+
+    private final PfeRepository pfeRepository;
+    private final IFileStorageService fileStorageService;
+
+    private final Analyzer analyzer = new FrenchFoldingAnalyzer();
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+
+    @PostConstruct
+    public void init() throws IOException {
+        writer = new IndexWriter(new ByteBuffersDirectory(), new IndexWriterConfig(analyzer));
+        searcherManager = new SearcherManager(writer, null);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try {
+            writer.deleteAll();
+            List<PFE> projects = pfeRepository.findAll();
+            for (PFE pfe : projects) {
+                writer.addDocument(toDocument(pfe));
+            }
+            searcherManager.maybeRefresh();
+            log.info("Project search index built for {} projects", projects.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not build project search index", e);
+        }
+    }
+
+    public void index(PFE pfe) {
+        try {
+            writer.updateDocument(new Term(ID, pfe.getId().toString()), toDocument(pfe));
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not index project " + pfe.getId(), e);
+        }
+    }
+
+    public void remove(Long projectId) {
+        try {
+            writer.deleteDocuments(new Term(ID, projectId.toString()));
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not remove project " + projectId + " from search index", e);
+        }
+    }
+
+    /**
+     * Returns the ids of the matching projects for the requested page, best match first.
+     * The page sort is ignored: results are always ordered by relevance.
+     */
+    public Page<Long> search(String text, Pageable pageable) {
+        // A blank search lists every project, as the LIKE '%%' it replaced did
+        Query query = new MatchAllDocsQuery();
+        if (text != null && !text.isBlank()) {
+            try {
+                query = new MultiFieldQueryParser(FIELDS, analyzer, BOOSTS).parse(MultiFieldQueryParser.escape(text));
+            } catch (ParseException e) {
+                throw new RuntimeException("Invalid search query: " + text, e);
+            }
+        }
+
+        IndexSearcher searcher = null;
+        try {
+            searcher = searcherManager.acquire();
+            int offset = pageable.isPaged() ? (int) pageable.getOffset() : 0;
+            int limit = pageable.isPaged() ? pageable.getPageSize() : Math.max(searcher.getIndexReader().numDocs(), 1);
+
+            TopDocs topDocs = searcher.search(query, new TopScoreDocCollectorManager(offset + limit, Integer.MAX_VALUE));
+            List<Long> ids = new ArrayList<>();
+            ScoreDoc[] hits = topDocs.scoreDocs;
+            for (int i = offset; i < hits.length; i++) {
+                ids.add(Long.valueOf(searcher.storedFields().document(hits[i].doc).get(ID)));
+            }
+            return new PageImpl<>(ids, pageable, topDocs.totalHits.value);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Project search failed", e);
+        } finally {
+            if (searcher != null) {
+                try {
+                    searcherManager.release(searcher);
+                } catch (IOException e) {
+                    log.warn("Could not release project searcher", e);
+                }
+            }
+        }
+    }
+
+    private Document toDocument(PFE pfe) {
+        Document doc = new Document();
+        doc.add(new StringField(ID, pfe.getId().toString(), Field.Store.YES));
+        addText(doc, "title", pfe.getTitle());
+        addText(doc, "keywords", pfe.getKeywords());
+        addText(doc, "objectives", pfe.getObjectives());
+        addText(doc, "description", pfe.getDescription());
+        addText(doc, "content", proposalText(pfe.getProposalFilePath()));
+        return doc;
+    }
+
+    private String proposalText(String filePath) {
+        int slash = filePath != null ? filePath.indexOf('/') : -1;
+        if (slash <= 0) {
+            return null;
+        }
+        try {
+            Path text = DocumentPreviewPipeline.textFile(
+                    fileStorageService.getFilePath(filePath.substring(slash + 1), filePath.substring(0, slash)));
+            return Files.isRegularFile(text) ? Files.readString(text) : null;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not read the text of {}: {}", filePath, e.getMessage());
+            return null;
+        }
+    }
+
+    private void addText(Document doc, String field, String value) {
+        if (value != null) {
+            doc.add(new TextField(field, value, Field.Store.NO));
+        }
+    }
+
+    private static final class FrenchFoldingAnalyzer extends Analyzer {
+
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            Tokenizer source = new StandardTokenizer();
+            TokenStream result = new ElisionFilter(source, FrenchAnalyzer.DEFAULT_ARTICLES);
+            result = new LowerCaseFilter(result);
+            result = new StopFilter(result, FrenchAnalyzer.getDefaultStopSet());
+            result = new FrenchLightStemFilter(result);
+            result = new ASCIIFoldingFilter(result);
+            return new TokenStreamComponents(source, result);
+        }
+
+        @Override
+        protected TokenStream normalize(String fieldName, TokenStream in) {
+            return new ASCIIFoldingFilter(new LowerCaseFilter(in));
+        }
+    }
+}
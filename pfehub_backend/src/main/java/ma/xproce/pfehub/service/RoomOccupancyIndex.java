@@ -0,0 +1,143 @@
+package ma.xproce.pfehub.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.xproce.pfehub.dao.entities.Soutenance;
+import ma.xproce.pfehub.dao.entities.SoutenanceStatus;
+import ma.xproce.pfehub.dao.repositories.SoutenanceRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory occupancy of the defense rooms: one interval tree per room holding the scheduled
+ * (validated or modified) defenses as [start, start + duration) in minutes, so overlapping slots
+ * are detected without touching the database. Room names are compared trimmed and case-insensitively.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RoomOccupancyIndex {
+
+    private final SoutenanceRepository soutenanceRepository;
+
+    @Value("${defense.duration-minutes:60}")
+    private int durationMinutes;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, IntervalTree> rooms = new HashMap<>();
+    private final Map<Long, Slot> slotsByDefenseId = new HashMap<>();
+
+    private record Slot(String room, long start) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Object[]> rows = soutenanceRepository.findScheduledSlots();
+        lock.writeLock().lock();
+        try {
+            rooms.clear();
+            slotsByDefenseId.clear();
+            for (Object[] row : rows) {
+                add((Long) row[0], (String) row[1], (LocalDate) row[2], (LocalTime) row[3]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Room occupancy built for {} defenses in {} rooms", slotsByDefenseId.size(), rooms.size());
+    }
+
+    /** Re-indexes a defense after a change of status, date, time or room. */
+    public void update(Soutenance soutenance) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(soutenance.getId());
+            if (isScheduled(soutenance)) {
+                add(soutenance.getId(), soutenance.getFinalRoom(), soutenance.getFinalDate(), soutenance.getFinalTime());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long defenseId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(defenseId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of the scheduled defenses whose slot overlaps a defense starting at {@code date}/{@code time}
+     * in {@code room}. {@code excludedDefenseId} (may be null) is ignored, for rescheduling a defense.
+     */
+    public List<Long> findConflicts(String room, LocalDate date, LocalTime time, Long excludedDefenseId) {
+        long start = toMinutes(date, time);
+        List<Long> conflicts = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            IntervalTree tree = rooms.get(roomKey(room));
+            if (tree != null) {
+                tree.findOverlapping(start, start + durationMinutes, conflicts);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (excludedDefenseId != null) {
+            conflicts.remove(excludedDefenseId);
+        }
+        return conflicts;
+    }
+
+    public int getDurationMinutes() {
+        return durationMinutes;
+    }
+
+    static String roomKey(String room) {
+        return room.trim().toLowerCase(Locale.ROOT);
+    }
+
+    static long toMinutes(LocalDate date, LocalTime time) {
+        return date.toEpochDay() * 24 * 60 + time.toSecondOfDay() / 60;
+    }
+
+    /** Whether the defense holds its room: validated or modified, with a final room, date and time. */
+    static boolean isScheduled(Soutenance soutenance) {
+        return (soutenance.getStatus() == SoutenanceStatus.VALIDEE || soutenance.getStatus() == SoutenanceStatus.MODIFIEE)
+                && soutenance.getFinalRoom() != null
+                && soutenance.getFinalDate() != null
+                && soutenance.getFinalTime() != null;
+    }
+
+    private void add(Long defenseId, String room, LocalDate date, LocalTime time) {
+        String key = roomKey(room);
+        long start = toMinutes(date, time);
+        rooms.computeIfAbsent(key, k -> new IntervalTree()).insert(start, start + durationMinutes, defenseId);
+        slotsByDefenseId.put(defenseId, new Slot(key, start));
+    }
+
+    private void removeInternal(Long defenseId) {
+        Slot slot = slotsByDefenseId.remove(defenseId);
+        if (slot == null) {
+            return;
+        }
+        IntervalTree tree = rooms.get(slot.room());
+        tree.remove(slot.start(), defenseId);
+        if (tree.size() == 0) {
+            rooms.remove(slot.room());
+        }
+    }
+}
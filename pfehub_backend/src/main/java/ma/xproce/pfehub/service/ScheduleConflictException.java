@@ -0,0 +1,12 @@
+package ma.xproce.pfehub.service;
+
+/**
+ * A defense slot refused because its room or one of its jury members is already taken by another
+ * defense at an overlapping time. Controllers answer it with 409 Conflict.
+ */
+public class ScheduleConflictException extends RuntimeException {
+
+    public ScheduleConflictException(String message) {
+        super(message);
+    }
+}
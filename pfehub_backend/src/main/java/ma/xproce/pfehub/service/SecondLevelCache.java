@@ -0,0 +1,51 @@
+package ma.xproce.pfehub.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The Hibernate second-level cache, which holds the reference data (departments, specialties,
+ * academic years) and the results of their lookups by code and of the current year.
+ * Writes made through the application need no eviction: each transaction updates the entity
+ * regions, and cached query results are dropped when a table they read is written. What Hibernate
+ * cannot see (the H2 console, an SQL script) is picked up after {@link #evictAll()}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SecondLevelCache {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    /** Counts since startup or the last statistics reset. */
+    public record RegionStats(String region, long hits, long misses, long puts) {
+    }
+
+    public List<RegionStats> stats() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        // Entity regions and the query results region; the update timestamps region keeps no counts
+        return Arrays.stream(statistics.getSecondLevelCacheRegionNames()).sorted()
+                .map(region -> stats(region, statistics.getCacheRegionStatistics(region)))
+                .toList();
+    }
+
+    public void evictAll() {
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        log.info("Second-level cache cleared");
+    }
+
+    private static RegionStats stats(String region, CacheRegionStatistics statistics) {
+        if (statistics == null) {
+            return new RegionStats(region, 0, 0, 0);
+        }
+        return new RegionStats(region, statistics.getHitCount(), statistics.getMissCount(), statistics.getPutCount());
+    }
+}
@@ -0,0 +1,12 @@
+package ma.xproce.pfehub.service;
+
+/**
+ * A request refused because the resource it needs is saturated; it can be retried shortly.
+ * Controllers answer it with 503 Service Unavailable.
+ */
+public class ServiceBusyException extends RuntimeException {
+
+    public ServiceBusyException(String message) {
+        super(message);
+    }
+}
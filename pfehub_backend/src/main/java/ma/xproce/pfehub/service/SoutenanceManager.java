@@ -5,16 +5,32 @@ import ma.xproce.pfehub.dao.entities.*;
 import ma.xproce.pfehub.dao.repositories.*;
 import ma.xproce.pfehub.web.dto.*;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 @Service
@@ -22,30 +38,62 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class SoutenanceManager implements ISoutenanceService {
 
+    private static final int MAX_SLOTS_PER_CHECK = 1000;
+
     private final SoutenanceRepository soutenanceRepository;
     private final PfeRepository pfeRepository;
     private final EncadrantRepository encadrantRepository;
     private final AdminRepository adminRepository;
     private final JuryMemberRepository juryMemberRepository;
+    private final LivrableRepository livrableRepository;
+    private final AnneeUniversitaireRepository anneeUniversitaireRepository;
+    private final RoomOccupancyIndex roomOccupancyIndex;
+    private final ProfessorAgendaIndex professorAgendaIndex;
+    private final DefenseScheduleJobs defenseScheduleJobs;
+    private final DefenseSlotLock defenseSlotLock;
 
     @Override
     public Optional<Soutenance> getDefenseById(Long id) {
-        return soutenanceRepository.findById(id);
+        return soutenanceRepository.findDetailById(id);
     }
 
     @Override
     public void deleteDefense(Long id) {
-        soutenanceRepository.deleteById(id);
+        soutenanceRepository.findById(id).ifPresent(soutenance -> {
+            // The project cascades to its defense and would otherwise save it again
+            soutenance.getPfe().setSoutenance(null);
+            soutenanceRepository.delete(soutenance);
+        });
+        AfterCommit.run(() -> roomOccupancyIndex.remove(id));
+        AfterCommit.run(() -> professorAgendaIndex.remove(id));
+    }
+
+    @Override
+    public Page<DefenseSummaryDTO> getAllDefenses(Pageable pageable) {
+        return soutenanceRepository.findSummaries(pageable);
     }
 
     @Override
-    public Page<Soutenance> getAllDefenses(Pageable pageable) {
-        return soutenanceRepository.findAll(pageable);
+    public Page<DefenseSummaryDTO> getDefensesByStatus(SoutenanceStatus status, Pageable pageable) {
+        return soutenanceRepository.findSummariesByStatus(status, pageable);
     }
 
     @Override
-    public Page<Soutenance> getDefensesByStatus(SoutenanceStatus status, Pageable pageable) {
-        return soutenanceRepository.findByStatus(status, pageable);
+    public CursorPageDTO<DefenseSummaryDTO> getDefensesAfter(SoutenanceStatus status, String cursor, int size) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        LocalDate finalDate = after.dateKey();
+        Pageable page = PageRequest.ofSize(size);
+        Slice<DefenseSummaryDTO> slice;
+        if (status != null) {
+            slice = finalDate == null
+                    ? soutenanceRepository.findSummariesByStatusAfterUnscheduled(status, after.id(), page)
+                    : soutenanceRepository.findSummariesByStatusAfter(status, finalDate, after.id(), page);
+        } else {
+            slice = finalDate == null
+                    ? soutenanceRepository.findSummariesAfterUnscheduled(after.id(), page)
+                    : soutenanceRepository.findSummariesAfter(finalDate, after.id(), page);
+        }
+        return CursorPageDTO.of(slice, d -> KeysetCursor.of(d.getFinalDate(), d.getId()));
     }
 
     @Override
@@ -80,13 +128,18 @@ public class SoutenanceManager implements ISoutenanceService {
 
     @Override
     public Soutenance proposeDefense(DefenseProposalDTO dto) {
-        PFE pfe = pfeRepository.findById(dto.getProjectId())
+        defenseSlotLock.holdUntilCompletion();
+        PFE pfe = pfeRepository.findDetailById(dto.getProjectId())
                 .orElseThrow(() -> new RuntimeException("Project not found"));
 
         // Check if defense already exists for this project
         if (soutenanceRepository.findByPfeId(dto.getProjectId()).isPresent()) {
             throw new RuntimeException("Defense already exists for this project");
         }
+        if (dto.getJuryMembers() != null) {
+            checkJuryAvailability(null, professorIds(dto.getJuryMembers()),
+                    LocalDate.parse(dto.getProposedDate()), LocalTime.parse(dto.getProposedTime()));
+        }
 
         Soutenance soutenance = new Soutenance();
         soutenance.setPfe(pfe);
@@ -104,29 +157,18 @@ public class SoutenanceManager implements ISoutenanceService {
         Soutenance savedSoutenance = soutenanceRepository.save(soutenance);
 
         // Add jury members
-        if (dto.getJuryMembers() != null) {
-            for (JuryMemberDTO juryDto : dto.getJuryMembers()) {
-                JuryMember juryMember = new JuryMember();
-                juryMember.setName(juryDto.getName());
-                juryMember.setEmail(juryDto.getEmail());
-                juryMember.setRole(juryDto.getRole());
-                juryMember.setSoutenance(savedSoutenance);
-                
-                if (juryDto.getProfessorId() != null) {
-                    encadrantRepository.findById(juryDto.getProfessorId())
-                            .ifPresent(juryMember::setProfessor);
-                }
-                
-                juryMemberRepository.save(juryMember);
-            }
-        }
+        List<JuryMember> jury = dto.getJuryMembers() != null
+                ? saveJury(savedSoutenance, dto.getJuryMembers())
+                : List.of();
+        AfterCommit.run(professorAgendaIndex.reindex(savedSoutenance, jury));
 
         return savedSoutenance;
     }
 
     @Override
     public Soutenance validateDefense(DefenseValidationDTO dto) {
-        Soutenance soutenance = soutenanceRepository.findById(dto.getDefenseId())
+        defenseSlotLock.holdUntilCompletion();
+        Soutenance soutenance = soutenanceRepository.findDetailById(dto.getDefenseId())
                 .orElseThrow(() -> new RuntimeException("Defense not found"));
 
         soutenance.setStatus(SoutenanceStatus.VALIDEE);
@@ -155,17 +197,25 @@ public class SoutenanceManager implements ISoutenanceService {
             soutenance.setNotes(dto.getNotes());
         }
 
-        // Update jury members if provided
+        checkRoomAvailability(soutenance);
+        // Update jury members if provided, otherwise the current jury must be free at the final slot
         if (dto.getJuryMembers() != null && !dto.getJuryMembers().isEmpty()) {
             updateJuryMembers(dto.getDefenseId(), dto.getJuryMembers());
+        } else {
+            checkJuryAvailability(soutenance.getId(), professorAgendaIndex.getJury(soutenance.getId()),
+                    soutenance.getFinalDate(), soutenance.getFinalTime());
         }
 
-        return soutenanceRepository.save(soutenance);
+        Soutenance saved = soutenanceRepository.save(soutenance);
+        AfterCommit.run(() -> roomOccupancyIndex.update(saved));
+        AfterCommit.run(professorAgendaIndex.reindex(saved));
+        return saved;
     }
 
     @Override
     public Soutenance modifyDefense(DefenseModificationDTO dto) {
-        Soutenance soutenance = soutenanceRepository.findById(dto.getDefenseId())
+        defenseSlotLock.holdUntilCompletion();
+        Soutenance soutenance = soutenanceRepository.findDetailById(dto.getDefenseId())
                 .orElseThrow(() -> new RuntimeException("Defense not found"));
 
         soutenance.setStatus(SoutenanceStatus.MODIFIEE);
@@ -174,17 +224,24 @@ public class SoutenanceManager implements ISoutenanceService {
         soutenance.setFinalRoom(dto.getFinalRoom());
         soutenance.setModificationReason(dto.getModificationReason());
 
-        // Update jury members if provided
+        checkRoomAvailability(soutenance);
+        // Update jury members if provided, otherwise the current jury must be free at the new slot
         if (dto.getJuryMembers() != null && !dto.getJuryMembers().isEmpty()) {
             updateJuryMembers(dto.getDefenseId(), dto.getJuryMembers());
+        } else {
+            checkJuryAvailability(soutenance.getId(), professorAgendaIndex.getJury(soutenance.getId()),
+                    soutenance.getFinalDate(), soutenance.getFinalTime());
         }
 
-        return soutenanceRepository.save(soutenance);
+        Soutenance saved = soutenanceRepository.save(soutenance);
+        AfterCommit.run(() -> roomOccupancyIndex.update(saved));
+        AfterCommit.run(professorAgendaIndex.reindex(saved));
+        return saved;
     }
 
     @Override
     public Soutenance rejectDefense(DefenseRejectionDTO dto) {
-        Soutenance soutenance = soutenanceRepository.findById(dto.getDefenseId())
+        Soutenance soutenance = soutenanceRepository.findDetailById(dto.getDefenseId())
                 .orElseThrow(() -> new RuntimeException("Defense not found"));
 
         soutenance.setStatus(SoutenanceStatus.REPORTEE);
@@ -195,12 +252,15 @@ public class SoutenanceManager implements ISoutenanceService {
         pfe.setStatus(PFEStatus.SOUMISSION_FINALE);
         pfeRepository.save(pfe);
 
-        return soutenanceRepository.save(soutenance);
+        Soutenance saved = soutenanceRepository.save(soutenance);
+        AfterCommit.run(() -> roomOccupancyIndex.update(saved));
+        AfterCommit.run(professorAgendaIndex.reindex(saved));
+        return saved;
     }
 
     @Override
     public Soutenance evaluateDefense(DefenseEvaluationDTO dto) {
-        Soutenance soutenance = soutenanceRepository.findById(dto.getDefenseId())
+        Soutenance soutenance = soutenanceRepository.findDetailById(dto.getDefenseId())
                 .orElseThrow(() -> new RuntimeException("Defense not found"));
 
         soutenance.setPresentationQuality(dto.getPresentationQuality());
@@ -236,41 +296,383 @@ public class SoutenanceManager implements ISoutenanceService {
 
     @Override
     public void updateJuryMembers(Long defenseId, List<JuryMemberDTO> juryMembers) {
-        Soutenance soutenance = soutenanceRepository.findById(defenseId)
+        defenseSlotLock.holdUntilCompletion();
+        Soutenance soutenance = soutenanceRepository.findDetailById(defenseId)
                 .orElseThrow(() -> new RuntimeException("Defense not found"));
 
+        // The new jury must be free at the slot the defense currently holds
+        boolean proposed = soutenance.getStatus() == SoutenanceStatus.PROPOSEE;
+        LocalDate date = proposed ? soutenance.getProposedDate() : soutenance.getFinalDate();
+        LocalTime time = proposed ? soutenance.getProposedTime() : soutenance.getFinalTime();
+        if (soutenance.getStatus() != SoutenanceStatus.REPORTEE && date != null && time != null) {
+            checkJuryAvailability(defenseId, professorIds(juryMembers), date, time);
+        }
+
         // Delete existing jury members
         juryMemberRepository.deleteBySoutenanceId(defenseId);
 
         // Add new jury members
+        List<JuryMember> jury = saveJury(soutenance, juryMembers);
+        AfterCommit.run(professorAgendaIndex.reindex(soutenance, jury));
+    }
+
+    /** Creates the jury of a defense: its professors are read in one query and the members inserted in one batch. */
+    private List<JuryMember> saveJury(Soutenance soutenance, List<JuryMemberDTO> juryMembers) {
+        Map<Long, Encadrant> professors = encadrantRepository.findAllById(professorIds(juryMembers)).stream()
+                .collect(Collectors.toMap(Encadrant::getId, professor -> professor));
+        List<JuryMember> jury = new ArrayList<>();
         for (JuryMemberDTO dto : juryMembers) {
             JuryMember juryMember = new JuryMember();
             juryMember.setName(dto.getName());
             juryMember.setEmail(dto.getEmail());
             juryMember.setRole(dto.getRole());
             juryMember.setSoutenance(soutenance);
-            
             if (dto.getProfessorId() != null) {
-                encadrantRepository.findById(dto.getProfessorId())
-                        .ifPresent(juryMember::setProfessor);
+                juryMember.setProfessor(professors.get(dto.getProfessorId()));
+            }
+            jury.add(juryMember);
+        }
+        return juryMemberRepository.saveAll(jury);
+    }
+
+    @Override
+    public List<ProfessorAgendaEntryDTO> getProfessorAgenda(Long professorId, LocalDate from, LocalDate to) {
+        return professorAgendaIndex.getAgenda(professorId, from, to);
+    }
+
+    private static List<Long> professorIds(List<JuryMemberDTO> juryMembers) {
+        return juryMembers.stream()
+                .map(JuryMemberDTO::getProfessorId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+    }
+
+    /** Rejects the jury if one of its professors is already booked on another defense overlapping the slot. */
+    private void checkJuryAvailability(Long defenseId, Collection<Long> professorIds, LocalDate date, LocalTime time) {
+        for (Long professorId : professorIds) {
+            List<Long> conflicts = professorAgendaIndex.findConflicts(professorId, date, time, defenseId);
+            if (!conflicts.isEmpty()) {
+                String professor = encadrantRepository.findById(professorId)
+                        .map(Encadrant::getFullName)
+                        .orElse("#" + professorId);
+                throw new ScheduleConflictException("Professor " + professor + " already sits on a jury on " + date + " at " + time
+                        + " (defense " + conflicts.get(0) + ")");
+            }
+        }
+    }
+
+    /** Rejects the final slot of a defense if its room is already taken by another defense overlapping it. */
+    private void checkRoomAvailability(Soutenance soutenance) {
+        if (!RoomOccupancyIndex.isScheduled(soutenance)) {
+            return;
+        }
+        List<Long> conflicts = roomOccupancyIndex.findConflicts(soutenance.getFinalRoom(),
+                soutenance.getFinalDate(), soutenance.getFinalTime(), soutenance.getId());
+        if (!conflicts.isEmpty()) {
+            throw new ScheduleConflictException("Room " + soutenance.getFinalRoom() + " is already taken on "
+                    + soutenance.getFinalDate() + " at " + soutenance.getFinalTime() + " (defense " + conflicts.get(0) + ")");
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public String startScheduleGeneration(DefenseScheduleRequestDTO dto) {
+        AnneeUniversitaire year = (dto.getAcademicYearId() != null
+                ? anneeUniversitaireRepository.findById(dto.getAcademicYearId())
+                : anneeUniversitaireRepository.findByIsCurrentTrue())
+                .orElseThrow(() -> new RuntimeException("Academic year not found"));
+        if (year.getDefenseStartDate() == null || year.getDefenseEndDate() == null) {
+            throw new RuntimeException("Defense period is not set for academic year " + year.getYear());
+        }
+        List<String> rooms = dto.getRooms() == null ? List.of() : dto.getRooms().stream()
+                .map(String::trim)
+                .filter(room -> !room.isEmpty())
+                .distinct()
+                .toList();
+        if (rooms.isEmpty()) {
+            throw new RuntimeException("At least one room is required");
+        }
+
+        int duration = roomOccupancyIndex.getDurationMinutes();
+        List<LocalDateTime> slotStarts = defenseSlots(year, dto, duration);
+        if (slotStarts.isEmpty()) {
+            throw new RuntimeException("No defense slot left in the defense period");
+        }
+
+        // Juries: the supervisor, plus the professors of a previous (postponed) defense
+        List<Object[]> projects = pfeRepository.findScheduleCandidates(PFEStatus.SOUMISSION_FINALE);
+        Map<Long, List<Long>> previousJuries = new HashMap<>();
+        for (Object[] seat : juryMemberRepository.findProfessorIdsByProjectStatus(PFEStatus.SOUMISSION_FINALE)) {
+            previousJuries.computeIfAbsent((Long) seat[0], id -> new ArrayList<>()).add((Long) seat[1]);
+        }
+        Map<Long, Integer> professorIndexes = new LinkedHashMap<>();
+        List<DefenseScheduleJobs.Candidate> candidates = new ArrayList<>();
+        int[][] juries = new int[projects.size()][];
+        for (int i = 0; i < projects.size(); i++) {
+            Long projectId = (Long) projects.get(i)[0];
+            Long supervisorId = (Long) projects.get(i)[2];
+            Set<Long> jury = new LinkedHashSet<>();
+            if (supervisorId != null) {
+                jury.add(supervisorId);
+            }
+            jury.addAll(previousJuries.getOrDefault(projectId, List.of()));
+            juries[i] = jury.stream()
+                    .mapToInt(id -> professorIndexes.computeIfAbsent(id, k -> professorIndexes.size()))
+                    .toArray();
+            candidates.add(new DefenseScheduleJobs.Candidate(projectId, (String) projects.get(i)[1], List.copyOf(jury)));
+        }
+
+        // Slots where each professor already sits on a jury, supervises a scheduled defense or declared being unavailable
+        Map<Long, List<LocalDateTime>> supervisedStarts = new HashMap<>();
+        if (!professorIndexes.isEmpty()) {
+            for (Object[] slot : soutenanceRepository.findScheduledSlotsByEncadrantIdIn(professorIndexes.keySet())) {
+                supervisedStarts.computeIfAbsent((Long) slot[0], id -> new ArrayList<>())
+                        .add(((LocalDate) slot[1]).atTime((LocalTime) slot[2]));
+            }
+        }
+        BitSet[] professorBusy = new BitSet[professorIndexes.size()];
+        professorIndexes.forEach((professorId, index) -> {
+            BitSet busy = new BitSet(slotStarts.size());
+            for (int t = 0; t < slotStarts.size(); t++) {
+                LocalDateTime start = slotStarts.get(t);
+                if (!professorAgendaIndex.findConflicts(professorId, start.toLocalDate(), start.toLocalTime(), null).isEmpty()) {
+                    busy.set(t);
+                }
+            }
+            for (LocalDateTime start : supervisedStarts.getOrDefault(professorId, List.of())) {
+                markOverlapping(busy, slotStarts, duration, start, start.plusMinutes(duration));
+            }
+            professorBusy[index] = busy;
+        });
+        if (dto.getUnavailabilities() != null) {
+            for (ProfessorUnavailabilityDTO unavailability : dto.getUnavailabilities()) {
+                Integer index = professorIndexes.get(unavailability.getProfessorId());
+                if (index == null) {
+                    continue;
+                }
+                LocalDate date = LocalDate.parse(unavailability.getDate());
+                LocalDateTime from = unavailability.getStartTime() != null
+                        ? date.atTime(LocalTime.parse(unavailability.getStartTime()))
+                        : date.atStartOfDay();
+                LocalDateTime to = unavailability.getEndTime() != null
+                        ? date.atTime(LocalTime.parse(unavailability.getEndTime()))
+                        : date.plusDays(1).atStartOfDay();
+                markOverlapping(professorBusy[index], slotStarts, duration, from, to);
+            }
+        }
+
+        boolean[][] roomBlocked = new boolean[slotStarts.size()][rooms.size()];
+        for (int t = 0; t < slotStarts.size(); t++) {
+            LocalDateTime start = slotStarts.get(t);
+            for (int r = 0; r < rooms.size(); r++) {
+                roomBlocked[t][r] = !roomOccupancyIndex
+                        .findConflicts(rooms.get(r), start.toLocalDate(), start.toLocalTime(), null)
+                        .isEmpty();
+            }
+        }
+
+        return defenseScheduleJobs.start(new DefenseScheduleJobs.Problem(
+                candidates, rooms, slotStarts, juries, professorBusy, roomBlocked));
+    }
+
+    @Override
+    public Optional<DefenseScheduleJobDTO> getScheduleJob(String jobId) {
+        return defenseScheduleJobs.find(jobId);
+    }
+
+    @Override
+    public List<Soutenance> applySchedule(String jobId) {
+        DefenseScheduleJobDTO job = defenseScheduleJobs.find(jobId)
+                .orElseThrow(() -> new RuntimeException("Schedule job not found"));
+        if (job.getStatus() != DefenseScheduleJobDTO.Status.COMPLETED) {
+            throw new RuntimeException("Schedule job is not completed");
+        }
+        defenseSlotLock.holdUntilCompletion();
+
+        // Check everything before writing anything: the schedule may be stale
+        Map<Long, PFE> projectsById = pfeRepository.findWithSupervisorAndDefenseByIdIn(job.getSchedule().stream()
+                        .map(ScheduledDefenseDTO::getProjectId)
+                        .toList())
+                .stream()
+                .collect(Collectors.toMap(PFE::getId, pfe -> pfe));
+        List<PFE> projects = new ArrayList<>();
+        for (ScheduledDefenseDTO scheduled : job.getSchedule()) {
+            PFE pfe = projectsById.get(scheduled.getProjectId());
+            if (pfe == null) {
+                throw new RuntimeException("Project not found: " + scheduled.getProjectId());
+            }
+            if (pfe.getStatus() != PFEStatus.SOUMISSION_FINALE) {
+                throw new RuntimeException("Project " + pfe.getId() + " is no longer awaiting a defense, generate the schedule again");
+            }
+            LocalDate date = LocalDate.parse(scheduled.getDate());
+            LocalTime time = LocalTime.parse(scheduled.getTime());
+            if (!roomOccupancyIndex.findConflicts(scheduled.getRoom(), date, time, null).isEmpty()) {
+                throw new ScheduleConflictException("Room " + scheduled.getRoom() + " is no longer free on " + scheduled.getDate()
+                        + " at " + scheduled.getTime() + ", generate the schedule again");
+            }
+            Long defenseId = pfe.getSoutenance() != null ? pfe.getSoutenance().getId() : null;
+            for (Long professorId : scheduled.getJuryProfessorIds()) {
+                if (!professorAgendaIndex.findConflicts(professorId, date, time, defenseId).isEmpty()) {
+                    throw new ScheduleConflictException("A jury member of project " + pfe.getId() + " is no longer free on "
+                            + scheduled.getDate() + " at " + scheduled.getTime() + ", generate the schedule again");
+                }
+            }
+            projects.add(pfe);
+        }
+
+        List<Soutenance> saved = new ArrayList<>();
+        List<JuryMember> seats = new ArrayList<>();
+        for (int i = 0; i < projects.size(); i++) {
+            ScheduledDefenseDTO scheduled = job.getSchedule().get(i);
+            PFE pfe = projects.get(i);
+            LocalDate date = LocalDate.parse(scheduled.getDate());
+            LocalTime time = LocalTime.parse(scheduled.getTime());
+
+            // A postponed defense is rescheduled with its jury, otherwise the supervisor sits alone
+            Soutenance soutenance = pfe.getSoutenance();
+            if (soutenance == null) {
+                soutenance = new Soutenance();
+                soutenance.setPfe(pfe);
+                soutenance.setProposedAt(LocalDateTime.now());
+            }
+            boolean isNew = soutenance.getId() == null;
+            soutenance.setProposedDate(date);
+            soutenance.setProposedTime(time);
+            soutenance.setProposedRoom(scheduled.getRoom());
+            soutenance.setFinalDate(date);
+            soutenance.setFinalTime(time);
+            soutenance.setFinalRoom(scheduled.getRoom());
+            soutenance.setStatus(SoutenanceStatus.VALIDEE);
+            soutenance.setValidatedAt(LocalDateTime.now());
+
+            pfe.setStatus(PFEStatus.SOUTENANCE_PLANIFIEE);
+            pfeRepository.save(pfe);
+            Soutenance savedSoutenance = soutenanceRepository.save(soutenance);
+
+            if (isNew && pfe.getEncadrant() != null) {
+                JuryMember supervisor = new JuryMember();
+                supervisor.setName(pfe.getEncadrant().getFullName());
+                supervisor.setEmail(pfe.getEncadrant().getEmail());
+                supervisor.setRole(JuryRole.EXAMINATEUR);
+                supervisor.setProfessor(pfe.getEncadrant());
+                supervisor.setSoutenance(savedSoutenance);
+                seats.add(supervisor);
+                AfterCommit.run(professorAgendaIndex.reindex(savedSoutenance, List.of(supervisor)));
+            } else {
+                AfterCommit.run(professorAgendaIndex.reindex(savedSoutenance));
+            }
+            AfterCommit.run(() -> roomOccupancyIndex.update(savedSoutenance));
+            saved.add(savedSoutenance);
+        }
+        juryMemberRepository.saveAll(seats);
+        return saved;
+    }
+
+    /** Start times of the defense grid: every working day of the period, from dayStart until dayEnd. */
+    private static List<LocalDateTime> defenseSlots(AnneeUniversitaire year, DefenseScheduleRequestDTO dto, int duration) {
+        LocalTime dayStart = LocalTime.parse(dto.getDayStart());
+        LocalTime dayEnd = LocalTime.parse(dto.getDayEnd());
+        LocalDateTime now = LocalDateTime.now();
+        List<LocalDateTime> slots = new ArrayList<>();
+        for (LocalDate day = year.getDefenseStartDate(); !day.isAfter(year.getDefenseEndDate()); day = day.plusDays(1)) {
+            boolean weekend = day.getDayOfWeek() == DayOfWeek.SATURDAY || day.getDayOfWeek() == DayOfWeek.SUNDAY;
+            if (weekend && !dto.isIncludeWeekends()) {
+                continue;
+            }
+            for (LocalDateTime start = day.atTime(dayStart);
+                 !start.plusMinutes(duration).isAfter(day.atTime(dayEnd));
+                 start = start.plusMinutes(duration)) {
+                if (start.isAfter(now)) {
+                    slots.add(start);
+                }
+            }
+        }
+        return slots;
+    }
+
+    private static void markOverlapping(BitSet busy, List<LocalDateTime> slotStarts, int duration,
+                                        LocalDateTime from, LocalDateTime to) {
+        for (int t = 0; t < slotStarts.size(); t++) {
+            LocalDateTime start = slotStarts.get(t);
+            if (start.isBefore(to) && start.plusMinutes(duration).isAfter(from)) {
+                busy.set(t);
             }
-            
-            juryMemberRepository.save(juryMember);
         }
     }
 
     @Override
     public boolean hasConflict(String room, LocalDate date, String time) {
-        List<Soutenance> conflicts = soutenanceRepository.findByRoomAndDate(room, date);
-        LocalTime checkTime = LocalTime.parse(time);
-        
-        for (Soutenance s : conflicts) {
-            if (s.getFinalTime() != null && s.getFinalTime().equals(checkTime)) {
-                return true;
+        return !roomOccupancyIndex.findConflicts(room, date, LocalTime.parse(time), null).isEmpty();
+    }
+
+    @Override
+    public List<SlotConflictDTO> checkSlots(List<ProposedSlotDTO> slots) {
+        if (slots.size() > MAX_SLOTS_PER_CHECK) {
+            throw new RuntimeException("Too many slots to check at once (max " + MAX_SLOTS_PER_CHECK + ")");
+        }
+        int duration = roomOccupancyIndex.getDurationMinutes();
+        long[] starts = new long[slots.size()];
+        Map<String, List<Integer>> slotsByRoom = new HashMap<>();
+        Map<Long, List<Integer>> slotsByProfessor = new HashMap<>();
+        List<Set<Integer>> batchConflicts = new ArrayList<>();
+        for (int i = 0; i < slots.size(); i++) {
+            ProposedSlotDTO slot = slots.get(i);
+            starts[i] = RoomOccupancyIndex.toMinutes(LocalDate.parse(slot.getDate()), LocalTime.parse(slot.getTime()));
+            slotsByRoom.computeIfAbsent(RoomOccupancyIndex.roomKey(slot.getRoom()), k -> new ArrayList<>()).add(i);
+            if (slot.getProfessorIds() != null) {
+                for (Long professorId : new LinkedHashSet<>(slot.getProfessorIds())) {
+                    slotsByProfessor.computeIfAbsent(professorId, k -> new ArrayList<>()).add(i);
+                }
             }
+            batchConflicts.add(new TreeSet<>());
         }
-        
-        return false;
+
+        // Proposed slots against each other: sweep every room and every professor in start order
+        List<List<Integer>> groups = new ArrayList<>(slotsByRoom.values());
+        groups.addAll(slotsByProfessor.values());
+        for (List<Integer> group : groups) {
+            group.sort(Comparator.comparingLong(i -> starts[i]));
+            List<Integer> running = new ArrayList<>();
+            for (int i : group) {
+                running.removeIf(j -> starts[j] + duration <= starts[i]);
+                for (int j : running) {
+                    batchConflicts.get(i).add(j);
+                    batchConflicts.get(j).add(i);
+                }
+                running.add(i);
+            }
+        }
+
+        // Proposed slots against the scheduled defenses and the jury agendas
+        List<SlotConflictDTO> results = new ArrayList<>();
+        for (int i = 0; i < slots.size(); i++) {
+            ProposedSlotDTO slot = slots.get(i);
+            LocalDate date = LocalDate.parse(slot.getDate());
+            LocalTime time = LocalTime.parse(slot.getTime());
+            List<Long> defenseIds = roomOccupancyIndex.findConflicts(slot.getRoom(), date, time, slot.getDefenseId());
+            Map<Long, List<Long>> professorConflicts = new LinkedHashMap<>();
+            if (slot.getProfessorIds() != null) {
+                for (Long professorId : slot.getProfessorIds()) {
+                    List<Long> booked = professorAgendaIndex.findConflicts(professorId, date, time, slot.getDefenseId());
+                    if (!booked.isEmpty()) {
+                        professorConflicts.put(professorId, booked);
+                    }
+                }
+            }
+            List<Integer> slotIndexes = new ArrayList<>(batchConflicts.get(i));
+            results.add(SlotConflictDTO.builder()
+                    .index(i)
+                    .room(slot.getRoom())
+                    .date(slot.getDate())
+                    .time(slot.getTime())
+                    .conflict(!defenseIds.isEmpty() || !slotIndexes.isEmpty() || !professorConflicts.isEmpty())
+                    .conflictingDefenseIds(defenseIds)
+                    .conflictingSlotIndexes(slotIndexes)
+                    .professorConflicts(professorConflicts)
+                    .build());
+        }
+        return results;
     }
 
     @Override
@@ -278,6 +680,64 @@ public class SoutenanceManager implements ISoutenanceService {
         return soutenanceRepository.findByRoomAndDate(room, date);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<BundleEntryDTO> getDefenseBundle(Long defenseId) {
+        Soutenance soutenance = soutenanceRepository.findById(defenseId)
+                .orElseThrow(() -> new RuntimeException("Defense not found"));
+        List<BundleEntryDTO> entries = new ArrayList<>();
+        addBundleEntries(soutenance.getPfe(), "", entries, new HashSet<>());
+        return entries;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<BundleEntryDTO> getRoomDayBundle(String room, LocalDate date) {
+        DateTimeFormatter timeFormat = DateTimeFormatter.ofPattern("HH'h'mm");
+        List<BundleEntryDTO> entries = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        soutenanceRepository.findByRoomAndDate(room, date).stream()
+                .filter(RoomOccupancyIndex::isScheduled)
+                .sorted(Comparator.comparing(Soutenance::getFinalTime))
+                .forEach(soutenance -> {
+                    Etudiant etudiant = soutenance.getPfe().getEtudiant();
+                    String folder = soutenance.getFinalTime().format(timeFormat) + " - "
+                            + etudiant.getLastName() + " " + etudiant.getFirstName();
+                    addBundleEntries(soutenance.getPfe(), bundleName(folder) + "/", entries, names);
+                });
+        return entries;
+    }
+
+    /** The final report (or the proposal, before the final submission) and the deliverables of a project. */
+    private void addBundleEntries(PFE pfe, String folder, List<BundleEntryDTO> entries, Set<String> names) {
+        if (pfe.getProposalFilePath() != null) {
+            String title = pfe.getFinalSubmittedAt() != null ? "final-report" : "proposal";
+            entries.add(bundleEntry(folder, title, pfe.getProposalFilePath(), names));
+        }
+        for (Livrable livrable : livrableRepository.findByPfeId(pfe.getId())) {
+            if (livrable.getFileUrl() != null) {
+                entries.add(bundleEntry(folder, livrable.getType() + " - " + livrable.getTitle(), livrable.getFileUrl(), names));
+            }
+        }
+    }
+
+    /** An entry named after {@code title} with the stored file's extension, numbered if the name is taken. */
+    private static BundleEntryDTO bundleEntry(String folder, String title, String filePath, Set<String> names) {
+        int dot = filePath.lastIndexOf('.');
+        String extension = dot > filePath.lastIndexOf('/') ? filePath.substring(dot) : "";
+        String base = folder + bundleName(title);
+        String name = base + extension;
+        for (int i = 2; !names.add(name); i++) {
+            name = base + " (" + i + ")" + extension;
+        }
+        return new BundleEntryDTO(name, filePath);
+    }
+
+    private static String bundleName(String title) {
+        String name = title.replaceAll("[\\\\/:*?\"<>|\\p{Cntrl}]", "_").trim();
+        return name.length() > 100 ? name.substring(0, 100).trim() : name;
+    }
+
     @Override
     public long countByStatus(SoutenanceStatus status) {
         return soutenanceRepository.countByStatus(status);
@@ -0,0 +1,115 @@
+package ma.xproce.pfehub.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.xproce.pfehub.dao.repositories.LivrableRepository;
+import ma.xproce.pfehub.dao.repositories.PfeRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Moves the files written by {@link FileStorageManager} into the content-addressed store and
+ * repoints the deliverables and projects referring to them. Each file is copied into the store,
+ * its references are updated in their own transaction, and only then is the old file deleted, so
+ * an interrupted run loses nothing and can simply be started again.
+ */
+@Component
+@ConditionalOnProperty(name = "file.storage", havingValue = "content-addressed")
+@RequiredArgsConstructor
+@Slf4j
+public class StorageMigrationJob {
+
+    private final ContentAddressedStorageManager storage;
+    private final LivrableRepository livrableRepository;
+    private final PfeRepository pfeRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${file.storage.migrate-on-startup:false}")
+    private boolean migrateOnStartup;
+
+    /**
+     * @param migrated       files moved into the store as new blobs
+     * @param deduplicated   files whose content was already stored, now sharing that blob
+     * @param missing        referenced files not found on disk, left as they are
+     * @param bytesReclaimed size of the deduplicated files
+     */
+    public record Report(int migrated, int deduplicated, int missing, long bytesReclaimed) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        if (migrateOnStartup) {
+            migrate();
+        }
+    }
+
+    public synchronized Report migrate() {
+        String prefix = ContentAddressedStorageManager.BLOBS + "/";
+        Set<String> paths = new TreeSet<>(livrableRepository.findFileUrlsNotStartingWith(prefix));
+        paths.addAll(pfeRepository.findProposalFilePathsNotStartingWith(prefix));
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        int migrated = 0;
+        int deduplicated = 0;
+        int missing = 0;
+        long bytesReclaimed = 0;
+        for (String path : paths) {
+            Path file = legacyFile(path);
+            if (file == null || !Files.isRegularFile(file)) {
+                log.warn("Storage migration: {} not found", path);
+                missing++;
+                continue;
+            }
+            try {
+                long size = Files.size(file);
+                ContentAddressedStorageManager.Blob blob;
+                try (InputStream in = Files.newInputStream(file)) {
+                    blob = storage.store(in, file.getFileName().toString());
+                }
+                transaction.executeWithoutResult(status -> {
+                    livrableRepository.replaceFileUrl(path, blob.path());
+                    pfeRepository.replaceProposalFilePath(path, blob.path());
+                });
+                Files.delete(file);
+                eventPublisher.publishEvent(new StoredFileEvent(path, file, true));
+                if (blob.created()) {
+                    migrated++;
+                } else {
+                    deduplicated++;
+                    bytesReclaimed += size;
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Storage migration failed on " + path, e);
+            }
+        }
+        log.info("Storage migration: {} files migrated, {} deduplicated ({} bytes reclaimed), {} missing",
+                migrated, deduplicated, bytesReclaimed, missing);
+        return new Report(migrated, deduplicated, missing, bytesReclaimed);
+    }
+
+    private Path legacyFile(String path) {
+        int slash = path.indexOf('/');
+        if (slash <= 0) {
+            return null;
+        }
+        try {
+            return storage.legacyPath(path.substring(slash + 1), path.substring(0, slash));
+        } catch (RuntimeException e) {
+            return null; // Points outside the upload directory
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package ma.xproce.pfehub.service;
+
+import java.nio.file.Path;
+
+/**
+ * Published by the storage when a file is added or removed.
+ *
+ * @param filePath the stored path, as returned by {@link IFileStorageService#storeFile}
+ * @param file     where the file is (or was) on disk
+ * @param deleted  true when the file was removed
+ */
+public record StoredFileEvent(String filePath, Path file, boolean deleted) {
+}
@@ -5,9 +5,11 @@ import ma.xproce.pfehub.dao.entities.*;
 import ma.xproce.pfehub.dao.repositories.*;
 import ma.xproce.pfehub.web.dto.*;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
@@ -25,22 +27,33 @@ public class UserManager implements IUserService {
     private final DepartementRepository departementRepository;
     private final SpecialiteRepository specialiteRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ExpertiseIndex expertiseIndex;
+    private final UserSearchIndex userSearchIndex;
+    private final PasswordVerificationPool passwordVerificationPool;
 
+    // No transaction: a login waiting for the hashing pool must not hold a database connection
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Optional<AppUser> authenticate(String email, String password) {
         Optional<AppUser> userOpt = appUserRepository.findByEmail(email);
-        if (userOpt.isPresent()) {
+        String encodedPassword = userOpt.map(AppUser::getPassword).orElse(null);
+        PasswordVerificationPool.Verification verification = passwordVerificationPool.verify(password, encodedPassword);
+        if (!verification.matches()) {
+            return Optional.empty();
+        }
+        if (verification.upgradedHash() != null) {
             AppUser user = userOpt.get();
-            if (passwordEncoder.matches(password, user.getPassword())) {
-                return Optional.of(user);
+            // Only if the password wasn't changed in the meantime
+            if (appUserRepository.replacePassword(user.getId(), encodedPassword, verification.upgradedHash()) > 0) {
+                user.setPassword(verification.upgradedHash());
             }
         }
-        return Optional.empty();
+        return userOpt;
     }
 
     @Override
     public AppUser getCurrentUser(Long userId) {
-        return appUserRepository.findById(userId)
+        return appUserRepository.findProfileById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
     }
 
@@ -49,9 +62,16 @@ public class UserManager implements IUserService {
         return appUserRepository.findAll(pageable);
     }
 
+    @Override
+    public CursorPageDTO<AppUser> getUsersAfter(String cursor, int size) {
+        long afterId = KeysetCursor.decode(cursor).id();
+        return CursorPageDTO.of(appUserRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.ofSize(size)),
+                u -> KeysetCursor.of(null, u.getId()));
+    }
+
     @Override
     public Optional<AppUser> getUserById(Long id) {
-        return appUserRepository.findById(id);
+        return appUserRepository.findProfileById(id);
     }
 
     @Override
@@ -62,6 +82,13 @@ public class UserManager implements IUserService {
     @Override
     public void deleteUser(Long id) {
         appUserRepository.deleteById(id);
+        AfterCommit.run(() -> expertiseIndex.remove(id));
+        AfterCommit.run(() -> userSearchIndex.remove(id));
+    }
+
+    @Override
+    public List<UserSuggestionDTO> autocompleteUsers(String query, UserRole role, int limit) {
+        return userSearchIndex.suggest(query, role, limit);
     }
 
     @Override
@@ -88,12 +115,14 @@ public class UserManager implements IUserService {
                     .ifPresent(etudiant::setSpecialite);
         }
 
-        return etudiantRepository.save(etudiant);
+        Etudiant saved = etudiantRepository.save(etudiant);
+        AfterCommit.run(() -> userSearchIndex.index(saved));
+        return saved;
     }
 
     @Override
     public Etudiant updateStudent(Long id, UpdateStudentDTO dto) {
-        Etudiant etudiant = etudiantRepository.findById(id)
+        Etudiant etudiant = etudiantRepository.findProfileById(id)
                 .orElseThrow(() -> new RuntimeException("Student not found"));
 
         if (dto.getFirstName() != null) etudiant.setFirstName(dto.getFirstName());
@@ -111,12 +140,14 @@ public class UserManager implements IUserService {
                     .ifPresent(etudiant::setSpecialite);
         }
 
-        return etudiantRepository.save(etudiant);
+        Etudiant saved = etudiantRepository.save(etudiant);
+        AfterCommit.run(() -> userSearchIndex.index(saved));
+        return saved;
     }
 
     @Override
-    public List<Etudiant> getAllStudents() {
-        return etudiantRepository.findAll();
+    public List<StudentSummaryDTO> getAllStudents() {
+        return etudiantRepository.findSummaries();
     }
 
     @Override
@@ -124,9 +155,16 @@ public class UserManager implements IUserService {
         return etudiantRepository.searchStudents(search, pageable);
     }
 
+    @Override
+    public CursorPageDTO<Etudiant> searchStudentsAfter(String search, String cursor, int size) {
+        long afterId = KeysetCursor.decode(cursor).id();
+        return CursorPageDTO.of(etudiantRepository.searchStudentsAfter(search, afterId, PageRequest.ofSize(size)),
+                e -> KeysetCursor.of(null, e.getId()));
+    }
+
     @Override
     public Optional<Etudiant> getStudentById(Long id) {
-        return etudiantRepository.findById(id);
+        return etudiantRepository.findProfileById(id);
     }
 
     @Override
@@ -153,12 +191,15 @@ public class UserManager implements IUserService {
                     .ifPresent(encadrant::setSpecialite);
         }
 
-        return encadrantRepository.save(encadrant);
+        Encadrant saved = encadrantRepository.save(encadrant);
+        AfterCommit.run(() -> expertiseIndex.index(saved));
+        AfterCommit.run(() -> userSearchIndex.index(saved));
+        return saved;
     }
 
     @Override
     public Encadrant updateProfessor(Long id, UpdateProfessorDTO dto) {
-        Encadrant encadrant = encadrantRepository.findById(id)
+        Encadrant encadrant = encadrantRepository.findProfileById(id)
                 .orElseThrow(() -> new RuntimeException("Professor not found"));
 
         if (dto.getFirstName() != null) encadrant.setFirstName(dto.getFirstName());
@@ -176,7 +217,10 @@ public class UserManager implements IUserService {
                     .ifPresent(encadrant::setSpecialite);
         }
 
-        return encadrantRepository.save(encadrant);
+        Encadrant saved = encadrantRepository.save(encadrant);
+        AfterCommit.run(() -> expertiseIndex.index(saved));
+        AfterCommit.run(() -> userSearchIndex.index(saved));
+        return saved;
     }
 
     @Override
@@ -194,9 +238,16 @@ public class UserManager implements IUserService {
         return encadrantRepository.searchProfessors(search, pageable);
     }
 
+    @Override
+    public CursorPageDTO<Encadrant> searchProfessorsAfter(String search, String cursor, int size) {
+        long afterId = KeysetCursor.decode(cursor).id();
+        return CursorPageDTO.of(encadrantRepository.searchProfessorsAfter(search, afterId, PageRequest.ofSize(size)),
+                e -> KeysetCursor.of(null, e.getId()));
+    }
+
     @Override
     public Optional<Encadrant> getProfessorById(Long id) {
-        return encadrantRepository.findById(id);
+        return encadrantRepository.findProfileById(id);
     }
 
     @Override
@@ -213,7 +264,9 @@ public class UserManager implements IUserService {
         admin.setPermissions(dto.getPermissions());
         admin.setRole(UserRole.ADMIN);
 
-        return adminRepository.save(admin);
+        Admin saved = adminRepository.save(admin);
+        AfterCommit.run(() -> userSearchIndex.index(saved));
+        return saved;
     }
 
     @Override
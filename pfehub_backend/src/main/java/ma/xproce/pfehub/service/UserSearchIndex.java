@@ -0,0 +1,383 @@
+package ma.xproce.pfehub.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.xproce.pfehub.dao.entities.AppUser;
+import ma.xproce.pfehub.dao.entities.Etudiant;
+import ma.xproce.pfehub.dao.entities.UserRole;
+import ma.xproce.pfehub.dao.repositories.AppUserRepository;
+import ma.xproce.pfehub.web.dto.UserSuggestionDTO;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory trigram index over user names, email and student number for the admin type-ahead.
+ * Queries of three characters or more match anywhere in a field (like the LIKE '%q%' searches);
+ * shorter queries match the start of a word. Every term of the query must match.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserSearchIndex {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern WORD_SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final int[] EMPTY = new int[0];
+
+    private final AppUserRepository appUserRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Posting> postings = new HashMap<>();
+    private final Map<Long, Integer> slotByUserId = new HashMap<>();
+    private final List<Entry> slots = new ArrayList<>();
+    private final List<Integer> freeSlots = new ArrayList<>();
+    // Position of every slot in (lastName, firstName, id) order, recomputed lazily after writes
+    private int[] ordinalBySlot = EMPTY;
+    private int[] slotByOrdinal = EMPTY;
+    private boolean orderStale;
+
+    private record Entry(Long id, String firstName, String lastName, String email, UserRole role,
+                         String numeroEtudiant, String[] fields) {
+    }
+
+    /** Growable list of slot numbers for one trigram. */
+    private static final class Posting {
+        private int[] slots = new int[4];
+        private int size;
+
+        void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+
+        void remove(int slot) {
+            for (int i = 0; i < size; i++) {
+                if (slots[i] == slot) {
+                    slots[i] = slots[--size];
+                    return;
+                }
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Object[]> rows = appUserRepository.findSearchableFields();
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            slotByUserId.clear();
+            slots.clear();
+            freeSlots.clear();
+            for (Object[] row : rows) {
+                add((Long) row[0], (String) row[1], (String) row[2], (String) row[3], (UserRole) row[4], (String) row[5]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("User search index built for {} users ({} grams)", rows.size(), postings.size());
+    }
+
+    public void index(AppUser user) {
+        String numeroEtudiant = user instanceof Etudiant etudiant ? etudiant.getNumeroEtudiant() : null;
+        lock.writeLock().lock();
+        try {
+            removeInternal(user.getId());
+            add(user.getId(), user.getFirstName(), user.getLastName(), user.getEmail(), user.getRole(), numeroEtudiant);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long userId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<UserSuggestionDTO> suggest(String query, UserRole role, int limit) {
+        String[] terms = normalize(query).trim().split("\\s+");
+        if (terms.length == 0 || terms[0].isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        // A single term of up to three characters is its own gram, so its posting needs no verification
+        boolean exact = terms.length == 1 && terms[0].length() <= 3;
+
+        List<Entry> found = new ArrayList<>();
+        lockForSearch();
+        try {
+            // Scan the rarest gram of all terms, then verify every term on each candidate
+            Posting rarest = null;
+            for (String term : terms) {
+                for (String gram : queryGrams(term)) {
+                    Posting posting = postings.get(gram);
+                    if (posting == null) {
+                        return List.of();
+                    }
+                    if (rarest == null || posting.size < rarest.size) {
+                        rarest = posting;
+                    }
+                }
+            }
+            if (rarest == null) {
+                return List.of();
+            }
+
+            // Bounded max-heap of (rank << 32 | ordinal): the root is the worst suggestion kept so far
+            long[] heap = new long[limit];
+            int size = 0;
+            String first = terms[0];
+            for (int i = 0; i < rarest.size; i++) {
+                int slot = rarest.slots[i];
+                long ordinal = ordinalBySlot[slot];
+                long worst = size == limit ? heap[0] : Long.MAX_VALUE;
+                if (ordinal >= worst) {
+                    continue;
+                }
+                Entry entry = slots.get(slot);
+                if (role != null && entry.role() != role) {
+                    continue;
+                }
+                // Bound the rank cheaply before verifying the terms
+                long key = fieldPrefix(entry, first) ? ordinal : (1L << 32) | ordinal;
+                if (key >= worst || (!exact && !matchesAll(entry, terms))) {
+                    continue;
+                }
+                if (key >= (1L << 32) && !startsAnyWord(entry, first)) {
+                    key += 1L << 32;
+                    if (key >= worst) {
+                        continue;
+                    }
+                }
+                if (size == limit) {
+                    siftDown(heap, size, key);
+                } else {
+                    siftUp(heap, size++, key);
+                }
+            }
+
+            long[] ordered = Arrays.copyOf(heap, size);
+            Arrays.sort(ordered);
+            for (long key : ordered) {
+                found.add(slots.get(slotByOrdinal[(int) key]));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return found.stream()
+                .map(e -> UserSuggestionDTO.builder()
+                        .id(e.id())
+                        .fullName(e.firstName() + " " + e.lastName())
+                        .email(e.email())
+                        .role(e.role())
+                        .numeroEtudiant(e.numeroEtudiant())
+                        .build())
+                .toList();
+    }
+
+    /** Takes the read lock, first refreshing the name order if a write made it stale. */
+    private void lockForSearch() {
+        lock.readLock().lock();
+        if (!orderStale) {
+            return;
+        }
+        lock.readLock().unlock();
+        lock.writeLock().lock();
+        try {
+            if (orderStale) {
+                refreshOrder();
+            }
+            lock.readLock().lock();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void refreshOrder() {
+        Comparator<Integer> byName = Comparator.<Integer, String>comparing(slot -> slots.get(slot).fields()[1])
+                .thenComparing(slot -> slots.get(slot).fields()[0])
+                .thenComparing(slot -> slots.get(slot).id());
+        List<Integer> live = new ArrayList<>(slotByUserId.values());
+        live.sort(byName);
+        ordinalBySlot = new int[slots.size()];
+        slotByOrdinal = new int[live.size()];
+        for (int ordinal = 0; ordinal < live.size(); ordinal++) {
+            ordinalBySlot[live.get(ordinal)] = ordinal;
+            slotByOrdinal[ordinal] = live.get(ordinal);
+        }
+        orderStale = false;
+    }
+
+    private static void siftUp(long[] heap, int i, long key) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] >= key) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = key;
+    }
+
+    /** Replaces the root with {@code key} and restores the heap. */
+    private static void siftDown(long[] heap, int size, long key) {
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1] > heap[child]) {
+                child++;
+            }
+            if (heap[child] <= key) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = key;
+    }
+
+    private void add(Long id, String firstName, String lastName, String email, UserRole role, String numeroEtudiant) {
+        String[] fields = {normalize(firstName), normalize(lastName), normalize(email), normalize(numeroEtudiant)};
+        int slot = freeSlots.isEmpty() ? slots.size() : freeSlots.remove(freeSlots.size() - 1);
+        Entry entry = new Entry(id, firstName, lastName, email, role, numeroEtudiant, fields);
+        if (slot == slots.size()) {
+            slots.add(entry);
+        } else {
+            slots.set(slot, entry);
+        }
+        slotByUserId.put(id, slot);
+        orderStale = true;
+        for (String gram : grams(fields)) {
+            postings.computeIfAbsent(gram, g -> new Posting()).add(slot);
+        }
+    }
+
+    private void removeInternal(Long userId) {
+        Integer slot = slotByUserId.remove(userId);
+        if (slot == null) {
+            return;
+        }
+        for (String gram : grams(slots.get(slot).fields())) {
+            Posting posting = postings.get(gram);
+            posting.remove(slot);
+            if (posting.size == 0) {
+                postings.remove(gram);
+            }
+        }
+        slots.set(slot, null);
+        freeSlots.add(slot);
+        orderStale = true;
+    }
+
+    /** Trigrams of every field, plus padded 1- and 2-character word starts for short queries. */
+    private static Set<String> grams(String[] fields) {
+        Set<String> grams = new HashSet<>();
+        for (String field : fields) {
+            for (int i = 0; i + 3 <= field.length(); i++) {
+                grams.add(field.substring(i, i + 3));
+            }
+            for (String word : WORD_SEPARATORS.split(field)) {
+                if (!word.isEmpty()) {
+                    grams.add("  " + word.charAt(0));
+                    if (word.length() > 1) {
+                        grams.add(" " + word.substring(0, 2));
+                    }
+                }
+            }
+        }
+        return grams;
+    }
+
+    private static List<String> queryGrams(String term) {
+        if (term.length() == 1) {
+            return List.of("  " + term);
+        }
+        if (term.length() == 2) {
+            return List.of(" " + term);
+        }
+        List<String> grams = new ArrayList<>();
+        for (int i = 0; i + 3 <= term.length(); i++) {
+            grams.add(term.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    private static boolean matchesAll(Entry entry, String[] terms) {
+        for (String term : terms) {
+            if (!matches(entry, term)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(Entry entry, String term) {
+        for (String field : entry.fields()) {
+            if (term.length() >= 3 ? field.contains(term) : startsWord(field, term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean startsWord(String field, String term) {
+        for (int i = 0; i < field.length(); i++) {
+            boolean wordStart = i == 0 || !Character.isLetterOrDigit(field.charAt(i - 1));
+            if (wordStart && Character.isLetterOrDigit(field.charAt(i)) && field.startsWith(term, i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean fieldPrefix(Entry entry, String term) {
+        for (String field : entry.fields()) {
+            if (field.startsWith(term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean startsAnyWord(Entry entry, String term) {
+        for (String field : entry.fields()) {
+            if (startsWord(field, term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+}
@@ -5,12 +5,17 @@ import ma.xproce.pfehub.dao.entities.*;
 import ma.xproce.pfehub.dao.repositories.*;
 import ma.xproce.pfehub.service.*;
 import ma.xproce.pfehub.web.dto.*;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/admin")
@@ -18,28 +23,42 @@ import java.util.Map;
 @CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001", "http://localhost:5173"}, allowCredentials = "true")
 public class AdminController {
 
-    private final IUserService userService;
-    private final IPfeService pfeService;
-    private final ISoutenanceService soutenanceService;
     private final DepartementRepository departementRepository;
     private final SpecialiteRepository specialiteRepository;
     private final AnneeUniversitaireRepository anneeUniversitaireRepository;
+    private final DashboardStats dashboardStats;
+    private final DashboardStream dashboardStream;
+    private final Optional<StorageMigrationJob> storageMigrationJob;
+    private final PasswordVerificationPool passwordVerificationPool;
+    private final SecondLevelCache secondLevelCache;
 
     // ============= Dashboard Stats =============
 
     @GetMapping("/dashboard")
-    public ResponseEntity<?> getDashboardStats() {
-        return ResponseEntity.ok(Map.of(
-                "totalStudents", userService.countStudents(),
-                "totalProfessors", userService.countProfessors(),
-                "activeProjects", pfeService.countActiveProjects(),
-                "upcomingDefenses", soutenanceService.countUpcoming(),
-                "projectsByStatus", pfeService.getProjectsCountByStatus(),
-                "projectsByDepartment", pfeService.getProjectsCountByDepartment(),
-                "recentSubmissions", pfeService.getRecentSubmissions(5)
+    public ResponseEntity<?> getDashboardStats(WebRequest request) {
+        DashboardStats.Snapshot stats = dashboardStats.snapshot();
+        LocalDate today = LocalDate.now();
+        String etag = stats.etag(today);
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(Map.of(
+                "version", stats.version(),
+                "totalStudents", stats.students(),
+                "totalProfessors", stats.professors(),
+                "activeProjects", stats.activeProjects(),
+                "upcomingDefenses", stats.upcomingDefenses(today),
+                "projectsByStatus", stats.projectsByStatusList(),
+                "projectsByDepartment", stats.projectsByDepartmentList(),
+                "recentSubmissions", stats.recentSubmissions()
         ));
     }
 
+    @GetMapping(path = "/dashboard/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamDashboardStats() {
+        return dashboardStream.subscribe();
+    }
+
     // ============= Departments =============
 
     @GetMapping("/departments")
@@ -232,4 +251,35 @@ public class AdminController {
         
         return ResponseEntity.ok(anneeUniversitaireRepository.save(year));
     }
+
+    // ============= File Storage =============
+
+    @PostMapping("/storage/migrate")
+    public ResponseEntity<?> migrateStorage() {
+        return storageMigrationJob
+                .<ResponseEntity<?>>map(job -> ResponseEntity.ok(job.migrate()))
+                .orElseGet(() -> ResponseEntity.badRequest()
+                        .body(Map.of("error", "Content-addressed storage is not enabled (file.storage)")));
+    }
+
+    // ============= Login =============
+
+    @GetMapping("/login/password-hashing")
+    public ResponseEntity<PasswordVerificationPool.Stats> getPasswordHashingStats() {
+        return ResponseEntity.ok(passwordVerificationPool.stats());
+    }
+
+    // ============= Cache =============
+
+    @GetMapping("/cache")
+    public ResponseEntity<List<SecondLevelCache.RegionStats>> getCacheStats() {
+        return ResponseEntity.ok(secondLevelCache.stats());
+    }
+
+    // Only needed after editing reference data outside the application (H2 console, SQL script)
+    @DeleteMapping("/cache")
+    public ResponseEntity<?> clearCache() {
+        secondLevelCache.evictAll();
+        return ResponseEntity.ok(Map.of("message", "Cache cleared successfully"));
+    }
 }
@@ -2,11 +2,18 @@ package ma.xproce.pfehub.web;
 
 import lombok.RequiredArgsConstructor;
 import ma.xproce.pfehub.dao.entities.*;
+import ma.xproce.pfehub.security.AuthenticatedUser;
+import ma.xproce.pfehub.security.JwtTokenService;
+import ma.xproce.pfehub.security.TokenDenyList;
 import ma.xproce.pfehub.service.IUserService;
+import ma.xproce.pfehub.service.ServiceBusyException;
 import ma.xproce.pfehub.web.dto.LoginRequest;
 import ma.xproce.pfehub.web.dto.LoginResponse;
 import ma.xproce.pfehub.web.dto.UserDTO;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
@@ -19,6 +26,8 @@ import java.util.Optional;
 public class AuthController {
 
     private final IUserService userService;
+    private final JwtTokenService jwtTokenService;
+    private final TokenDenyList tokenDenyList;
 
     @PostMapping("/login")
     public ResponseEntity<?> login(@RequestBody LoginRequest request) {
@@ -35,14 +44,20 @@ public class AuthController {
             AppUser user = userOpt.get();
             UserDTO userDTO = mapToDTO(user);
             
-            // Pour l'instant, pas de JWT - juste retourner l'utilisateur
             LoginResponse response = LoginResponse.builder()
                     .user(userDTO)
-                    .token("demo-token-" + user.getId()) // Token temporaire pour démo
+                    .token(jwtTokenService.issue(user))
                     .message("Connexion réussie")
                     .build();
 
             return ResponseEntity.ok(response);
+        } catch (ServiceBusyException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Map.of(
+                        "error", "Service occupé",
+                        "message", "Trop de connexions en cours, réessayez dans un instant"
+                    ));
         } catch (Exception e) {
             return ResponseEntity.status(401).body(Map.of(
                 "error", "Échec de l'authentification",
@@ -52,30 +67,31 @@ public class AuthController {
     }
 
     @PostMapping("/logout")
-    public ResponseEntity<?> logout() {
+    public ResponseEntity<?> logout(@AuthenticationPrincipal AuthenticatedUser user) {
+        if (user != null) {
+            tokenDenyList.revoke(user);
+        }
         return ResponseEntity.ok(Map.of("message", "Déconnexion réussie"));
     }
 
     @GetMapping("/me")
-    public ResponseEntity<?> getCurrentUser(@RequestHeader(value = "Authorization", required = false) String authHeader) {
-        // Simplified - in production, decode JWT token
-        if (authHeader == null || !authHeader.startsWith("Bearer demo-token-")) {
+    public ResponseEntity<?> getCurrentUser(@AuthenticationPrincipal AuthenticatedUser user) {
+        if (user == null) {
             return ResponseEntity.status(401).body(Map.of("error", "Non authentifié"));
         }
-        
-        try {
-            String tokenPart = authHeader.replace("Bearer demo-token-", "");
-            Long userId = Long.parseLong(tokenPart);
-            Optional<AppUser> userOpt = userService.getUserById(userId);
-            
-            if (userOpt.isEmpty()) {
-                return ResponseEntity.status(401).body(Map.of("error", "Utilisateur non trouvé"));
-            }
-            
-            return ResponseEntity.ok(mapToDTO(userOpt.get()));
-        } catch (Exception e) {
-            return ResponseEntity.status(401).body(Map.of("error", "Token invalide"));
-        }
+
+        // Straight from the token claims, no database access
+        return ResponseEntity.ok(UserDTO.builder()
+                .id(user.id())
+                .nom(user.lastName())
+                .prenom(user.firstName())
+                .email(user.email())
+                .role(user.role().name())
+                .departementId(user.departementId())
+                .departementNom(user.departementNom())
+                .specialiteId(user.specialiteId())
+                .specialiteNom(user.specialiteNom())
+                .build());
     }
 
     private UserDTO mapToDTO(AppUser user) {
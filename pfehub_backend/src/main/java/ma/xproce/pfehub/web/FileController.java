@@ -1,8 +1,10 @@
 package ma.xproce.pfehub.web;
 
 import lombok.RequiredArgsConstructor;
+import ma.xproce.pfehub.service.DocumentPreviewPipeline;
+import ma.xproce.pfehub.service.IChunkedUploadService;
 import ma.xproce.pfehub.service.IFileStorageService;
-import org.springframework.core.io.Resource;
+import ma.xproce.pfehub.web.dto.UploadInitDTO;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -10,7 +12,9 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Map;
 
 @RestController
@@ -20,6 +24,9 @@ import java.util.Map;
 public class FileController {
 
     private final IFileStorageService fileStorageService;
+    private final IChunkedUploadService chunkedUploadService;
+    private final FileStreamer fileStreamer;
+    private final DocumentPreviewPipeline documentPreviewPipeline;
 
     @PostMapping("/upload")
     public ResponseEntity<?> uploadFile(
@@ -38,61 +45,139 @@ public class FileController {
         }
     }
 
-    @GetMapping("/download/{subDirectory}/{fileName:.+}")
-    public ResponseEntity<Resource> downloadFile(
-            @PathVariable String subDirectory,
-            @PathVariable String fileName,
-            HttpServletRequest request) {
+    // ============= Chunked uploads (large deliverables) =============
+
+    @PostMapping("/uploads")
+    public ResponseEntity<?> startUpload(@RequestBody UploadInitDTO dto) {
         try {
-            Resource resource = fileStorageService.loadFileAsResource(fileName, subDirectory);
-
-            // Try to determine file's content type
-            String contentType = null;
-            try {
-                contentType = request.getServletContext().getMimeType(resource.getFile().getAbsolutePath());
-            } catch (IOException ex) {
-                // Could not determine file type
-            }
+            return ResponseEntity.ok(chunkedUploadService.startUpload(dto));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
 
-            // Fallback to the default content type if type could not be determined
-            if (contentType == null) {
-                contentType = "application/octet-stream";
-            }
+    @GetMapping("/uploads/{uploadId}")
+    public ResponseEntity<?> getUpload(@PathVariable String uploadId) {
+        return chunkedUploadService.getUpload(uploadId)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
 
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + resource.getFilename() + "\"")
-                    .body(resource);
-        } catch (Exception e) {
+    @PutMapping("/uploads/{uploadId}/chunks/{index}")
+    public ResponseEntity<?> uploadChunk(
+            @PathVariable String uploadId,
+            @PathVariable int index,
+            @RequestHeader(value = "Content-Digest", required = false) String contentDigest,
+            HttpServletRequest request) throws IOException {
+        if (chunkedUploadService.getUpload(uploadId).isEmpty()) {
             return ResponseEntity.notFound().build();
         }
+        try {
+            return ResponseEntity.ok(chunkedUploadService.writeChunk(uploadId, index, contentDigest, request.getInputStream()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/uploads/{uploadId}/complete")
+    public ResponseEntity<?> completeUpload(
+            @PathVariable String uploadId,
+            @RequestParam(value = "subDirectory", defaultValue = "general") String subDirectory) {
+        try {
+            String filePath = chunkedUploadService.completeUpload(uploadId, subDirectory);
+            return ResponseEntity.ok(Map.of(
+                    "message", "File uploaded successfully",
+                    "filePath", filePath
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/uploads/{uploadId}")
+    public ResponseEntity<?> cancelUpload(@PathVariable String uploadId) {
+        try {
+            chunkedUploadService.cancelUpload(uploadId);
+            return ResponseEntity.ok(Map.of("message", "Upload cancelled"));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/download/{subDirectory}/{fileName:.+}")
+    public void downloadFile(
+            @PathVariable String subDirectory,
+            @PathVariable String fileName,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        sendFile(subDirectory, fileName, false, request, response);
     }
 
     @GetMapping("/view/{subDirectory}/{fileName:.+}")
-    public ResponseEntity<Resource> viewFile(
+    public void viewFile(
             @PathVariable String subDirectory,
             @PathVariable String fileName,
-            HttpServletRequest request) {
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        sendFile(subDirectory, fileName, true, request, response);
+    }
+
+    private void sendFile(String subDirectory, String fileName, boolean inline,
+                          HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path file;
         try {
-            Resource resource = fileStorageService.loadFileAsResource(fileName, subDirectory);
+            file = fileStorageService.loadFileAsResource(fileName, subDirectory).getFile().toPath();
+        } catch (Exception e) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
 
-            String contentType = null;
-            try {
-                contentType = request.getServletContext().getMimeType(resource.getFile().getAbsolutePath());
-            } catch (IOException ex) {
-                // Could not determine file type
-            }
+        // Try to determine file's content type, falling back to the default one
+        String contentType = request.getServletContext().getMimeType(file.toAbsolutePath().toString());
+        if (contentType == null) {
+            contentType = MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        }
 
-            if (contentType == null) {
-                contentType = "application/octet-stream";
-            }
+        fileStreamer.send(file, contentType, inline, request, response);
+    }
 
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + resource.getFilename() + "\"")
-                    .body(resource);
-        } catch (Exception e) {
-            return ResponseEntity.notFound().build();
+    // ============= Previews (PDF first page and text) =============
+
+    @GetMapping("/thumbnail/{subDirectory}/{fileName:.+}")
+    public void thumbnail(
+            @PathVariable String subDirectory,
+            @PathVariable String fileName,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        sendPreview(subDirectory, fileName, DocumentPreviewPipeline.Kind.THUMBNAIL, MediaType.IMAGE_PNG_VALUE,
+                request, response);
+    }
+
+    @GetMapping("/text/{subDirectory}/{fileName:.+}")
+    public void text(
+            @PathVariable String subDirectory,
+            @PathVariable String fileName,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        sendPreview(subDirectory, fileName, DocumentPreviewPipeline.Kind.TEXT, "text/plain;charset=UTF-8",
+                request, response);
+    }
+
+    private void sendPreview(String subDirectory, String fileName, DocumentPreviewPipeline.Kind kind, String contentType,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        DocumentPreviewPipeline.Preview preview = documentPreviewPipeline.find(fileName, subDirectory, kind);
+        switch (preview.status()) {
+            case READY -> {
+                // Stored files are never rewritten under the same name, so neither are their previews
+                response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=86400");
+                fileStreamer.send(preview.file(), contentType, true, request, response);
+            }
+            case PENDING -> {
+                response.setStatus(HttpServletResponse.SC_ACCEPTED);
+                response.setHeader(HttpHeaders.RETRY_AFTER, "2");
+                response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+            }
+            case UNAVAILABLE -> response.setStatus(HttpServletResponse.SC_NOT_FOUND);
         }
     }
 
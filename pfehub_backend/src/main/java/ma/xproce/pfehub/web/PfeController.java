@@ -24,9 +24,17 @@ public class PfeController {
     // ============= CRUD =============
 
     @GetMapping
-    public ResponseEntity<Page<PFE>> getAllProjects(
+    public ResponseEntity<?> getAllProjects(
             @RequestParam(required = false) PFEStatus status,
+            @RequestParam(required = false) String cursor,
             Pageable pageable) {
+        if (cursor != null) {
+            try {
+                return ResponseEntity.ok(pfeService.getProjectsAfter(status, cursor, pageable.getPageSize()));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+        }
         if (status != null) {
             return ResponseEntity.ok(pfeService.getProjectsByStatus(status, pageable));
         }
@@ -66,14 +74,18 @@ public class PfeController {
     @PutMapping("/{projectId}/final-submit")
     public ResponseEntity<PFE> submitFinalVersion(
             @PathVariable Long projectId,
-            @RequestPart(value = "file", required = false) MultipartFile finalDocument) {
+            @RequestPart(value = "file", required = false) MultipartFile finalDocument,
+            @RequestParam(value = "uploadId", required = false) String uploadId) {
+        if (uploadId != null) {
+            return ResponseEntity.ok(pfeService.submitFinalVersionFromUpload(projectId, uploadId));
+        }
         return ResponseEntity.ok(pfeService.submitFinalVersion(projectId, finalDocument));
     }
 
     // ============= Professor Endpoints =============
 
     @GetMapping("/professor/{professorId}")
-    public ResponseEntity<List<PFE>> getProjectsByProfessor(@PathVariable Long professorId) {
+    public ResponseEntity<List<ProjectSummaryDTO>> getProjectsByProfessor(@PathVariable Long professorId) {
         return ResponseEntity.ok(pfeService.getProjectsByProfessorId(professorId));
     }
 
@@ -123,6 +135,20 @@ public class PfeController {
         return ResponseEntity.ok(pfeService.assignProfessor(projectId, professorId, notes));
     }
 
+    @GetMapping("/assignment-plan")
+    public ResponseEntity<AssignmentPlanDTO> getAssignmentPlan() {
+        return ResponseEntity.ok(pfeService.computeAssignmentPlan());
+    }
+
+    @PostMapping("/assignment-plan/apply")
+    public ResponseEntity<?> applyAssignmentPlan(@RequestBody List<ProjectAssignmentDTO> assignments) {
+        List<PFE> assigned = pfeService.applyAssignmentPlan(assignments);
+        return ResponseEntity.ok(Map.of(
+                "message", "Assignment plan applied successfully",
+                "assignedCount", assigned.size()
+        ));
+    }
+
     // ============= Deliverables =============
 
     @GetMapping("/{projectId}/deliverables")
@@ -134,8 +160,12 @@ public class PfeController {
     public ResponseEntity<Livrable> addDeliverable(
             @PathVariable Long projectId,
             @RequestPart("data") DeliverableSubmissionDTO dto,
-            @RequestPart(value = "file", required = false) MultipartFile file) {
+            @RequestPart(value = "file", required = false) MultipartFile file,
+            @RequestParam(value = "uploadId", required = false) String uploadId) {
         dto.setProjectId(projectId);
+        if (uploadId != null) {
+            return ResponseEntity.ok(pfeService.addDeliverableFromUpload(projectId, dto, uploadId));
+        }
         return ResponseEntity.ok(pfeService.addDeliverable(projectId, dto, file));
     }
 
@@ -1,15 +1,19 @@
 package ma.xproce.pfehub.web;
 
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import ma.xproce.pfehub.dao.entities.*;
 import ma.xproce.pfehub.service.ISoutenanceService;
+import ma.xproce.pfehub.service.ScheduleConflictException;
 import ma.xproce.pfehub.web.dto.*;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
@@ -21,13 +25,22 @@ import java.util.Map;
 public class SoutenanceController {
 
     private final ISoutenanceService soutenanceService;
+    private final ZipBundleStreamer zipBundleStreamer;
 
     // ============= CRUD =============
 
     @GetMapping
-    public ResponseEntity<Page<Soutenance>> getAllDefenses(
+    public ResponseEntity<?> getAllDefenses(
             @RequestParam(required = false) SoutenanceStatus status,
+            @RequestParam(required = false) String cursor,
             Pageable pageable) {
+        if (cursor != null) {
+            try {
+                return ResponseEntity.ok(soutenanceService.getDefensesAfter(status, cursor, pageable.getPageSize()));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+        }
         if (status != null) {
             return ResponseEntity.ok(soutenanceService.getDefensesByStatus(status, pageable));
         }
@@ -68,6 +81,14 @@ public class SoutenanceController {
         return ResponseEntity.ok(soutenanceService.getDefensesByProfessorId(professorId));
     }
 
+    @GetMapping("/professor/{professorId}/agenda")
+    public ResponseEntity<List<ProfessorAgendaEntryDTO>> getProfessorAgenda(
+            @PathVariable Long professorId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(soutenanceService.getProfessorAgenda(professorId, from, to));
+    }
+
     @GetMapping("/pending")
     public ResponseEntity<List<Soutenance>> getPendingProposals() {
         return ResponseEntity.ok(soutenanceService.getPendingProposals());
@@ -97,26 +118,38 @@ public class SoutenanceController {
     // ============= Workflow: Propose (Professor) =============
 
     @PostMapping("/propose")
-    public ResponseEntity<Soutenance> proposeDefense(@RequestBody DefenseProposalDTO dto) {
-        return ResponseEntity.ok(soutenanceService.proposeDefense(dto));
+    public ResponseEntity<?> proposeDefense(@RequestBody DefenseProposalDTO dto) {
+        try {
+            return ResponseEntity.ok(soutenanceService.proposeDefense(dto));
+        } catch (ScheduleConflictException e) {
+            return conflict(e);
+        }
     }
 
     // ============= Workflow: Admin Actions =============
 
     @PutMapping("/{defenseId}/validate")
-    public ResponseEntity<Soutenance> validateDefense(
+    public ResponseEntity<?> validateDefense(
             @PathVariable Long defenseId,
             @RequestBody DefenseValidationDTO dto) {
         dto.setDefenseId(defenseId);
-        return ResponseEntity.ok(soutenanceService.validateDefense(dto));
+        try {
+            return ResponseEntity.ok(soutenanceService.validateDefense(dto));
+        } catch (ScheduleConflictException e) {
+            return conflict(e);
+        }
     }
 
     @PutMapping("/{defenseId}/modify")
-    public ResponseEntity<Soutenance> modifyDefense(
+    public ResponseEntity<?> modifyDefense(
             @PathVariable Long defenseId,
             @RequestBody DefenseModificationDTO dto) {
         dto.setDefenseId(defenseId);
-        return ResponseEntity.ok(soutenanceService.modifyDefense(dto));
+        try {
+            return ResponseEntity.ok(soutenanceService.modifyDefense(dto));
+        } catch (ScheduleConflictException e) {
+            return conflict(e);
+        }
     }
 
     @PutMapping("/{defenseId}/reject")
@@ -148,10 +181,43 @@ public class SoutenanceController {
     public ResponseEntity<?> updateJuryMembers(
             @PathVariable Long defenseId,
             @RequestBody List<JuryMemberDTO> juryMembers) {
-        soutenanceService.updateJuryMembers(defenseId, juryMembers);
+        try {
+            soutenanceService.updateJuryMembers(defenseId, juryMembers);
+        } catch (ScheduleConflictException e) {
+            return conflict(e);
+        }
         return ResponseEntity.ok(Map.of("message", "Jury members updated successfully"));
     }
 
+    // ============= Timetable Generation =============
+
+    @PostMapping("/schedule/generate")
+    public ResponseEntity<?> generateSchedule(@RequestBody DefenseScheduleRequestDTO dto) {
+        String jobId = soutenanceService.startScheduleGeneration(dto);
+        return ResponseEntity.accepted().body(Map.of("jobId", jobId));
+    }
+
+    @GetMapping("/schedule/jobs/{jobId}")
+    public ResponseEntity<?> getScheduleJob(@PathVariable String jobId) {
+        return soutenanceService.getScheduleJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/schedule/jobs/{jobId}/apply")
+    public ResponseEntity<?> applySchedule(@PathVariable String jobId) {
+        List<Soutenance> defenses;
+        try {
+            defenses = soutenanceService.applySchedule(jobId);
+        } catch (ScheduleConflictException e) {
+            return conflict(e);
+        }
+        return ResponseEntity.ok(Map.of(
+                "message", "Schedule applied successfully",
+                "scheduledCount", defenses.size()
+        ));
+    }
+
     // ============= Conflict Detection =============
 
     @GetMapping("/check-conflict")
@@ -163,6 +229,11 @@ public class SoutenanceController {
         return ResponseEntity.ok(Map.of("hasConflict", hasConflict));
     }
 
+    @PostMapping("/check-conflicts")
+    public ResponseEntity<List<SlotConflictDTO>> checkConflicts(@RequestBody List<ProposedSlotDTO> slots) {
+        return ResponseEntity.ok(soutenanceService.checkSlots(slots));
+    }
+
     @GetMapping("/by-room-date")
     public ResponseEntity<List<Soutenance>> getByRoomAndDate(
             @RequestParam String room,
@@ -170,6 +241,28 @@ public class SoutenanceController {
         return ResponseEntity.ok(soutenanceService.getDefensesByRoomAndDate(room, date));
     }
 
+    // ============= Jury Bundles =============
+
+    @GetMapping("/{id}/bundle.zip")
+    public void downloadDefenseBundle(@PathVariable Long id, HttpServletResponse response) throws IOException {
+        List<BundleEntryDTO> entries;
+        try {
+            entries = soutenanceService.getDefenseBundle(id);
+        } catch (RuntimeException e) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        zipBundleStreamer.send("defense-" + id + ".zip", entries, response);
+    }
+
+    @GetMapping("/by-room-date/bundle.zip")
+    public void downloadRoomDayBundle(
+            @RequestParam String room,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            HttpServletResponse response) throws IOException {
+        zipBundleStreamer.send("defenses-" + room + "-" + date + ".zip", soutenanceService.getRoomDayBundle(room, date), response);
+    }
+
     // ============= Statistics =============
 
     @GetMapping("/stats")
@@ -180,4 +273,8 @@ public class SoutenanceController {
                 "upcoming", soutenanceService.countUpcoming()
         ));
     }
+
+    private static ResponseEntity<?> conflict(ScheduleConflictException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+    }
 }
@@ -2,10 +2,15 @@ package ma.xproce.pfehub.web;
 
 import lombok.RequiredArgsConstructor;
 import ma.xproce.pfehub.dao.entities.*;
+import ma.xproce.pfehub.security.JwtTokenService;
+import ma.xproce.pfehub.security.TokenDenyList;
 import ma.xproce.pfehub.service.IUserService;
+import ma.xproce.pfehub.service.ServiceBusyException;
 import ma.xproce.pfehub.web.dto.*;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -20,10 +25,19 @@ import java.util.Optional;
 public class UserController {
 
     private final IUserService userService;
+    private final JwtTokenService jwtTokenService;
+    private final TokenDenyList tokenDenyList;
 
     @PostMapping("/login")
     public ResponseEntity<?> login(@RequestBody LoginDTO loginDTO) {
-        Optional<AppUser> userOpt = userService.authenticate(loginDTO.getEmail(), loginDTO.getPassword());
+        Optional<AppUser> userOpt;
+        try {
+            userOpt = userService.authenticate(loginDTO.getEmail(), loginDTO.getPassword());
+        } catch (ServiceBusyException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Map.of("message", e.getMessage()));
+        }
         
         if (userOpt.isPresent()) {
             AppUser user = userOpt.get();
@@ -35,7 +49,7 @@ public class UserController {
                     .role(user.getRole())
                     .department(user.getDepartement() != null ? user.getDepartement().getName() : null)
                     .specialization(user.getSpecialite() != null ? user.getSpecialite().getName() : null)
-                    .token("jwt-token-" + user.getId()) // Simplified token for demo
+                    .token(jwtTokenService.issue(user))
                     .build();
             return ResponseEntity.ok(response);
         }
@@ -44,10 +58,25 @@ public class UserController {
     }
 
     @GetMapping
-    public ResponseEntity<Page<AppUser>> getAllUsers(Pageable pageable) {
+    public ResponseEntity<?> getAllUsers(@RequestParam(required = false) String cursor, Pageable pageable) {
+        if (cursor != null) {
+            try {
+                return ResponseEntity.ok(userService.getUsersAfter(cursor, pageable.getPageSize()));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+        }
         return ResponseEntity.ok(userService.getAllUsers(pageable));
     }
 
+    @GetMapping("/autocomplete")
+    public ResponseEntity<List<UserSuggestionDTO>> autocompleteUsers(
+            @RequestParam String q,
+            @RequestParam(required = false) UserRole role,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(userService.autocompleteUsers(q, role, Math.min(limit, 50)));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<?> getUserById(@PathVariable Long id) {
         return userService.getUserById(id)
@@ -58,12 +87,13 @@ public class UserController {
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteUser(@PathVariable Long id) {
         userService.deleteUser(id);
+        tokenDenyList.revokeAll(id);
         return ResponseEntity.ok(Map.of("message", "User deleted successfully"));
     }
 
     // Students endpoints
     @GetMapping("/students")
-    public ResponseEntity<List<Etudiant>> getAllStudents() {
+    public ResponseEntity<List<StudentSummaryDTO>> getAllStudents() {
         return ResponseEntity.ok(userService.getAllStudents());
     }
 
@@ -85,7 +115,16 @@ public class UserController {
     }
 
     @GetMapping("/students/search")
-    public ResponseEntity<Page<Etudiant>> searchStudents(@RequestParam String q, Pageable pageable) {
+    public ResponseEntity<?> searchStudents(@RequestParam String q,
+                                            @RequestParam(required = false) String cursor,
+                                            Pageable pageable) {
+        if (cursor != null) {
+            try {
+                return ResponseEntity.ok(userService.searchStudentsAfter(q, cursor, pageable.getPageSize()));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+        }
         return ResponseEntity.ok(userService.searchStudents(q, pageable));
     }
 
@@ -118,7 +157,16 @@ public class UserController {
     }
 
     @GetMapping("/professors/search")
-    public ResponseEntity<Page<Encadrant>> searchProfessors(@RequestParam String q, Pageable pageable) {
+    public ResponseEntity<?> searchProfessors(@RequestParam String q,
+                                              @RequestParam(required = false) String cursor,
+                                              Pageable pageable) {
+        if (cursor != null) {
+            try {
+                return ResponseEntity.ok(userService.searchProfessorsAfter(q, cursor, pageable.getPageSize()));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+        }
         return ResponseEntity.ok(userService.searchProfessors(q, pageable));
     }
 
@@ -0,0 +1,109 @@
+package ma.xproce.pfehub.web;
+
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.xproce.pfehub.service.IFileStorageService;
+import ma.xproce.pfehub.web.dto.BundleEntryDTO;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams stored files as a ZIP archive built while it is sent: each file is copied from disk
+ * straight into the response, so neither memory nor disk holds the archive, whatever its size.
+ * Formats that are already compressed (PDF, images, videos, office documents) are STORED, which
+ * costs a first read of the file for its CRC but no CPU spent deflating them for nothing.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ZipBundleStreamer {
+
+    private static final Set<String> COMPRESSED_EXTENSIONS = Set.of(
+            "pdf", "zip", "rar", "7z", "gz", "png", "jpg", "jpeg", "gif", "webp",
+            "mp3", "mp4", "mov", "avi", "mkv", "webm", "docx", "xlsx", "pptx", "odt", "ods", "odp");
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final IFileStorageService fileStorageService;
+
+    public void send(String fileName, List<BundleEntryDTO> entries, HttpServletResponse response) throws IOException {
+        response.setContentType("application/zip");
+        ContentDisposition.Builder disposition = ContentDisposition.attachment();
+        if (StandardCharsets.US_ASCII.newEncoder().canEncode(fileName)) {
+            disposition.filename(fileName);
+        } else {
+            disposition.filename(fileName, StandardCharsets.UTF_8);
+        }
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, disposition.build().toString());
+
+        // Not closed: closing it would close the response stream
+        ZipOutputStream zip = new ZipOutputStream(response.getOutputStream());
+        for (BundleEntryDTO entry : entries) {
+            Path file = resolve(entry.getFilePath());
+            if (file == null) {
+                log.warn("Bundle {}: {} not found, skipped", fileName, entry.getFilePath());
+                continue;
+            }
+            ZipEntry zipEntry = new ZipEntry(entry.getEntryName());
+            zipEntry.setLastModifiedTime(Files.getLastModifiedTime(file));
+            if (COMPRESSED_EXTENSIONS.contains(extension(entry.getEntryName()))) {
+                long size = Files.size(file);
+                zipEntry.setMethod(ZipEntry.STORED);
+                zipEntry.setSize(size);
+                zipEntry.setCompressedSize(size);
+                zipEntry.setCrc(crc(file));
+            }
+            zip.putNextEntry(zipEntry);
+            Files.copy(file, zip);
+            zip.closeEntry();
+        }
+        zip.finish();
+    }
+
+    private Path resolve(String filePath) {
+        int slash = filePath.indexOf('/');
+        if (slash <= 0) {
+            return null;
+        }
+        try {
+            Path file = fileStorageService.getFilePath(filePath.substring(slash + 1), filePath.substring(0, slash));
+            return Files.isRegularFile(file) ? file : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static long crc(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static String extension(String name) {
+        String extension = StringUtils.getFilenameExtension(name);
+        return extension != null ? extension.toLowerCase(Locale.ROOT) : "";
+    }
+}
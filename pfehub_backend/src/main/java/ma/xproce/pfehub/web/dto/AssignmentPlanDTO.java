@@ -0,0 +1,18 @@
+package ma.xproce.pfehub.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AssignmentPlanDTO {
+    private List<ProjectAssignmentDTO> assignments;
+    private List<Long> unassignedProjectIds;
+    private int totalScore;
+}
@@ -0,0 +1,14 @@
+package ma.xproce.pfehub.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** A stored file to put in a ZIP bundle, under the given name. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BundleEntryDTO {
+    private String entryName;
+    private String filePath;
+}
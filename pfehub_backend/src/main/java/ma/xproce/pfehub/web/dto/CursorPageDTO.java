@@ -0,0 +1,28 @@
+package ma.xproce.pfehub.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ma.xproce.pfehub.service.KeysetCursor;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+import java.util.function.Function;
+
+/** One page of a keyset-paged listing; no total, which would cost a count of the whole table. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageDTO<T> {
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    // Passed back as ?cursor= for the next page; null on the last one
+    private String nextCursor;
+
+    public static <T> CursorPageDTO<T> of(Slice<T> slice, Function<T, KeysetCursor> position) {
+        List<T> content = slice.getContent();
+        String nextCursor = slice.hasNext() ? position.apply(content.get(content.size() - 1)).encode() : null;
+        return new CursorPageDTO<>(content, slice.getSize(), slice.hasNext(), nextCursor);
+    }
+}
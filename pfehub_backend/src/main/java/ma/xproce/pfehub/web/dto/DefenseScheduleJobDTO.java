@@ -0,0 +1,30 @@
+package ma.xproce.pfehub.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DefenseScheduleJobDTO {
+
+    public enum Status {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    private String jobId;
+    private Status status;
+    private int progress; // Percentage of defenses processed
+    private int totalDefenses;
+    private int scheduledDefenses;
+    private List<ScheduledDefenseDTO> schedule;
+    private List<Long> unscheduledProjectIds;
+    private String error;
+}
@@ -0,0 +1,15 @@
+package ma.xproce.pfehub.web.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class DefenseScheduleRequestDTO {
+    private List<String> rooms;
+    private Long academicYearId; // Optional: defaults to the current academic year
+    private String dayStart = "09:00";
+    private String dayEnd = "17:00";
+    private boolean includeWeekends;
+    private List<ProfessorUnavailabilityDTO> unavailabilities;
+}
@@ -0,0 +1,30 @@
+package ma.xproce.pfehub.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ma.xproce.pfehub.dao.entities.SoutenanceStatus;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/** A defense row of the dashboards, read by SoutenanceRepository in one query (no entity loaded). */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DefenseSummaryDTO {
+    private Long id;
+    private SoutenanceStatus status;
+    private LocalDate proposedDate;
+    private LocalTime proposedTime;
+    private String proposedRoom;
+    private LocalDate finalDate;
+    private LocalTime finalTime;
+    private String finalRoom;
+    private Double finalGrade;
+
+    private Long projectId;
+    private String projectTitle;
+    private String etudiantNom;
+    private String encadrantNom;
+}
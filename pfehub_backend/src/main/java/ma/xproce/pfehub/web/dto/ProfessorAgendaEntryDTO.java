@@ -0,0 +1,23 @@
+package ma.xproce.pfehub.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ma.xproce.pfehub.dao.entities.JuryRole;
+import ma.xproce.pfehub.dao.entities.SoutenanceStatus;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProfessorAgendaEntryDTO {
+    private Long defenseId;
+    private Long projectId;
+    private String projectTitle;
+    private SoutenanceStatus status;
+    private JuryRole role;
+    private String room;
+    private String date;
+    private String time;
+}
@@ -0,0 +1,11 @@
+package ma.xproce.pfehub.web.dto;
+
+import lombok.Data;
+
+@Data
+public class ProfessorUnavailabilityDTO {
+    private Long professorId;
+    private String date;
+    private String startTime; // Optional: whole day when both times are missing
+    private String endTime;
+}
@@ -0,0 +1,18 @@
+package ma.xproce.pfehub.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProjectAssignmentDTO {
+    private Long projectId;
+    private String projectTitle;
+    private Long professorId;
+    private String professorName;
+    private int matchPercentage;
+}
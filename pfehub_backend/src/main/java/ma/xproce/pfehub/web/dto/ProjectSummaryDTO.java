@@ -0,0 +1,33 @@
+package ma.xproce.pfehub.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ma.xproce.pfehub.dao.entities.PFEStatus;
+
+import java.time.LocalDateTime;
+
+/** A project row of the dashboards, read by PfeRepository in one query (no entity loaded). */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProjectSummaryDTO {
+    private Long id;
+    private String title;
+    private String keywords;
+    private PFEStatus status;
+    private LocalDateTime submittedAt;
+    private LocalDateTime assignedAt;
+    private LocalDateTime acceptedAt;
+    private LocalDateTime finalSubmittedAt;
+    private String proposalFilePath;
+
+    private Long etudiantId;
+    private String etudiantNom;
+    private String numeroEtudiant;
+    private String departementNom;
+    private String specialiteNom;
+
+    private Long encadrantId;
+    private String encadrantNom;
+}
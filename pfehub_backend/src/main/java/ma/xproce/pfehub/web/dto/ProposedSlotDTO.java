@@ -0,0 +1,14 @@
+package ma.xproce.pfehub.web.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ProposedSlotDTO {
+    private String room;
+    private String date;
+    private String time;
+    private Long defenseId; // Optional: the defense being rescheduled, ignored when checking
+    private List<Long> professorIds; // Optional: the jury, checked for double bookings
+}
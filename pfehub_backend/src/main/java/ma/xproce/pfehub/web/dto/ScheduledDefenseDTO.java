@@ -0,0 +1,21 @@
+package ma.xproce.pfehub.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduledDefenseDTO {
+    private Long projectId;
+    private String projectTitle;
+    private String room;
+    private String date;
+    private String time;
+    private List<Long> juryProfessorIds;
+}
@@ -0,0 +1,24 @@
+package ma.xproce.pfehub.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlotConflictDTO {
+    private int index;
+    private String room;
+    private String date;
+    private String time;
+    private boolean conflict;
+    private List<Long> conflictingDefenseIds;
+    private List<Integer> conflictingSlotIndexes;
+    private Map<Long, List<Long>> professorConflicts; // Professor id -> defenses they are already booked on
+}
@@ -0,0 +1,26 @@
+package ma.xproce.pfehub.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ma.xproce.pfehub.dao.entities.PFEStatus;
+
+/** A student row of the admin lists, read by EtudiantRepository in one query (no entity loaded). */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StudentSummaryDTO {
+    private Long id;
+    private String firstName;
+    private String lastName;
+    private String email;
+    private Boolean isActive;
+    private String numeroEtudiant;
+    private String promotion;
+    private String departementNom;
+    private String specialiteNom;
+
+    // Null until the student submits a project
+    private Long projectId;
+    private PFEStatus projectStatus;
+}
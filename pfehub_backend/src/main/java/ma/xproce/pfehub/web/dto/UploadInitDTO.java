@@ -0,0 +1,9 @@
+package ma.xproce.pfehub.web.dto;
+
+import lombok.Data;
+
+@Data
+public class UploadInitDTO {
+    private String fileName;
+    private Long size; // Total size in bytes
+}
@@ -0,0 +1,24 @@
+package ma.xproce.pfehub.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionDTO {
+    private String uploadId;
+    private String fileName;
+    private long size;
+    private long chunkSize; // Every chunk but the last one is exactly this long
+    private int chunkCount;
+    private int receivedChunks;
+    private List<Integer> missingChunks;
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,19 @@
+package ma.xproce.pfehub.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ma.xproce.pfehub.dao.entities.UserRole;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSuggestionDTO {
+    private Long id;
+    private String fullName;
+    private String email;
+    private UserRole role;
+    private String numeroEtudiant;
+}
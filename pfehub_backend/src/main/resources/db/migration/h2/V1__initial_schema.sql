@@ -0,0 +1,165 @@
+-- Schema as mapped by the entities at the time migrations took over from ddl-auto=update.
+-- Databases created before are baselined at this version (spring.flyway.baseline-on-migrate).
+
+create table admins (
+    id bigint not null,
+    permissions TEXT,
+    primary key (id)
+);
+
+create table annees_universitaires (
+    defense_end_date date,
+    defense_start_date date,
+    is_current boolean,
+    submission_end_date date,
+    submission_start_date date,
+    created_at timestamp(6),
+    id bigint generated by default as identity,
+    annee varchar(255) not null unique,
+    primary key (id)
+);
+
+create table app_users (
+    is_active boolean,
+    created_at timestamp(6),
+    departement_id bigint,
+    id bigint generated by default as identity,
+    specialite_id bigint,
+    updated_at timestamp(6),
+    email varchar(255) not null unique,
+    first_name varchar(255) not null,
+    last_name varchar(255) not null,
+    password varchar(255) not null,
+    role enum ('ADMIN','ENCADRANT','ETUDIANT') not null,
+    primary key (id)
+);
+
+create table departements (
+    created_at timestamp(6),
+    id bigint generated by default as identity,
+    code varchar(255) not null unique,
+    description TEXT,
+    name varchar(255) not null,
+    primary key (id)
+);
+
+create table encadrants (
+    max_project_capacity integer,
+    id bigint not null,
+    expertise TEXT,
+    primary key (id)
+);
+
+create table etudiants (
+    annee_universitaire_id bigint,
+    id bigint not null,
+    numero_etudiant varchar(255) unique,
+    promotion varchar(255),
+    primary key (id)
+);
+
+create table jury_members (
+    id bigint generated by default as identity,
+    professor_id bigint,
+    soutenance_id bigint not null,
+    email varchar(255),
+    name varchar(255) not null,
+    role enum ('EXAMINATEUR','PRESIDENT') not null,
+    primary key (id)
+);
+
+create table livrables (
+    created_at timestamp(6),
+    id bigint generated by default as identity,
+    pfe_id bigint not null,
+    submitted_at timestamp(6),
+    description TEXT,
+    file_url varchar(255),
+    notes TEXT,
+    title varchar(255) not null,
+    type enum ('AUTRE','CODE','DOCUMENTATION','RAPPORT_AVANCEMENT') not null,
+    primary key (id)
+);
+
+create table pfes (
+    accepted_at timestamp(6),
+    annee_universitaire_id bigint,
+    assigned_at timestamp(6),
+    created_at timestamp(6),
+    encadrant_id bigint,
+    etudiant_id bigint not null unique,
+    final_submitted_at timestamp(6),
+    id bigint generated by default as identity,
+    submitted_at timestamp(6),
+    updated_at timestamp(6),
+    context TEXT,
+    description TEXT not null,
+    expected_results TEXT,
+    keywords TEXT,
+    methodology TEXT,
+    objectives TEXT not null,
+    professor_comments TEXT,
+    proposal_file_path varchar(255),
+    rejection_reason TEXT,
+    title varchar(255) not null,
+    status enum ('ACCEPTE','EN_ATTENTE_ASSIGNATION','EN_COURS','EN_REVISION','EVALUE','REFUSE','SOUMISSION_FINALE','SOUTENANCE_PLANIFIEE') not null,
+    primary key (id)
+);
+
+create table soutenances (
+    final_date date,
+    final_grade float(53),
+    final_time time(6),
+    presentation_quality float(53),
+    proposed_date date,
+    proposed_time time(6),
+    question_answers float(53),
+    subject_mastery float(53),
+    time_respect float(53),
+    created_at timestamp(6),
+    evaluated_at timestamp(6),
+    evaluated_by_id bigint,
+    id bigint generated by default as identity,
+    pfe_id bigint not null unique,
+    proposed_at timestamp(6),
+    updated_at timestamp(6),
+    validated_at timestamp(6),
+    validated_by_id bigint,
+    evaluation_comments TEXT,
+    final_room varchar(255),
+    improvements TEXT,
+    modification_reason TEXT,
+    notes TEXT,
+    proposed_room varchar(255),
+    rejection_reason TEXT,
+    strengths TEXT,
+    status enum ('MODIFIEE','PROPOSEE','REPORTEE','VALIDEE') not null,
+    primary key (id)
+);
+
+create table specialites (
+    created_at timestamp(6),
+    departement_id bigint not null,
+    id bigint generated by default as identity,
+    code varchar(255) not null unique,
+    description TEXT,
+    name varchar(255) not null,
+    primary key (id)
+);
+
+alter table admins add constraint fk_admins_id foreign key (id) references app_users (id);
+alter table app_users add constraint fk_app_users_departement_id foreign key (departement_id) references departements (id);
+alter table app_users add constraint fk_app_users_specialite_id foreign key (specialite_id) references specialites (id);
+alter table encadrants add constraint fk_encadrants_id foreign key (id) references app_users (id);
+alter table etudiants add constraint fk_etudiants_annee_universitaire_id foreign key (annee_universitaire_id) references annees_universitaires (id);
+alter table etudiants add constraint fk_etudiants_id foreign key (id) references app_users (id);
+alter table jury_members add constraint fk_jury_members_professor_id foreign key (professor_id) references encadrants (id);
+alter table jury_members add constraint fk_jury_members_soutenance_id foreign key (soutenance_id) references soutenances (id);
+alter table livrables add constraint fk_livrables_pfe_id foreign key (pfe_id) references pfes (id);
+alter table pfes add constraint fk_pfes_annee_universitaire_id foreign key (annee_universitaire_id) references annees_universitaires (id);
+alter table pfes add constraint fk_pfes_encadrant_id foreign key (encadrant_id) references encadrants (id);
+alter table pfes add constraint fk_pfes_etudiant_id foreign key (etudiant_id) references etudiants (id);
+alter table soutenances add constraint fk_soutenances_evaluated_by_id foreign key (evaluated_by_id) references encadrants (id);
+alter table soutenances add constraint fk_soutenances_pfe_id foreign key (pfe_id) references pfes (id);
+alter table soutenances add constraint fk_soutenances_validated_by_id foreign key (validated_by_id) references admins (id);
+alter table specialites add constraint fk_specialites_departement_id foreign key (departement_id) references departements (id);
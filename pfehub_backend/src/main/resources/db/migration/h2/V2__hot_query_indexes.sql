@@ -0,0 +1,21 @@
+-- Indexes for the filters and sort orders of the repository queries; QueryPlanTest fails when one
+-- of them goes back to a full scan. Foreign key columns (pfes.encadrant_id, jury_members.professor_id,
+-- livrables.pfe_id, ...) need none here: H2 indexes them along with their constraint.
+-- IF NOT EXISTS: the keyset indexes were first created by ddl-auto on existing databases.
+
+-- Project listings by status, newest first, and their keyset pages
+create index if not exists idx_pfes_submitted_at_id on pfes (submitted_at desc, id desc);
+create index if not exists idx_pfes_status_submitted_at_id on pfes (status, submitted_at desc, id desc);
+-- A professor's projects in a given state, and supervision load counts
+create index if not exists idx_pfes_encadrant_id_status on pfes (encadrant_id, status);
+-- Stored file lookups after an upload, a delete or a storage migration
+create index if not exists idx_pfes_proposal_file_path on pfes (proposal_file_path);
+
+-- Defense listings by status and date, and their keyset pages
+create index if not exists idx_soutenances_final_date_id on soutenances (final_date, id);
+create index if not exists idx_soutenances_status_final_date_id on soutenances (status, final_date, id);
+-- Room occupancy checks when scheduling
+create index if not exists idx_soutenances_final_room_final_date on soutenances (final_room, final_date);
+
+-- User lists by role
+create index if not exists idx_app_users_role on app_users (role);
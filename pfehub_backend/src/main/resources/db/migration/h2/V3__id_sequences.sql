@@ -0,0 +1,13 @@
+-- Ids come from sequences instead of identity columns so that Hibernate can batch inserts: it takes
+-- a block of 50 ids per call (pooled optimizer, allocationSize = 50) rather than reading each one back
+-- after its insert. A sequence value is the top of the block Hibernate hands out, so each sequence
+-- starts 50 past the ids already in use.
+
+create sequence app_users_seq start with (select coalesce(max(id), 0) + 50 from app_users) increment by 50;
+create sequence departements_seq start with (select coalesce(max(id), 0) + 50 from departements) increment by 50;
+create sequence specialites_seq start with (select coalesce(max(id), 0) + 50 from specialites) increment by 50;
+create sequence annees_universitaires_seq start with (select coalesce(max(id), 0) + 50 from annees_universitaires) increment by 50;
+create sequence pfes_seq start with (select coalesce(max(id), 0) + 50 from pfes) increment by 50;
+create sequence livrables_seq start with (select coalesce(max(id), 0) + 50 from livrables) increment by 50;
+create sequence soutenances_seq start with (select coalesce(max(id), 0) + 50 from soutenances) increment by 50;
+create sequence jury_members_seq start with (select coalesce(max(id), 0) + 50 from jury_members) increment by 50;
@@ -0,0 +1,7 @@
+-- Optimistic locking (@Version) on the rows the dashboard counters follow: of two concurrent
+-- changes to the same project, defense or user, the second fails at commit instead of being
+-- counted a second time.
+
+alter table app_users add column version bigint default 0 not null;
+alter table pfes add column version bigint default 0 not null;
+alter table soutenances add column version bigint default 0 not null;
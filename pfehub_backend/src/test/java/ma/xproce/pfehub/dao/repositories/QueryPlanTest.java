@@ -0,0 +1,141 @@
+package ma.xproce.pfehub.dao.repositories;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.reflect.Method;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Runs every {@code @Query} of {@link PfeRepository} and {@link SoutenanceRepository} against a
+ * database built by the migrations, records the SQL Hibernate sends, and fails when H2's EXPLAIN
+ * of it reads a table in full: a query whose filter or sort has lost its index.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:query-plans;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=ma.xproce.pfehub.dao.repositories.QueryPlanTest$SqlRecorder"
+})
+@Transactional
+class QueryPlanTest {
+
+    // Queries reading whole tables by design, with why
+    private static final Map<String, String> FULL_SCANS_ALLOWED = Map.ofEntries(
+            Map.entry("PfeRepository.findSummaries", "unfiltered page, stops at its LIMIT"),
+            Map.entry("SoutenanceRepository.findSummaries", "unfiltered page, stops at its LIMIT"),
+            Map.entry("PfeRepository.countByStatusGrouped", "statistics over every project"),
+            Map.entry("PfeRepository.countByEncadrantGrouped", "supervision load of every professor"),
+            Map.entry("PfeRepository.countByDepartementGrouped", "statistics over every project"),
+            Map.entry("PfeRepository.searchProjects", "substring search, served by ProjectSearchIndex"),
+            Map.entry("PfeRepository.findProposalFilePathsNotStartingWith", "storage migration, reads every path once"),
+            Map.entry("SoutenanceRepository.countByStatusGrouped", "statistics over every defense"),
+            Map.entry("SoutenanceRepository.findEvaluatedDefenses", "every graded defense, most of them by the end of the session"),
+            Map.entry("SoutenanceRepository.findSummariesAfterUnscheduled",
+                    "unscheduled defenses sort first and are few; only those already served are skipped")
+    );
+
+    // In H2's plans each table read is followed by the index used, then ":" and the index condition if any
+    private static final Pattern TABLE = Pattern.compile("(FROM|JOIN) \"PUBLIC\"\\.\"(\\w+)\"");
+    private static final Pattern ACCESS = Pattern.compile("/\\* PUBLIC\\.([\\w.]+?)(:| \\*/)");
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /** Keeps the SQL of the statements Hibernate prepares. */
+    public static class SqlRecorder implements StatementInspector {
+
+        static final List<String> statements = new ArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+    }
+
+    static Stream<Arguments> queries() {
+        return Stream.of(PfeRepository.class, SoutenanceRepository.class)
+                .flatMap(repository -> Arrays.stream(repository.getDeclaredMethods())
+                        .filter(method -> method.isAnnotationPresent(Query.class))
+                        .map(method -> Arguments.of(repository.getSimpleName() + "." + method.getName(), method)));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("queries")
+    void readsNoTableInFull(String name, Method method) throws Exception {
+        Object repository = context.getBean(method.getDeclaringClass());
+        Object[] arguments = Arrays.stream(method.getParameterTypes()).map(QueryPlanTest::sample).toArray();
+
+        SqlRecorder.statements.clear();
+        method.invoke(repository, arguments);
+        List<String> statements = List.copyOf(SqlRecorder.statements);
+        assertFalse(statements.isEmpty(), name + " ran no SQL");
+
+        for (String sql : statements) {
+            String plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class));
+            List<String> scanned = fullScans(plan);
+            if (!scanned.isEmpty() && !FULL_SCANS_ALLOWED.containsKey(name)) {
+                fail(name + " reads " + scanned + " in full:\n" + plan);
+            }
+        }
+    }
+
+    private static List<String> fullScans(String plan) {
+        // Walking an index in the ORDER BY's order is fine when a LIMIT stops the walk
+        boolean limitedInOrder = plan.contains("/* index sorted */") && plan.contains("FETCH ");
+        List<String> tables = new ArrayList<>();
+        String[] lines = plan.split("\n");
+        for (int i = 0; i + 1 < lines.length; i++) {
+            Matcher table = TABLE.matcher(lines[i]);
+            Matcher access = ACCESS.matcher(lines[i + 1]);
+            if (!table.find() || !access.find()) {
+                continue;
+            }
+            boolean scan = access.group(1).endsWith(".tableScan") || !access.group(2).equals(":");
+            boolean driving = table.group(1).equals("FROM");
+            if (scan && !(driving && limitedInOrder && !access.group(1).endsWith(".tableScan"))) {
+                tables.add(table.group(2));
+            }
+        }
+        return tables;
+    }
+
+    private static Object sample(Class<?> type) {
+        if (type == Long.class || type == long.class) return 1L;
+        if (type == String.class) return "x";
+        if (type.isEnum()) return type.getEnumConstants()[0];
+        if (type == LocalDate.class) return LocalDate.now();
+        if (type == LocalDateTime.class) return LocalDateTime.now();
+        if (type == LocalTime.class) return LocalTime.NOON;
+        if (Collection.class.isAssignableFrom(type)) return List.of(1L, 2L);
+        // Second page, so that paged queries run their count query too
+        if (type == Pageable.class) return PageRequest.of(1, 10);
+        throw new IllegalArgumentException("No sample value for " + type);
+    }
+}
@@ -0,0 +1,61 @@
+package ma.xproce.pfehub.security;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of one login password check for each BCrypt cost, then the highest cost whose check stays
+ * under the target latency on this machine (250 ms by default, -Dtarget.ms=...): the value to set
+ * as security.password-hashing.bcrypt-strength.
+ * Run with: mvn test-compile exec:java -Dexec.mainClass=ma.xproce.pfehub.security.BCryptCostBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BCryptCostBenchmark {
+
+    private static final String PASSWORD = "correct horse battery staple";
+
+    @Param({"10", "11", "12", "13", "14"})
+    private int strength;
+
+    private BCryptPasswordEncoder encoder;
+    private String hash;
+
+    @Setup
+    public void setUp() {
+        encoder = new BCryptPasswordEncoder(strength);
+        hash = encoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return encoder.matches(PASSWORD, hash);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        double target = Double.parseDouble(System.getProperty("target.ms", "250"));
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .include(BCryptCostBenchmark.class.getSimpleName())
+                .build()).run();
+
+        results.stream()
+                .filter(result -> result.getPrimaryResult().getScore() <= target)
+                .max(Comparator.comparingInt(result -> Integer.parseInt(result.getParams().getParam("strength"))))
+                .ifPresentOrElse(
+                        result -> System.out.printf("%nHighest cost under %.0f ms: security.password-hashing.bcrypt-strength=%s (%.1f ms per check)%n",
+                                target, result.getParams().getParam("strength"), result.getPrimaryResult().getScore()),
+                        () -> System.out.printf("%nNo benchmarked cost is under %.0f ms%n", target));
+    }
+}
@@ -0,0 +1,131 @@
+package ma.xproce.pfehub.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ma.xproce.pfehub.dao.entities.Departement;
+import ma.xproce.pfehub.dao.entities.Encadrant;
+import ma.xproce.pfehub.dao.entities.UserRole;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtTokenServiceTest {
+
+    private static final byte[] KEY = "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final String HEADER = "{\"alg\":\"HS256\",\"typ\":\"JWT\"}";
+
+    private JwtTokenService jwtTokenService;
+    private Encadrant professor;
+
+    @BeforeEach
+    void setUp() {
+        jwtTokenService = service(Base64.getEncoder().encodeToString(KEY));
+
+        Departement departement = new Departement();
+        departement.setId(3L);
+        departement.setName("Informatique");
+        professor = new Encadrant();
+        professor.setId(42L);
+        professor.setEmail("b.hirchoua@ensam-casa.ma");
+        professor.setFirstName("Badr");
+        professor.setLastName("Hirchoua");
+        professor.setRole(UserRole.ENCADRANT);
+        professor.setDepartement(departement);
+    }
+
+    @Test
+    void issuedTokenCarriesTheUser() {
+        AuthenticatedUser user = jwtTokenService.verify(jwtTokenService.issue(professor)).orElseThrow();
+
+        assertEquals(42L, user.id());
+        assertEquals(UserRole.ENCADRANT, user.role());
+        assertEquals(3L, user.departementId());
+        assertEquals("Informatique", user.departementNom());
+        assertTrue(user.expiresAt().isAfter(Instant.now()));
+    }
+
+    @Test
+    void unsignedTokenIsRejected() {
+        String claims = claims(Instant.now().plusSeconds(60));
+
+        assertTrue(jwtTokenService.verify(encode("{\"alg\":\"none\",\"typ\":\"JWT\"}") + "." + claims + ".").isEmpty());
+    }
+
+    @Test
+    void tokenWithAnotherHeaderIsRejectedEvenWhenSigned() {
+        String claims = claims(Instant.now().plusSeconds(60));
+
+        // The same key under another algorithm name, and the same algorithm written differently
+        assertTrue(jwtTokenService.verify(signed(encode("{\"alg\":\"HS512\",\"typ\":\"JWT\"}") + "." + claims)).isEmpty());
+        assertTrue(jwtTokenService.verify(signed(encode("{\"typ\":\"JWT\",\"alg\":\"HS256\"}") + "." + claims)).isEmpty());
+        assertTrue(jwtTokenService.verify(signed(encode(HEADER) + "." + claims)).isPresent());
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        String claims = claims(Instant.now().minusSeconds(1));
+
+        assertTrue(jwtTokenService.verify(signed(encode(HEADER) + "." + claims)).isEmpty());
+    }
+
+    @Test
+    void tamperedPayloadIsRejected() {
+        String[] parts = jwtTokenService.issue(professor).split("\\.");
+        String admin = encode(new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8)
+                .replace("\"ENCADRANT\"", "\"ADMIN\""));
+
+        assertTrue(jwtTokenService.verify(parts[0] + "." + admin + "." + parts[2]).isEmpty());
+    }
+
+    @Test
+    void tokenSignedWithAnotherKeyIsRejected() {
+        JwtTokenService other = service("");
+
+        assertTrue(jwtTokenService.verify(other.issue(professor)).isEmpty());
+    }
+
+    @Test
+    void malformedTokensAreRejected() {
+        assertTrue(jwtTokenService.verify("").isEmpty());
+        assertTrue(jwtTokenService.verify("not-a-token").isEmpty());
+        assertTrue(jwtTokenService.verify(jwtTokenService.issue(professor) + ".extra").isEmpty());
+        assertTrue(jwtTokenService.verify(encode(HEADER) + ".%%%." + "%%%").isEmpty());
+    }
+
+    private JwtTokenService service(String secret) {
+        JwtTokenService service = new JwtTokenService(new ObjectMapper());
+        ReflectionTestUtils.setField(service, "secret", secret);
+        ReflectionTestUtils.setField(service, "timeToLive", Duration.ofHours(8));
+        service.init();
+        return service;
+    }
+
+    private static String claims(Instant expiresAt) {
+        return encode("{\"sub\":\"42\",\"jti\":\"forged\",\"iat\":" + Instant.now().getEpochSecond()
+                + ",\"exp\":" + expiresAt.getEpochSecond() + ",\"role\":\"ADMIN\"}");
+    }
+
+    private static String signed(String content) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(KEY, "HmacSHA256"));
+            return content + "." + ENCODER.encodeToString(mac.doFinal(content.getBytes(StandardCharsets.US_ASCII)));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String encode(String json) {
+        return ENCODER.encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,71 @@
+package ma.xproce.pfehub.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+
+    @Test
+    void refusesPastTheLimit() {
+        RateLimiter limiter = new RateLimiter(5, Duration.ofMinutes(1), 1024);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, limiter.tryAcquire("a@ensam-casa.ma"));
+        }
+        assertTrue(limiter.tryAcquire("a@ensam-casa.ma") > 0);
+        // Other keys have their own bucket
+        assertEquals(0, limiter.tryAcquire("b@ensam-casa.ma"));
+    }
+
+    @Test
+    void refillsOneTokenPerInterval() throws InterruptedException {
+        // A token every 500 ms
+        RateLimiter limiter = new RateLimiter(2, Duration.ofSeconds(1), 1024);
+        limiter.tryAcquire("key");
+        limiter.tryAcquire("key");
+
+        long retryAfter = limiter.tryAcquire("key");
+        assertTrue(retryAfter > 0);
+        Thread.sleep(retryAfter + 50);
+
+        assertEquals(0, limiter.tryAcquire("key"));
+        assertTrue(limiter.tryAcquire("key") > 0);
+    }
+
+    @Test
+    void retryAfterIsTheWaitForTheNextToken() {
+        // A token every second
+        RateLimiter limiter = new RateLimiter(3, Duration.ofSeconds(3), 1024);
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("key");
+        }
+
+        long retryAfter = limiter.tryAcquire("key");
+
+        assertTrue(retryAfter > 900 && retryAfter <= 1000, "retry after " + retryAfter + " ms");
+    }
+
+    @Test
+    void floodOfNewKeysEvictsTheLeastUsedButNotTheHammeredKey() {
+        RateLimiter limiter = new RateLimiter(5, Duration.ofHours(1), 64);
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire("attacker");
+        }
+        limiter.tryAcquire("victim");
+
+        // Far more keys than the 64 slots
+        for (int i = 0; i < 10_000; i++) {
+            limiter.tryAcquire("flood-" + i);
+        }
+
+        assertTrue(limiter.tryAcquire("attacker") > 0);
+        // The victim's slot was taken: it starts again with a full bucket
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, limiter.tryAcquire("victim"));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package ma.xproce.pfehub.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ma.xproce.pfehub.dao.entities.UserRole;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenDenyListTest {
+
+    private TokenDenyList denyList;
+
+    @BeforeEach
+    void setUp() {
+        JwtTokenService jwtTokenService = new JwtTokenService(new ObjectMapper());
+        ReflectionTestUtils.setField(jwtTokenService, "timeToLive", Duration.ofHours(8));
+        denyList = new TokenDenyList(jwtTokenService);
+    }
+
+    @Test
+    void revokedTokenIsRevokedAlone() {
+        Instant now = Instant.now();
+        AuthenticatedUser first = user(42L, "first", now, now.plusSeconds(60));
+        AuthenticatedUser second = user(42L, "second", now, now.plusSeconds(60));
+
+        denyList.revoke(first);
+
+        assertTrue(denyList.isRevoked(first));
+        assertFalse(denyList.isRevoked(second));
+    }
+
+    @Test
+    void revokingAUserRevokesOnlyTheTokensIssuedBefore() {
+        Instant now = Instant.now();
+        AuthenticatedUser before = user(42L, "before", now.minusSeconds(10), now.plusSeconds(60));
+
+        denyList.revokeAll(42L);
+
+        assertTrue(denyList.isRevoked(before));
+        assertFalse(denyList.isRevoked(user(42L, "after", now.plusSeconds(5), now.plusSeconds(60))));
+        assertFalse(denyList.isRevoked(user(7L, "someone-else", before.issuedAt(), before.expiresAt())));
+    }
+
+    @Test
+    void expiredRevocationsArePurged() {
+        Instant now = Instant.now();
+        AuthenticatedUser expired = user(42L, "expired", now.minusSeconds(120), now.minusSeconds(60));
+        AuthenticatedUser current = user(42L, "current", now, now.plusSeconds(60));
+        denyList.revoke(expired);
+        denyList.revoke(current);
+
+        denyList.purgeExpired();
+
+        // A purged entry is harmless: the token no longer verifies anyway
+        assertFalse(denyList.isRevoked(expired));
+        assertTrue(denyList.isRevoked(current));
+    }
+
+    @Test
+    void userRevocationIsKeptForATokenLifetime() {
+        AuthenticatedUser issued = user(42L, "issued", Instant.now().minusSeconds(10), Instant.now().plus(Duration.ofHours(8)));
+        denyList.revokeAll(42L);
+
+        denyList.purgeExpired();
+
+        assertTrue(denyList.isRevoked(issued));
+    }
+
+    private static AuthenticatedUser user(Long id, String tokenId, Instant issuedAt, Instant expiresAt) {
+        return new AuthenticatedUser(id, null, null, null, UserRole.ENCADRANT, null, null, null, null,
+                tokenId, issuedAt, expiresAt);
+    }
+}
@@ -0,0 +1,60 @@
+package ma.xproce.pfehub.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the batch assignment solver on a start-of-semester sized problem.
+ * Run with: mvn test-compile exec:java -Dexec.mainClass=ma.xproce.pfehub.service.AssignmentSolverBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AssignmentSolverBenchmark {
+
+    @Param({"2000"})
+    private int projects;
+
+    @Param({"300"})
+    private int professors;
+
+    @Param({"5", "8"})
+    private int capacity;
+
+    private int[][] scores;
+    private int[] capacities;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        scores = new int[projects][professors];
+        for (int i = 0; i < projects; i++) {
+            for (int j = 0; j < professors; j++) {
+                // Most pairs only earn the workload bonus, a few share specialization/department/keywords
+                scores[i][j] = random.nextInt(10) < 8 ? 10 * random.nextInt(2) : 10 * random.nextInt(10);
+            }
+        }
+        capacities = new int[professors];
+        Arrays.fill(capacities, capacity);
+    }
+
+    @Benchmark
+    public int[] solve() {
+        return AssignmentSolver.solve(scores, capacities);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AssignmentSolverBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
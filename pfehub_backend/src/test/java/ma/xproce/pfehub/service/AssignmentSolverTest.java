@@ -0,0 +1,103 @@
+package ma.xproce.pfehub.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the solver with an exhaustive search on instances small enough to enumerate: the plan
+ * must respect every capacity, assign as many projects as possible and, among those plans, reach
+ * the best total score.
+ */
+class AssignmentSolverTest {
+
+    @Test
+    void matchesExhaustiveSearchOnRandomInstances() {
+        Random random = new Random(11);
+        for (int instance = 0; instance < 2_000; instance++) {
+            int rows = 1 + random.nextInt(6);
+            int cols = 1 + random.nextInt(3);
+            int[][] scores = new int[rows][cols];
+            for (int[] row : scores) {
+                for (int j = 0; j < cols; j++) {
+                    row[j] = random.nextInt(101);
+                }
+            }
+            // Capacities of 0 included, and often fewer places than projects
+            int[] capacities = new int[cols];
+            for (int j = 0; j < cols; j++) {
+                capacities[j] = random.nextInt(3);
+            }
+
+            int[] assignment = AssignmentSolver.solve(scores, capacities);
+
+            String description = "scores " + Arrays.deepToString(scores) + ", capacities " + Arrays.toString(capacities);
+            int[] load = new int[cols];
+            for (int column : assignment) {
+                if (column != AssignmentSolver.UNASSIGNED) {
+                    load[column]++;
+                }
+            }
+            for (int j = 0; j < cols; j++) {
+                assertTrue(load[j] <= capacities[j], description);
+            }
+            assertArrayEquals(best(scores, capacities), value(scores, assignment), description);
+        }
+    }
+
+    @Test
+    void leavesEveryProjectUnassignedWithoutCapacity() {
+        int[] assignment = AssignmentSolver.solve(new int[][]{{90, 10}, {50, 50}}, new int[]{0, 0});
+
+        assertArrayEquals(new int[]{AssignmentSolver.UNASSIGNED, AssignmentSolver.UNASSIGNED}, assignment);
+    }
+
+    @Test
+    void prefersAssigningMoreProjectsToAHigherScore() {
+        // Giving the only place of professor 0 to project 0 (100) would leave project 1 without one
+        int[] assignment = AssignmentSolver.solve(new int[][]{{100, 0}, {10, 0}}, new int[]{1, 1});
+
+        assertEquals(2, Arrays.stream(assignment).filter(column -> column != AssignmentSolver.UNASSIGNED).count());
+    }
+
+    /** (projects assigned, total score) of a plan. */
+    private static int[] value(int[][] scores, int[] assignment) {
+        int assigned = 0;
+        int total = 0;
+        for (int r = 0; r < assignment.length; r++) {
+            if (assignment[r] != AssignmentSolver.UNASSIGNED) {
+                assigned++;
+                total += scores[r][assignment[r]];
+            }
+        }
+        return new int[]{assigned, total};
+    }
+
+    /** The best (projects assigned, total score) over every plan respecting the capacities. */
+    private static int[] best(int[][] scores, int[] capacities) {
+        return search(scores, capacities.clone(), 0, 0, 0);
+    }
+
+    private static int[] search(int[][] scores, int[] remaining, int row, int assigned, int total) {
+        if (row == scores.length) {
+            return new int[]{assigned, total};
+        }
+        int[] best = search(scores, remaining, row + 1, assigned, total);
+        for (int j = 0; j < remaining.length; j++) {
+            if (remaining[j] > 0) {
+                remaining[j]--;
+                int[] candidate = search(scores, remaining, row + 1, assigned + 1, total + scores[row][j]);
+                remaining[j]++;
+                if (candidate[0] > best[0] || (candidate[0] == best[0] && candidate[1] > best[1])) {
+                    best = candidate;
+                }
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,153 @@
+package ma.xproce.pfehub.service;
+
+import ma.xproce.pfehub.dao.entities.LivrableType;
+import ma.xproce.pfehub.dao.repositories.EtudiantRepository;
+import ma.xproce.pfehub.web.dto.DeliverableSubmissionDTO;
+import ma.xproce.pfehub.web.dto.ProjectSubmissionDTO;
+import ma.xproce.pfehub.web.dto.UploadInitDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:chunked-uploads;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "file.upload-dir=target/chunked-uploads-test/files"
+})
+class ChunkedUploadManagerTest {
+
+    private static final byte[] CONTENT = "Rapport final".getBytes(StandardCharsets.UTF_8);
+
+    @Autowired
+    private IChunkedUploadService chunkedUploadService;
+
+    @Autowired
+    private IFileStorageService fileStorageService;
+
+    @Autowired
+    private IPfeService pfeService;
+
+    @Autowired
+    private EtudiantRepository etudiantRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void rolledBackCompletionKeepsTheUpload() {
+        String uploadId = uploadWholeFile();
+        String[] stored = new String[1];
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            stored[0] = chunkedUploadService.completeUpload(uploadId, "deliverables");
+            status.setRollbackOnly();
+        });
+
+        int slash = stored[0].lastIndexOf('/');
+        assertFalse(fileStorageService.fileExists(stored[0].substring(slash + 1), stored[0].substring(0, slash)));
+        assertTrue(chunkedUploadService.getUpload(uploadId).isPresent());
+        String filePath = chunkedUploadService.completeUpload(uploadId, "deliverables");
+        assertTrue(chunkedUploadService.getUpload(uploadId).isEmpty());
+        slash = filePath.lastIndexOf('/');
+        assertEquals(CONTENT.length, fileStorageService.getFilePath(filePath.substring(slash + 1), filePath.substring(0, slash)).toFile().length());
+    }
+
+    @Test
+    void committedDeliverableDropsTheUpload() {
+        Long student = etudiantRepository.findByEmail("m.elouardi@etudiant.ensam-casa.ma").orElseThrow().getId();
+        ProjectSubmissionDTO submission = new ProjectSubmissionDTO();
+        submission.setTitle("Projet téléversé");
+        submission.setDescription("Description");
+        submission.setObjectives("Objectifs");
+        Long project = pfeService.createProject(student, submission, null).getId();
+        String uploadId = uploadWholeFile();
+        DeliverableSubmissionDTO deliverable = new DeliverableSubmissionDTO();
+        deliverable.setTitle("Rapport");
+        deliverable.setType(LivrableType.DOCUMENTATION);
+
+        pfeService.addDeliverableFromUpload(project, deliverable, uploadId);
+
+        assertTrue(chunkedUploadService.getUpload(uploadId).isEmpty());
+    }
+
+    @Test
+    void uploadIsNotCancelledUnderARunningChunk() throws Exception {
+        String uploadId = start();
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        InputStream body = new ByteArrayInputStream(CONTENT) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                reading.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.read(b, off, len);
+            }
+        };
+        CompletableFuture<?> write = CompletableFuture.runAsync(
+                () -> chunkedUploadService.writeChunk(uploadId, 0, digest(CONTENT), body));
+        assertTrue(reading.await(10, TimeUnit.SECONDS));
+
+        assertThrows(RuntimeException.class, () -> chunkedUploadService.cancelUpload(uploadId));
+        release.countDown();
+        write.get(10, TimeUnit.SECONDS);
+
+        assertEquals(1, chunkedUploadService.getUpload(uploadId).orElseThrow().getReceivedChunks());
+        chunkedUploadService.cancelUpload(uploadId);
+        assertTrue(chunkedUploadService.getUpload(uploadId).isEmpty());
+    }
+
+    @Test
+    void partFilesAreNotUnderTheServedDirectory() throws IOException {
+        start();
+
+        try (Stream<Path> files = Files.walk(Paths.get("target/chunked-uploads-test/files"))) {
+            assertTrue(files.noneMatch(file -> file.getFileName().toString().endsWith(".part")));
+        }
+    }
+
+    private String start() {
+        UploadInitDTO dto = new UploadInitDTO();
+        dto.setFileName("rapport.bin");
+        dto.setSize((long) CONTENT.length);
+        return chunkedUploadService.startUpload(dto).getUploadId();
+    }
+
+    private String uploadWholeFile() {
+        String uploadId = start();
+        chunkedUploadService.writeChunk(uploadId, 0, digest(CONTENT), new ByteArrayInputStream(CONTENT));
+        return uploadId;
+    }
+
+    private static String digest(byte[] content) {
+        try {
+            return "sha-256=:" + Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(content)) + ":";
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package ma.xproce.pfehub.service;
+
+import ma.xproce.pfehub.dao.entities.Departement;
+import ma.xproce.pfehub.dao.entities.Etudiant;
+import ma.xproce.pfehub.dao.entities.PFE;
+import ma.xproce.pfehub.dao.entities.PFEStatus;
+import ma.xproce.pfehub.dao.repositories.DepartementRepository;
+import ma.xproce.pfehub.dao.repositories.EtudiantRepository;
+import ma.xproce.pfehub.dao.repositories.PfeRepository;
+import ma.xproce.pfehub.web.dto.ProjectSubmissionDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The counters against what the database holds when writes race: two transactions moving the same
+ * project out of the same status (one of them has to fail, otherwise the move is applied twice), and
+ * a rebuild reading a commit whose deltas are not applied yet.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:dashboard-stats;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false"
+})
+class DashboardStatsTest {
+
+    @Autowired
+    private DashboardStats dashboardStats;
+
+    @Autowired
+    private IPfeService pfeService;
+
+    @Autowired
+    private PfeRepository pfeRepository;
+
+    @Autowired
+    private EtudiantRepository etudiantRepository;
+
+    @Autowired
+    private DepartementRepository departementRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void concurrentStatusChangesOfOneProjectAreCountedOnce() throws Exception {
+        Long student = etudiantRepository.findByEmail("m.elouardi@etudiant.ensam-casa.ma").orElseThrow().getId();
+        ProjectSubmissionDTO submission = new ProjectSubmissionDTO();
+        submission.setTitle("Projet concurrent");
+        submission.setDescription("Description");
+        submission.setObjectives("Objectifs");
+        Long project = pfeService.createProject(student, submission, null).getId();
+        Map<PFEStatus, Long> before = dashboardStats.snapshot().projectsByStatus();
+
+        // Both transactions read the project before either writes it
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        CyclicBarrier bothLoaded = new CyclicBarrier(2);
+        Callable<Void> accept = () -> {
+            transaction.executeWithoutResult(status -> {
+                PFE pfe = pfeRepository.findById(project).orElseThrow();
+                try {
+                    bothLoaded.await(10, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                pfe.setStatus(PFEStatus.ACCEPTE);
+            });
+            return null;
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<Future<Void>> results = executor.invokeAll(List.of(accept, accept));
+        executor.shutdown();
+
+        int failed = 0;
+        for (Future<Void> result : results) {
+            try {
+                result.get();
+            } catch (ExecutionException e) {
+                assertInstanceOf(OptimisticLockingFailureException.class, e.getCause());
+                failed++;
+            }
+        }
+        assertEquals(1, failed);
+
+        Map<PFEStatus, Long> after = dashboardStats.snapshot().projectsByStatus();
+        assertEquals(count(before, PFEStatus.EN_ATTENTE_ASSIGNATION) - 1, count(after, PFEStatus.EN_ATTENTE_ASSIGNATION));
+        assertEquals(count(before, PFEStatus.ACCEPTE) + 1, count(after, PFEStatus.ACCEPTE));
+    }
+
+    @Test
+    void rebuildWaitsForCommittedChangesToBeApplied() throws Exception {
+        Long project = submitProject("s.lahlou@etudiant.ensam-casa.ma");
+        CountDownLatch committed = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<?> writer = executor.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            // Registered before the flush, so it runs after the commit but before the counters get the change
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int completion) {
+                    committed.countDown();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            pfeRepository.findById(project).orElseThrow().setStatus(PFEStatus.REFUSE);
+        }));
+        assertTrue(committed.await(10, TimeUnit.SECONDS));
+
+        Future<?> rebuild = executor.submit(dashboardStats::rebuild);
+        assertThrows(TimeoutException.class, () -> rebuild.get(300, TimeUnit.MILLISECONDS));
+        release.countDown();
+        writer.get(10, TimeUnit.SECONDS);
+        rebuild.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        Map<PFEStatus, Long> stored = new HashMap<>();
+        for (Object[] row : pfeRepository.countByStatusGrouped()) {
+            stored.put((PFEStatus) row[0], (Long) row[1]);
+        }
+        assertEquals(stored, dashboardStats.snapshot().projectsByStatus());
+    }
+
+    @Test
+    void studentChangingDepartmentCarriesTheirProject() {
+        String email = "y.benali@etudiant.ensam-casa.ma";
+        Map<String, Long> before = dashboardStats.snapshot().projectsByDepartment();
+        submitProject(email);
+        String from = new TransactionTemplate(transactionManager).execute(status ->
+                etudiantRepository.findByEmail(email).orElseThrow().getDepartement().getName());
+        Map<String, Long> submitted = dashboardStats.snapshot().projectsByDepartment();
+        assertEquals(before.getOrDefault(from, 0L) + 1, submitted.get(from));
+
+        Departement to = departementRepository.findByCode("GEE").orElseThrow();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Etudiant student = etudiantRepository.findByEmail(email).orElseThrow();
+            student.setDepartement(to);
+        });
+
+        Map<String, Long> moved = dashboardStats.snapshot().projectsByDepartment();
+        assertEquals(submitted.get(from) - 1, moved.getOrDefault(from, 0L));
+        assertEquals(submitted.getOrDefault(to.getName(), 0L) + 1, moved.get(to.getName()));
+    }
+
+    private Long submitProject(String studentEmail) {
+        Long student = etudiantRepository.findByEmail(studentEmail).orElseThrow().getId();
+        ProjectSubmissionDTO submission = new ProjectSubmissionDTO();
+        submission.setTitle("Projet de " + studentEmail);
+        submission.setDescription("Description");
+        submission.setObjectives("Objectifs");
+        return pfeService.createProject(student, submission, null).getId();
+    }
+
+    private static long count(Map<PFEStatus, Long> projectsByStatus, PFEStatus status) {
+        return projectsByStatus.getOrDefault(status, 0L);
+    }
+}
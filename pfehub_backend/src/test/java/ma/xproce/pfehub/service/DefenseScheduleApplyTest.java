@@ -0,0 +1,176 @@
+package ma.xproce.pfehub.service;
+
+import ma.xproce.pfehub.dao.entities.AnneeUniversitaire;
+import ma.xproce.pfehub.dao.entities.PFE;
+import ma.xproce.pfehub.dao.entities.PFEStatus;
+import ma.xproce.pfehub.dao.repositories.AnneeUniversitaireRepository;
+import ma.xproce.pfehub.dao.repositories.EncadrantRepository;
+import ma.xproce.pfehub.dao.repositories.EtudiantRepository;
+import ma.xproce.pfehub.dao.repositories.PfeRepository;
+import ma.xproce.pfehub.web.dto.DefenseScheduleJobDTO;
+import ma.xproce.pfehub.web.dto.DefenseScheduleRequestDTO;
+import ma.xproce.pfehub.web.dto.ProjectSubmissionDTO;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Applying a generated defense schedule: the projects are read in one query, and an apply racing
+ * another one for the same room waits for it and then sees the room taken.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:schedule-apply;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=ma.xproce.pfehub.service.DefenseScheduleApplyTest$SqlRecorder"
+})
+class DefenseScheduleApplyTest {
+
+    @Autowired
+    private ISoutenanceService soutenanceService;
+
+    @Autowired
+    private IPfeService pfeService;
+
+    @Autowired
+    private PfeRepository pfeRepository;
+
+    @Autowired
+    private EtudiantRepository etudiantRepository;
+
+    @Autowired
+    private EncadrantRepository encadrantRepository;
+
+    @Autowired
+    private AnneeUniversitaireRepository anneeUniversitaireRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    public static class SqlRecorder implements StatementInspector {
+
+        static final List<String> statements = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+    }
+
+    // One working day of defenses, in the future
+    @BeforeEach
+    void setDefensePeriod() {
+        AnneeUniversitaire year = anneeUniversitaireRepository.findByIsCurrentTrue().orElseThrow();
+        year.setDefenseStartDate(LocalDate.of(2031, 1, 6));
+        year.setDefenseEndDate(LocalDate.of(2031, 1, 6));
+        anneeUniversitaireRepository.save(year);
+    }
+
+    @Test
+    void projectsOfTheScheduleAreReadInOneQuery() throws Exception {
+        submitForDefense("a.tazi@etudiant.ensam-casa.ma", "m.mohyeddine@ensam-casa.ma");
+        submitForDefense("fz.alami@etudiant.ensam-casa.ma", "a.chergui@ensam-casa.ma");
+        submitForDefense("k.mansouri@etudiant.ensam-casa.ma", "m.hain@ensam-casa.ma");
+        String job = generate("Salle B", "Salle C", "Salle D");
+
+        List<String> reads = new TransactionTemplate(transactionManager).execute(status -> {
+            SqlRecorder.statements.clear();
+            assertTrue(soutenanceService.applySchedule(job).size() >= 3);
+            return SqlRecorder.statements.stream()
+                    .filter(sql -> sql.startsWith("select") && !sql.contains("next value for"))
+                    .toList();
+        });
+
+        assertEquals(1, reads.size(), reads.toString());
+    }
+
+    @Test
+    void applyRacingAnotherForTheSameRoomSeesItOnceCommitted() throws Exception {
+        // Two schedules of one project each, generated before either is applied: both take the only slot of the room
+        Long first = submitForDefense("i.chraibi@etudiant.ensam-casa.ma", "b.hirchoua@ensam-casa.ma");
+        String firstJob = generate("Salle A");
+        setStatus(first, PFEStatus.ACCEPTE);
+        submitForDefense("o.fassifihri@etudiant.ensam-casa.ma", "m.azmi@ensam-casa.ma");
+        String secondJob = generate("Salle A");
+        setStatus(first, PFEStatus.SOUMISSION_FINALE);
+
+        CountDownLatch applied = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        // The first apply is done but not committed yet when the second one starts
+        Future<?> firstApply = executor.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            soutenanceService.applySchedule(firstJob);
+            applied.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertTrue(applied.await(10, TimeUnit.SECONDS));
+        Future<?> secondApply = executor.submit(() -> soutenanceService.applySchedule(secondJob));
+        assertThrows(TimeoutException.class, () -> secondApply.get(300, TimeUnit.MILLISECONDS));
+        release.countDown();
+        firstApply.get(10, TimeUnit.SECONDS);
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> secondApply.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(ScheduleConflictException.class, failure.getCause());
+        executor.shutdown();
+    }
+
+    private Long submitForDefense(String studentEmail, String professorEmail) {
+        Long student = etudiantRepository.findByEmail(studentEmail).orElseThrow().getId();
+        ProjectSubmissionDTO submission = new ProjectSubmissionDTO();
+        submission.setTitle("Projet de " + studentEmail);
+        submission.setDescription("Description");
+        submission.setObjectives("Objectifs");
+        Long project = pfeService.createProject(student, submission, null).getId();
+        pfeService.assignProfessor(project, encadrantRepository.findByEmail(professorEmail).orElseThrow().getId(), null);
+        setStatus(project, PFEStatus.SOUMISSION_FINALE);
+        return project;
+    }
+
+    private void setStatus(Long project, PFEStatus status) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(transaction -> {
+            PFE pfe = pfeRepository.findById(project).orElseThrow();
+            pfe.setStatus(status);
+        });
+    }
+
+    private String generate(String... rooms) throws InterruptedException {
+        DefenseScheduleRequestDTO request = new DefenseScheduleRequestDTO();
+        request.setRooms(List.of(rooms));
+        request.setDayStart("09:00");
+        request.setDayEnd("10:00");
+        String job = soutenanceService.startScheduleGeneration(request);
+        for (int i = 0; i < 100; i++) {
+            DefenseScheduleJobDTO status = soutenanceService.getScheduleJob(job).orElseThrow();
+            if (status.getStatus() == DefenseScheduleJobDTO.Status.COMPLETED) {
+                return job;
+            }
+            Thread.sleep(50);
+        }
+        throw new IllegalStateException("Schedule job " + job + " did not complete");
+    }
+}
@@ -0,0 +1,83 @@
+package ma.xproce.pfehub.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the defense timetable solver on an end-of-year sized session: three weeks of
+ * eight one-hour slots a day, some rooms already booked and professors already taken here and there.
+ * Run with: mvn test-compile exec:java -Dexec.mainClass=ma.xproce.pfehub.service.DefenseTimetableSolverBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DefenseTimetableSolverBenchmark {
+
+    @Param({"1500"})
+    private int defenses;
+
+    @Param({"20"})
+    private int rooms;
+
+    @Param({"150"})
+    private int professors;
+
+    @Param({"120"})
+    private int timeSlots;
+
+    private int[][] juries;
+    private BitSet[] professorBusy;
+    private boolean[][] roomBlocked;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        juries = new int[defenses][];
+        for (int d = 0; d < defenses; d++) {
+            // A supervisor and two other distinct professors
+            int supervisor = random.nextInt(professors);
+            int second = (supervisor + 1 + random.nextInt(professors - 1)) % professors;
+            int third;
+            do {
+                third = random.nextInt(professors);
+            } while (third == supervisor || third == second);
+            juries[d] = new int[]{supervisor, second, third};
+        }
+        professorBusy = new BitSet[professors];
+        for (int p = 0; p < professors; p++) {
+            professorBusy[p] = new BitSet(timeSlots);
+            for (int t = 0; t < timeSlots; t++) {
+                if (random.nextInt(10) == 0) {
+                    professorBusy[p].set(t);
+                }
+            }
+        }
+        roomBlocked = new boolean[timeSlots][rooms];
+        for (int t = 0; t < timeSlots; t++) {
+            for (int r = 0; r < rooms; r++) {
+                roomBlocked[t][r] = random.nextInt(20) == 0;
+            }
+        }
+    }
+
+    @Benchmark
+    public DefenseTimetableSolver.Result solve() {
+        return DefenseTimetableSolver.solve(juries, professorBusy, roomBlocked, processed -> {
+        });
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DefenseTimetableSolverBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
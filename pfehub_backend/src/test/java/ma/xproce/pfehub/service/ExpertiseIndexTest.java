@@ -0,0 +1,112 @@
+package ma.xproce.pfehub.service;
+
+import ma.xproce.pfehub.dao.entities.Encadrant;
+import ma.xproce.pfehub.dao.repositories.EncadrantRepository;
+import ma.xproce.pfehub.web.dto.UpdateProfessorDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:expertise-index;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false"
+})
+class ExpertiseIndexTest {
+
+    @Autowired
+    private ExpertiseIndex expertiseIndex;
+
+    @Autowired
+    private IUserService userService;
+
+    @Autowired
+    private EncadrantRepository encadrantRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Matches the linear scan of every professor's entries, across re-indexing and removals
+    @Test
+    void matchesAreThoseOfALinearScan() {
+        Random random = new Random(7);
+        ExpertiseIndex index = new ExpertiseIndex(null);
+        Map<Long, List<String>> expertise = new HashMap<>();
+
+        for (int round = 0; round < 300; round++) {
+            long id = random.nextInt(40);
+            if (random.nextInt(5) == 0) {
+                index.remove(id);
+                expertise.remove(id);
+            } else {
+                List<String> entries = new ArrayList<>();
+                for (int i = random.nextInt(4); i >= 0; i--) {
+                    entries.add(word(random, 1 + random.nextInt(7)));
+                }
+                Encadrant encadrant = new Encadrant();
+                encadrant.setId(id);
+                encadrant.setExpertise(String.join(",", entries));
+                index.index(encadrant);
+                expertise.put(id, entries);
+            }
+
+            List<String> keywords = new ArrayList<>();
+            for (int i = random.nextInt(4); i >= 0; i--) {
+                keywords.add(word(random, 1 + random.nextInt(9)).toUpperCase());
+            }
+            assertEquals(linearScan(expertise, keywords), index.countKeywordMatches(keywords), "keywords " + keywords);
+        }
+    }
+
+    @Test
+    void expertiseIsIndexedOnlyOnceTheUpdateCommits() {
+        Encadrant professor = encadrantRepository.findByEmail("m.azmi@ensam-casa.ma").orElseThrow();
+        UpdateProfessorDTO dto = new UpdateProfessorDTO();
+        dto.setExpertise("Cryptographie post-quantique");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userService.updateProfessor(professor.getId(), dto);
+            status.setRollbackOnly();
+        });
+        assertFalse(expertiseIndex.countKeywordMatches(List.of("quantique")).containsKey(professor.getId()));
+
+        userService.updateProfessor(professor.getId(), dto);
+        assertTrue(expertiseIndex.countKeywordMatches(List.of("quantique")).containsKey(professor.getId()));
+    }
+
+    // A small alphabet, so that keywords and entries often contain one another
+    private static String word(Random random, int length) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            word.append("abcd".charAt(random.nextInt(4)));
+        }
+        return word.toString();
+    }
+
+    private static Map<Long, Integer> linearScan(Map<Long, List<String>> expertise, List<String> keywords) {
+        Map<Long, Integer> matches = new HashMap<>();
+        for (String keyword : keywords) {
+            String normalized = keyword.toLowerCase();
+            for (Map.Entry<Long, List<String>> professor : expertise.entrySet()) {
+                Set<String> entries = new HashSet<>(professor.getValue());
+                if (entries.stream().anyMatch(entry -> normalized.contains(entry) || entry.contains(normalized))) {
+                    matches.merge(professor.getKey(), 1, Integer::sum);
+                }
+            }
+        }
+        return matches;
+    }
+}
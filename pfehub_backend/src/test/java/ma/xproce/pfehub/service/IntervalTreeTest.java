@@ -0,0 +1,89 @@
+package ma.xproce.pfehub.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Compares the tree with a linear scan of the same intervals across random inserts and removals.
+ * Coordinates are drawn from a small range, so that many intervals share a start and many only
+ * touch (one's end is another's start), which must not count as overlapping.
+ */
+class IntervalTreeTest {
+
+    private record Interval(long start, long end, long id) {
+    }
+
+    @Test
+    void overlapsAreThoseOfALinearScan() {
+        Random random = new Random(5);
+        for (int run = 0; run < 50; run++) {
+            IntervalTree tree = new IntervalTree();
+            List<Interval> intervals = new ArrayList<>();
+            long nextId = 0;
+            for (int step = 0; step < 400; step++) {
+                if (!intervals.isEmpty() && random.nextInt(3) == 0) {
+                    Interval removed = intervals.remove(random.nextInt(intervals.size()));
+                    tree.remove(removed.start(), removed.id());
+                } else {
+                    long start = random.nextInt(40);
+                    // Mostly the defense length, sometimes shorter or longer
+                    long length = random.nextInt(4) == 0 ? 1 + random.nextInt(12) : 6;
+                    Interval added = new Interval(start, start + length, nextId++);
+                    intervals.add(added);
+                    tree.insert(added.start(), added.end(), added.id());
+                }
+                assertEquals(intervals.size(), tree.size());
+
+                long from = random.nextInt(46);
+                long to = from + 1 + random.nextInt(8);
+                List<Long> found = new ArrayList<>();
+                tree.findOverlapping(from, to, found);
+                found.sort(null);
+                assertEquals(linearScan(intervals, from, to), found, "[" + from + ", " + to + ") in " + intervals);
+            }
+        }
+    }
+
+    @Test
+    void touchingIntervalsDoNotOverlap() {
+        IntervalTree tree = new IntervalTree();
+        tree.insert(60, 120, 1);
+        tree.insert(120, 180, 2);
+        tree.insert(120, 180, 3);
+
+        List<Long> found = new ArrayList<>();
+        tree.findOverlapping(0, 60, found);
+        tree.findOverlapping(180, 240, found);
+        assertEquals(List.of(), found);
+
+        tree.findOverlapping(119, 120, found);
+        assertEquals(List.of(1L), found);
+    }
+
+    @Test
+    void removingAMissingIntervalFails() {
+        IntervalTree tree = new IntervalTree();
+        tree.insert(60, 120, 1);
+
+        assertThrows(IllegalStateException.class, () -> tree.remove(60, 2));
+        assertThrows(IllegalStateException.class, () -> tree.remove(0, 1));
+        assertEquals(1, tree.size());
+    }
+
+    private static List<Long> linearScan(List<Interval> intervals, long from, long to) {
+        List<Long> ids = new ArrayList<>();
+        for (Interval interval : intervals) {
+            if (interval.start() < to && interval.end() > from) {
+                ids.add(interval.id());
+            }
+        }
+        ids.sort(null);
+        return ids;
+    }
+}
@@ -0,0 +1,86 @@
+package ma.xproce.pfehub.service;
+
+import ma.xproce.pfehub.dao.entities.JuryRole;
+import ma.xproce.pfehub.dao.entities.Soutenance;
+import ma.xproce.pfehub.dao.repositories.EncadrantRepository;
+import ma.xproce.pfehub.dao.repositories.EtudiantRepository;
+import ma.xproce.pfehub.dao.repositories.SoutenanceRepository;
+import ma.xproce.pfehub.web.dto.DefenseProposalDTO;
+import ma.xproce.pfehub.web.dto.JuryMemberDTO;
+import ma.xproce.pfehub.web.dto.ProfessorAgendaEntryDTO;
+import ma.xproce.pfehub.web.dto.ProjectSubmissionDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:professor-agenda;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false"
+})
+class ProfessorAgendaIndexTest {
+
+    @Autowired
+    private ProfessorAgendaIndex professorAgendaIndex;
+
+    @Autowired
+    private ISoutenanceService soutenanceService;
+
+    @Autowired
+    private IPfeService pfeService;
+
+    @Autowired
+    private SoutenanceRepository soutenanceRepository;
+
+    @Autowired
+    private EtudiantRepository etudiantRepository;
+
+    @Autowired
+    private EncadrantRepository encadrantRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // The change runs once the session that read the defense is closed, and its project was never loaded
+    @Test
+    void reindexReadsTheDefenseBeforeItsSessionCloses() {
+        Long student = etudiantRepository.findByEmail("m.elouardi@etudiant.ensam-casa.ma").orElseThrow().getId();
+        Long professor = encadrantRepository.findByEmail("m.hain@ensam-casa.ma").orElseThrow().getId();
+        ProjectSubmissionDTO submission = new ProjectSubmissionDTO();
+        submission.setTitle("Supervision réseau");
+        submission.setDescription("Description");
+        submission.setObjectives("Objectifs");
+        Long project = pfeService.createProject(student, submission, null).getId();
+        JuryMemberDTO president = new JuryMemberDTO();
+        president.setName("Président");
+        president.setRole(JuryRole.PRESIDENT);
+        president.setProfessorId(professor);
+        DefenseProposalDTO proposal = new DefenseProposalDTO();
+        proposal.setProjectId(project);
+        proposal.setProposedDate("2031-02-03");
+        proposal.setProposedTime("14:00");
+        proposal.setProposedRoom("Amphi A");
+        proposal.setJuryMembers(List.of(president));
+        Long defense = soutenanceService.proposeDefense(proposal).getId();
+
+        Runnable change = new TransactionTemplate(transactionManager).execute(status -> {
+            Soutenance soutenance = soutenanceRepository.findById(defense).orElseThrow();
+            soutenance.setProposedTime(LocalTime.of(15, 0));
+            return professorAgendaIndex.reindex(soutenance);
+        });
+        change.run();
+
+        List<ProfessorAgendaEntryDTO> agenda = professorAgendaIndex.getAgenda(professor, LocalDate.of(2031, 2, 3), LocalDate.of(2031, 2, 3));
+        assertEquals(1, agenda.size());
+        assertEquals("Supervision réseau", agenda.get(0).getProjectTitle());
+        assertEquals("15:00", agenda.get(0).getTime());
+        assertEquals(JuryRole.PRESIDENT, agenda.get(0).getRole());
+    }
+}
@@ -0,0 +1,72 @@
+package ma.xproce.pfehub.service;
+
+import ma.xproce.pfehub.dao.repositories.EtudiantRepository;
+import ma.xproce.pfehub.dao.repositories.PfeRepository;
+import ma.xproce.pfehub.web.dto.ProjectSubmissionDTO;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:project-search;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ProjectSearchIndexTest {
+
+    @Autowired
+    private IPfeService pfeService;
+
+    @Autowired
+    private ProjectSearchIndex projectSearchIndex;
+
+    @Autowired
+    private PfeRepository pfeRepository;
+
+    @Autowired
+    private EtudiantRepository etudiantRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeAll
+    void createProject() {
+        submitProject("m.elouardi@etudiant.ensam-casa.ma", "Plateforme de suivi des stages");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "   "})
+    void blankSearchListsEveryProject(String text) {
+        Page<Long> hits = projectSearchIndex.search(text, PageRequest.of(0, 100));
+
+        assertEquals(pfeRepository.count(), hits.getTotalElements());
+    }
+
+    @Test
+    void rolledBackProjectIsNotIndexed() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            submitProject("y.benali@etudiant.ensam-casa.ma", "Détection annulée");
+            status.setRollbackOnly();
+        });
+
+        assertEquals(0, projectSearchIndex.search("annulée", PageRequest.of(0, 10)).getTotalElements());
+    }
+
+    private void submitProject(String studentEmail, String title) {
+        ProjectSubmissionDTO submission = new ProjectSubmissionDTO();
+        submission.setTitle(title);
+        submission.setDescription("Description");
+        submission.setObjectives("Objectifs");
+        pfeService.createProject(etudiantRepository.findByEmail(studentEmail).orElseThrow().getId(), submission, null);
+    }
+}
@@ -0,0 +1,48 @@
+package ma.xproce.pfehub.service;
+
+import ma.xproce.pfehub.dao.entities.UserRole;
+import ma.xproce.pfehub.web.dto.CreateStudentDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:user-search;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false"
+})
+class UserSearchIndexTest {
+
+    @Autowired
+    private IUserService userService;
+
+    @Test
+    void studentRejectedAtCommitIsNotSuggested() {
+        // The student number is taken by a seeded student: the insert fails at flush, after save() returned
+        assertThrows(DataIntegrityViolationException.class, () -> userService.createStudent(student("Fantôme", "ENSAM2025001")));
+
+        assertTrue(userService.autocompleteUsers("Fantôme", UserRole.ETUDIANT, 10).isEmpty());
+    }
+
+    @Test
+    void committedStudentIsSuggested() {
+        userService.createStudent(student("Revenant", "ENSAM2025999"));
+
+        assertEquals(1, userService.autocompleteUsers("Revenant", UserRole.ETUDIANT, 10).size());
+    }
+
+    private static CreateStudentDTO student(String lastName, String numeroEtudiant) {
+        CreateStudentDTO dto = new CreateStudentDTO();
+        dto.setFirstName("Casper");
+        dto.setLastName(lastName);
+        dto.setEmail(numeroEtudiant.toLowerCase() + "@etudiant.ensam-casa.ma");
+        dto.setPassword("etud123");
+        dto.setNumeroEtudiant(numeroEtudiant);
+        dto.setPromotion("2025");
+        return dto;
+    }
+}
@@ -0,0 +1,71 @@
+package ma.xproce.pfehub.web;
+
+import ma.xproce.pfehub.dao.repositories.AppUserRepository;
+import ma.xproce.pfehub.security.JwtTokenService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The administration API answers only administrators: 401 without a token, 403 with the token of
+ * another role. The H2 console is refused to remote clients.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:admin-access;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureMockMvc
+class AdminAccessTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtTokenService jwtTokenService;
+
+    @Autowired
+    private AppUserRepository appUserRepository;
+
+    @Test
+    void adminEndpointsRequireAnAdministrator() throws Exception {
+        String student = token("y.benali@etudiant.ensam-casa.ma");
+        String professor = token("b.hirchoua@ensam-casa.ma");
+        String[][] endpoints = {
+                {"GET", "/api/admin/dashboard"},
+                {"GET", "/api/admin/login/password-hashing"},
+                {"DELETE", "/api/admin/cache"},
+                {"POST", "/api/admin/storage/migrate"}};
+        for (String[] endpoint : endpoints) {
+            HttpMethod method = HttpMethod.valueOf(endpoint[0]);
+            mockMvc.perform(request(method, endpoint[1])).andExpect(status().isUnauthorized());
+            mockMvc.perform(request(method, endpoint[1]).header(HttpHeaders.AUTHORIZATION, "Bearer " + student))
+                    .andExpect(status().isForbidden());
+            mockMvc.perform(request(method, endpoint[1]).header(HttpHeaders.AUTHORIZATION, "Bearer " + professor))
+                    .andExpect(status().isForbidden());
+        }
+
+        mockMvc.perform(get("/api/admin/dashboard").header(HttpHeaders.AUTHORIZATION, "Bearer " + token("h.elmoussaoui@ensam-casa.ma")))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void h2ConsoleIsRefusedToRemoteClients() throws Exception {
+        mockMvc.perform(get("/h2-console/").with(request -> {
+                    request.setRemoteAddr("192.168.1.20");
+                    return request;
+                }))
+                .andExpect(status().isUnauthorized());
+    }
+
+    private String token(String email) {
+        return jwtTokenService.issue(appUserRepository.findByEmail(email).orElseThrow());
+    }
+}
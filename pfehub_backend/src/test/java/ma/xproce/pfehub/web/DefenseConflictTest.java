@@ -0,0 +1,106 @@
+package ma.xproce.pfehub.web;
+
+import ma.xproce.pfehub.dao.entities.JuryRole;
+import ma.xproce.pfehub.dao.repositories.EncadrantRepository;
+import ma.xproce.pfehub.dao.repositories.EtudiantRepository;
+import ma.xproce.pfehub.service.IPfeService;
+import ma.xproce.pfehub.service.ISoutenanceService;
+import ma.xproce.pfehub.web.dto.DefenseProposalDTO;
+import ma.xproce.pfehub.web.dto.DefenseValidationDTO;
+import ma.xproce.pfehub.web.dto.JuryMemberDTO;
+import ma.xproce.pfehub.web.dto.ProjectSubmissionDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Validating or moving a defense into a room already taken by another defense at an overlapping
+ * time is refused with 409 Conflict; a defense starting when the other one ends is not a conflict.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:defense-conflicts;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureMockMvc
+class DefenseConflictTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private IPfeService pfeService;
+
+    @Autowired
+    private ISoutenanceService soutenanceService;
+
+    @Autowired
+    private EtudiantRepository etudiantRepository;
+
+    @Autowired
+    private EncadrantRepository encadrantRepository;
+
+    @Test
+    void roomTakenByAnotherDefenseIsAConflict() throws Exception {
+        // Different supervisors, so that only the room can clash
+        Long scheduled = proposeDefense("a.tazi@etudiant.ensam-casa.ma", "b.hirchoua@ensam-casa.ma");
+        Long other = proposeDefense("fz.alami@etudiant.ensam-casa.ma", "m.azmi@ensam-casa.ma");
+        DefenseValidationDTO validation = new DefenseValidationDTO();
+        validation.setDefenseId(scheduled);
+        validation.setFinalDate("2031-03-10");
+        validation.setFinalTime("10:00");
+        validation.setFinalRoom("Amphi B");
+        soutenanceService.validateDefense(validation);
+
+        mockMvc.perform(put("/api/defenses/" + other + "/validate").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"finalDate\":\"2031-03-10\",\"finalTime\":\"10:30\",\"finalRoom\":\" amphi b\"}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value(containsString("defense " + scheduled)));
+        mockMvc.perform(put("/api/defenses/" + other + "/validate").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"finalDate\":\"2031-03-10\",\"finalTime\":\"11:00\",\"finalRoom\":\"Amphi B\"}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(put("/api/defenses/" + other + "/modify").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"finalDate\":\"2031-03-10\",\"finalTime\":\"09:30\",\"finalRoom\":\"Amphi B\"}"))
+                .andExpect(status().isConflict());
+        mockMvc.perform(put("/api/defenses/" + other + "/modify").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"finalDate\":\"2031-03-10\",\"finalTime\":\"09:30\",\"finalRoom\":\"Amphi C\"}"))
+                .andExpect(status().isOk());
+        // Moving a defense within its own slot does not clash with itself
+        mockMvc.perform(put("/api/defenses/" + other + "/modify").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"finalDate\":\"2031-03-10\",\"finalTime\":\"09:45\",\"finalRoom\":\"Amphi C\"}"))
+                .andExpect(status().isOk());
+    }
+
+    private Long proposeDefense(String studentEmail, String professorEmail) {
+        Long student = etudiantRepository.findByEmail(studentEmail).orElseThrow().getId();
+        Long professor = encadrantRepository.findByEmail(professorEmail).orElseThrow().getId();
+        ProjectSubmissionDTO submission = new ProjectSubmissionDTO();
+        submission.setTitle("Projet de " + studentEmail);
+        submission.setDescription("Description");
+        submission.setObjectives("Objectifs");
+        Long project = pfeService.createProject(student, submission, null).getId();
+        pfeService.assignProfessor(project, professor, null);
+
+        JuryMemberDTO president = new JuryMemberDTO();
+        president.setName("Président");
+        president.setRole(JuryRole.PRESIDENT);
+        president.setProfessorId(professor);
+        DefenseProposalDTO proposal = new DefenseProposalDTO();
+        proposal.setProjectId(project);
+        proposal.setProposedDate("2031-03-10");
+        proposal.setProposedTime("10:00");
+        proposal.setProposedRoom("Amphi B");
+        proposal.setJuryMembers(List.of(president));
+        return soutenanceService.proposeDefense(proposal).getId();
+    }
+}
@@ -0,0 +1,208 @@
+package ma.xproce.pfehub.web;
+
+import jakarta.persistence.EntityManagerFactory;
+import ma.xproce.pfehub.dao.entities.JuryRole;
+import ma.xproce.pfehub.dao.repositories.AppUserRepository;
+import ma.xproce.pfehub.dao.repositories.EncadrantRepository;
+import ma.xproce.pfehub.dao.repositories.EtudiantRepository;
+import ma.xproce.pfehub.security.JwtTokenService;
+import ma.xproce.pfehub.service.IPfeService;
+import ma.xproce.pfehub.service.ISoutenanceService;
+import ma.xproce.pfehub.web.dto.DefenseEvaluationDTO;
+import ma.xproce.pfehub.web.dto.DefenseProposalDTO;
+import ma.xproce.pfehub.web.dto.DefenseValidationDTO;
+import ma.xproce.pfehub.web.dto.JuryMemberDTO;
+import ma.xproce.pfehub.web.dto.ProjectSubmissionDTO;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Calls the endpoints that render entities and counts the statements Hibernate prepares for each.
+ * The entity graph of the repository method behind an endpoint must fetch everything its JSON shows:
+ * an association left out is written as its id alone and fails the rendered path, and one loaded
+ * row by row raises the count.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:statement-counts;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class EndpointStatementCountTest {
+
+    private final Map<String, Long> ids = new HashMap<>();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private IPfeService pfeService;
+
+    @Autowired
+    private ISoutenanceService soutenanceService;
+
+    @Autowired
+    private EtudiantRepository etudiantRepository;
+
+    @Autowired
+    private EncadrantRepository encadrantRepository;
+
+    @Autowired
+    private AppUserRepository appUserRepository;
+
+    @Autowired
+    private JwtTokenService jwtTokenService;
+
+    private String adminToken;
+
+    // On top of the users DataLoader creates: a graded defense, a proposed one, and a project waiting for a professor
+    @BeforeAll
+    void createProjectsAndDefenses() {
+        Long professor = encadrantRepository.findByEmail("b.hirchoua@ensam-casa.ma").orElseThrow().getId();
+        ids.put("professor", professor);
+
+        Long graded = submitProject("y.benali@etudiant.ensam-casa.ma", professor);
+        Long gradedDefense = proposeDefense(graded, professor, "2030-06-10");
+        DefenseValidationDTO validation = new DefenseValidationDTO();
+        validation.setDefenseId(gradedDefense);
+        soutenanceService.validateDefense(validation);
+        DefenseEvaluationDTO evaluation = new DefenseEvaluationDTO();
+        evaluation.setDefenseId(gradedDefense);
+        evaluation.setFinalGrade(15.5);
+        soutenanceService.evaluateDefense(evaluation);
+
+        Long student = etudiantRepository.findByEmail("m.elouardi@etudiant.ensam-casa.ma").orElseThrow().getId();
+        Long project = submitProject("m.elouardi@etudiant.ensam-casa.ma", professor);
+        ids.put("student", student);
+        ids.put("project", project);
+        ids.put("defense", proposeDefense(project, professor, "2030-06-11"));
+
+        submitProject("s.lahlou@etudiant.ensam-casa.ma", null);
+
+        adminToken = jwtTokenService.issue(appUserRepository.findByEmail("h.elmoussaoui@ensam-casa.ma").orElseThrow());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @CsvSource(delimiter = '|', textBlock = """
+            /api/projects/{project}                 | 1 | $.etudiant.specialite.name
+            /api/projects/student/{student}         | 1 | $.encadrant.departement.name
+            /api/projects/pending-assignment        | 1 | $[*].etudiant.anneeUniversitaire.year
+            /api/projects/recent                    | 1 | $[*].encadrant.specialite.name
+            /api/projects/search?q=projet           | 1 | $.content[*].etudiant.departement.name
+            /api/defenses/{defense}                 | 1 | $.pfe.encadrant.specialite.name
+            /api/defenses/project/{project}         | 1 | $.pfe.etudiant.departement.name
+            /api/defenses/student/{student}         | 1 | $.pfe.etudiant.anneeUniversitaire.year
+            /api/defenses/pending                   | 1 | $[*].pfe.etudiant.lastName
+            /api/defenses/professor/{professor}     | 1 | $[*].pfe.encadrant.departement.name
+            /api/defenses/evaluated                 | 1 | $[*].evaluatedBy.departement.name
+            /api/defenses/{defense}/jury            | 1 | $[*].professor.specialite.name
+            /api/users?size=5                       | 2 | $.content[*].departement.name
+            /api/users/{student}                    | 1 | $.specialite.name
+            /api/users/students/{student}           | 1 | $.anneeUniversitaire.year
+            /api/users/students/search?q=etudiant   | 1 | $.content[*].departement.name
+            /api/users/professors                   | 1 | $[*].specialite.name
+            /api/users/professors/available         | 1 | $[*].departement.name
+            /api/users/professors/{professor}       | 1 | $.departement.name
+            /api/admin/dashboard                    | 0 | $.recentSubmissions[*].etudiant.specialite.name
+            """)
+    void rendersInItsStatementCount(String endpoint, int statements, String rendered) throws Exception {
+        String url = endpoint;
+        for (Map.Entry<String, Long> id : ids.entrySet()) {
+            url = url.replace("{" + id.getKey() + "}", id.getValue().toString());
+        }
+        MockHttpServletRequestBuilder request = get(url);
+        if (endpoint.startsWith("/api/admin/")) {
+            request.header(HttpHeaders.AUTHORIZATION, "Bearer " + adminToken);
+        }
+        assertStatements(statements, request, rendered);
+    }
+
+    // The user is rendered once the login's transaction-less lookup has returned
+    @Test
+    void loginRendersInOneStatement() throws Exception {
+        assertStatements(1, post("/api/auth/login").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"email\":\"b.hirchoua@ensam-casa.ma\",\"password\":\"prof123\"}"), "$.user.departementNom");
+    }
+
+    // The defense, its professors in one query, the delete of the old jury and one batch of inserts
+    @Test
+    void juryOfFiveIsRewrittenInFourStatements() throws Exception {
+        Long other = encadrantRepository.findByEmail("m.azmi@ensam-casa.ma").orElseThrow().getId();
+        String jury = """
+                [{"name":"Président","role":"PRESIDENT","professorId":%d},
+                 {"name":"Examinateur","role":"EXAMINATEUR","professorId":%d},
+                 {"name":"Externe 1","role":"EXAMINATEUR"},
+                 {"name":"Externe 2","role":"EXAMINATEUR"},
+                 {"name":"Externe 3","role":"EXAMINATEUR"}]
+                """.formatted(ids.get("professor"), other);
+        assertStatements(4, put("/api/defenses/" + ids.get("defense") + "/jury")
+                .contentType(MediaType.APPLICATION_JSON).content(jury), "$.message");
+    }
+
+    private void assertStatements(int expected, RequestBuilder request, String rendered) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(rendered).exists());
+        assertEquals(expected, statistics.getPrepareStatementCount());
+    }
+
+    private Long submitProject(String studentEmail, Long professor) {
+        Long student = etudiantRepository.findByEmail(studentEmail).orElseThrow().getId();
+        ProjectSubmissionDTO submission = new ProjectSubmissionDTO();
+        submission.setTitle("Projet de " + studentEmail);
+        submission.setDescription("Description");
+        submission.setObjectives("Objectifs");
+        Long project = pfeService.createProject(student, submission, null).getId();
+        if (professor != null) {
+            pfeService.assignProfessor(project, professor, null);
+        }
+        return project;
+    }
+
+    private Long proposeDefense(Long project, Long professor, String date) {
+        JuryMemberDTO president = new JuryMemberDTO();
+        president.setName("Président");
+        president.setRole(JuryRole.PRESIDENT);
+        president.setProfessorId(professor);
+        JuryMemberDTO examiner = new JuryMemberDTO();
+        examiner.setName("Examinateur externe");
+        examiner.setRole(JuryRole.EXAMINATEUR);
+
+        DefenseProposalDTO proposal = new DefenseProposalDTO();
+        proposal.setProjectId(project);
+        proposal.setProposedDate(date);
+        proposal.setProposedTime("10:00");
+        proposal.setProposedRoom("Amphi A");
+        proposal.setJuryMembers(List.of(president, examiner));
+        return soutenanceService.proposeDefense(proposal).getId();
+    }
+}
@@ -0,0 +1,204 @@
+package ma.xproce.pfehub.web;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Range and conditional handling of {@link FileStreamer} on a 100 byte file: which status each
+ * combination of headers gets and which bytes are sent.
+ */
+class FileStreamerTest {
+
+    private static final Instant MODIFIED = Instant.parse("2030-05-01T10:00:00Z");
+
+    private final FileStreamer streamer = new FileStreamer();
+
+    @TempDir
+    Path directory;
+
+    private Path file;
+    private byte[] content;
+    private String etag;
+
+    @BeforeEach
+    void writeFile() throws Exception {
+        content = new byte[100];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        file = directory.resolve("rapport.pdf");
+        Files.write(file, content);
+        Files.setLastModifiedTime(file, FileTime.from(MODIFIED));
+        etag = send(request()).getHeader(HttpHeaders.ETAG);
+    }
+
+    @Test
+    void overlappingRangesAreMergedIntoOnePartEach() throws Exception {
+        MockHttpServletResponse response = send(request("bytes=40-49, 0-9, 5-19"));
+
+        assertEquals(206, response.getStatus());
+        assertTrue(response.getContentType().startsWith("multipart/byteranges; boundary="));
+        String body = response.getContentAsString(StandardCharsets.ISO_8859_1);
+        assertEquals(2, body.split("Content-Range: ").length - 1);
+        assertTrue(body.contains("Content-Range: bytes 0-19/100"));
+        assertTrue(body.contains("Content-Range: bytes 40-49/100"));
+        assertEquals(response.getContentAsByteArray().length, response.getContentLengthLong());
+    }
+
+    @Test
+    void adjacentRangesAreServedAsOneRange() throws Exception {
+        MockHttpServletResponse response = send(request("bytes=10-19,0-9"));
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 0-19/100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(Arrays.copyOfRange(content, 0, 20), response.getContentAsByteArray());
+    }
+
+    @Test
+    void suffixRangeIsTheLastBytes() throws Exception {
+        MockHttpServletResponse last = send(request("bytes=-10"));
+        assertEquals(206, last.getStatus());
+        assertEquals("bytes 90-99/100", last.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(Arrays.copyOfRange(content, 90, 100), last.getContentAsByteArray());
+
+        // Longer than the file: the whole file
+        MockHttpServletResponse whole = send(request("bytes=-500"));
+        assertEquals(206, whole.getStatus());
+        assertEquals("bytes 0-99/100", whole.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void unsatisfiableRangesAreRefused() throws Exception {
+        for (String range : new String[]{"bytes=100-", "bytes=-0", "bytes=200-300, 150-"}) {
+            MockHttpServletResponse response = send(request(range));
+
+            assertEquals(416, response.getStatus(), range);
+            assertEquals("bytes */100", response.getHeader(HttpHeaders.CONTENT_RANGE), range);
+            assertEquals(0, response.getContentAsByteArray().length, range);
+        }
+    }
+
+    @Test
+    void rangeWithoutAnySpecIsIgnored() throws Exception {
+        for (String range : new String[]{"bytes=", "bytes= , ", "items=0-9", "bytes=9-0"}) {
+            MockHttpServletResponse response = send(request(range));
+
+            assertEquals(200, response.getStatus(), range);
+            assertNull(response.getHeader(HttpHeaders.CONTENT_RANGE), range);
+            assertArrayEquals(content, response.getContentAsByteArray(), range);
+        }
+    }
+
+    @Test
+    void ifRangeWithTheCurrentEtagKeepsTheRange() throws Exception {
+        MockHttpServletRequest current = request("bytes=0-9");
+        current.addHeader(HttpHeaders.IF_RANGE, etag);
+        assertEquals(206, send(current).getStatus());
+
+        MockHttpServletRequest stale = request("bytes=0-9");
+        stale.addHeader(HttpHeaders.IF_RANGE, "\"another-version\"");
+        MockHttpServletResponse response = send(stale);
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(content, response.getContentAsByteArray());
+    }
+
+    @Test
+    void ifRangeWithADateKeepsTheRangeOnlyForTheExactModificationDate() throws Exception {
+        MockHttpServletRequest current = request("bytes=0-9");
+        current.addHeader(HttpHeaders.IF_RANGE, httpDate(MODIFIED));
+        assertEquals(206, send(current).getStatus());
+
+        MockHttpServletRequest older = request("bytes=0-9");
+        older.addHeader(HttpHeaders.IF_RANGE, httpDate(MODIFIED.minusSeconds(60)));
+        assertEquals(200, send(older).getStatus());
+
+        // A weak validator never matches
+        MockHttpServletRequest weak = request("bytes=0-9");
+        weak.addHeader(HttpHeaders.IF_RANGE, "W/" + etag);
+        assertEquals(200, send(weak).getStatus());
+    }
+
+    @Test
+    void failedPreconditionTakesPrecedenceOverNotModified() throws Exception {
+        MockHttpServletRequest request = request("bytes=0-9");
+        request.addHeader(HttpHeaders.IF_MATCH, "\"another-version\"");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+
+        MockHttpServletResponse response = send(request);
+
+        assertEquals(412, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void notModifiedTakesPrecedenceOverTheRange() throws Exception {
+        MockHttpServletRequest request = request("bytes=0-9");
+        request.addHeader(HttpHeaders.IF_MATCH, etag);
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "W/" + etag);
+
+        MockHttpServletResponse response = send(request);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(etag, response.getHeader(HttpHeaders.ETAG));
+        assertFalse(response.containsHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void entityTagConditionsOverrideDateConditions() throws Exception {
+        // If-Match passes, so the failing If-Unmodified-Since is not evaluated
+        MockHttpServletRequest matching = request();
+        matching.addHeader(HttpHeaders.IF_MATCH, etag);
+        matching.addHeader(HttpHeaders.IF_UNMODIFIED_SINCE, httpDate(MODIFIED.minusSeconds(60)));
+        assertEquals(200, send(matching).getStatus());
+
+        // If-None-Match fails, so the passing If-Modified-Since is not evaluated
+        MockHttpServletRequest changed = request();
+        changed.addHeader(HttpHeaders.IF_NONE_MATCH, "\"another-version\"");
+        changed.addHeader(HttpHeaders.IF_MODIFIED_SINCE, httpDate(MODIFIED));
+        assertEquals(200, send(changed).getStatus());
+
+        MockHttpServletRequest unchanged = request();
+        unchanged.addHeader(HttpHeaders.IF_MODIFIED_SINCE, httpDate(MODIFIED));
+        assertEquals(304, send(unchanged).getStatus());
+    }
+
+    private static MockHttpServletRequest request() {
+        return new MockHttpServletRequest("GET", "/api/files/rapport.pdf");
+    }
+
+    private static MockHttpServletRequest request(String range) {
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.RANGE, range);
+        return request;
+    }
+
+    private MockHttpServletResponse send(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        streamer.send(file, "application/pdf", true, request, response);
+        return response;
+    }
+
+    private static String httpDate(Instant instant) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setInstant(HttpHeaders.DATE, instant);
+        return headers.getFirst(HttpHeaders.DATE);
+    }
+}